@@ -0,0 +1,284 @@
+package com.att.tdp.popcorn_palace.admission;
+
+import com.att.tdp.popcorn_palace.config.AdmissionProperties;
+import com.att.tdp.popcorn_palace.dto.AdmissionStatusDTO;
+import com.att.tdp.popcorn_palace.exception.AdmissionQueuedException;
+import com.att.tdp.popcorn_palace.exception.InvalidInputException;
+import com.att.tdp.popcorn_palace.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Waiting room in front of the booking endpoints.
+//Only a few requests per showtime run at once, the rest get a token and a FIFO position right away
+//instead of holding a servlet thread and a database connection while they wait.
+@Component
+public class AdmissionControl {
+
+    static final long SWEEP_MS = 1000;
+
+    private static final Permit NO_PERMIT = () -> {
+    };
+
+    private final AdmissionProperties properties;
+    private final Clock clock;
+    private final ConcurrentMap<Long, Gate> gates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<UUID, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Counter admitted;
+    private final Counter queued;
+    private final Counter rejected;
+    private final Counter expired;
+    private final ScheduledExecutorService sweeper;
+
+    @Autowired
+    public AdmissionControl(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Clock.systemUTC(), true);
+    }
+
+    AdmissionControl(AdmissionProperties properties, MeterRegistry meterRegistry, Clock clock, boolean startSweeper) {
+        this.properties = properties;
+        this.clock = clock;
+        this.admitted = Counter.builder("popcorn.admission.admitted")
+                .description("Booking requests let through to the booking service")
+                .register(meterRegistry);
+        this.queued = Counter.builder("popcorn.admission.queued")
+                .description("Booking requests that were given a waiting room token")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("popcorn.admission.rejected")
+                .description("Booking requests turned away because the waiting room was full")
+                .register(meterRegistry);
+        this.expired = Counter.builder("popcorn.admission.expired")
+                .description("Tokens dropped because they were not polled or not used in time")
+                .register(meterRegistry);
+        Gauge.builder("popcorn.admission.tokens", tickets, ConcurrentMap::size)
+                .description("Tokens that are waiting or admitted but not used yet")
+                .register(meterRegistry);
+        if (startSweeper) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "admission-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_MS, SWEEP_MS, TimeUnit.MILLISECONDS);
+        } else {
+            sweeper = null;
+        }
+    }
+
+    //let the request in, or queue it and throw its token back to the client.
+    //the permit has to be closed once the booking is done
+    public Permit enter(Long showtimeId, UUID token) {
+        if (!properties.enabled() || showtimeId == null) {
+            return NO_PERMIT;
+        }
+        Ticket ticket = token == null ? null : tickets.get(token);
+        if (ticket != null && !ticket.showtimeId.equals(showtimeId)) {
+            throw new InvalidInputException("Admission token " + token + " was issued for showtime ID " + ticket.showtimeId);
+        }
+        while (true) {
+            Gate gate = gates.computeIfAbsent(showtimeId, Gate::new);
+            gate.lock.lock();
+            try {
+                if (gate.retired) {
+                    continue;
+                }
+                long now = clock.millis();
+                if (ticket != null && tickets.containsKey(ticket.token)) {
+                    if (ticket.admitted) {
+                        //the slot was reserved for this token when it reached the head of the queue
+                        tickets.remove(ticket.token);
+                        gate.admittedTickets.remove(ticket);
+                        return new GatePermit(gate);
+                    }
+                    ticket.lastSeen = now;
+                    throw queuedAt(ticket, gate);
+                }
+                //an unknown or dropped token queues again like a new request
+                if (gate.waiting.isEmpty() && gate.active < properties.concurrencyPerShowtime()) {
+                    gate.active++;
+                    admitted.increment();
+                    return new GatePermit(gate);
+                }
+                if (gate.waiting.size() >= properties.queueCapacity()) {
+                    rejected.increment();
+                    throw new TooManyRequestsException("Too many requests are waiting for showtime ID " + showtimeId + ", try again later.");
+                }
+                Ticket fresh = new Ticket(UUID.randomUUID(), showtimeId, gate.nextSequence++, now);
+                gate.waiting.addLast(fresh);
+                tickets.put(fresh.token, fresh);
+                queued.increment();
+                throw queuedAt(fresh, gate);
+            } finally {
+                gate.lock.unlock();
+            }
+        }
+    }
+
+    //current state of a token, polling keeps a waiting token alive
+    public Optional<AdmissionStatusDTO> status(UUID token) {
+        Ticket ticket = tickets.get(token);
+        if (ticket == null) {
+            return Optional.empty();
+        }
+        Gate gate = gates.get(ticket.showtimeId);
+        if (gate == null) {
+            return Optional.empty();
+        }
+        gate.lock.lock();
+        try {
+            if (!tickets.containsKey(token)) {
+                return Optional.empty();
+            }
+            long now = clock.millis();
+            if (!ticket.admitted) {
+                ticket.lastSeen = now;
+                promote(gate, now);
+            }
+            return Optional.of(new AdmissionStatusDTO(token, ticket.showtimeId, ticket.admitted,
+                    ticket.admitted ? 0 : position(ticket, gate)));
+        } finally {
+            gate.lock.unlock();
+        }
+    }
+
+    //give back slots of admitted tokens that were never used and drop idle showtimes
+    void sweep() {
+        long now = clock.millis();
+        for (Gate gate : gates.values()) {
+            gate.lock.lock();
+            try {
+                while (!gate.admittedTickets.isEmpty() && isExpired(gate.admittedTickets.peekFirst(), now)) {
+                    Ticket unused = gate.admittedTickets.pollFirst();
+                    tickets.remove(unused.token);
+                    gate.active--;
+                    expired.increment();
+                }
+                promote(gate, now);
+                if (gate.active == 0 && gate.waiting.isEmpty()) {
+                    gate.retired = true;
+                    gates.remove(gate.showtimeId, gate);
+                }
+            } finally {
+                gate.lock.unlock();
+            }
+        }
+    }
+
+    //move tokens from the head of the queue into free slots, called with the gate lock held
+    private void promote(Gate gate, long now) {
+        while (gate.active < properties.concurrencyPerShowtime() && !gate.waiting.isEmpty()) {
+            Ticket head = gate.waiting.pollFirst();
+            gate.headSequence = head.sequence + 1;
+            if (isExpired(head, now)) {
+                //the client stopped polling
+                tickets.remove(head.token);
+                expired.increment();
+                continue;
+            }
+            head.admitted = true;
+            head.lastSeen = now;
+            gate.active++;
+            gate.admittedTickets.addLast(head);
+            admitted.increment();
+        }
+    }
+
+    private void leave(Gate gate) {
+        gate.lock.lock();
+        try {
+            gate.active--;
+            promote(gate, clock.millis());
+        } finally {
+            gate.lock.unlock();
+        }
+    }
+
+    private boolean isExpired(Ticket ticket, long now) {
+        return now - ticket.lastSeen > properties.tokenTtl().toMillis();
+    }
+
+    private static long position(Ticket ticket, Gate gate) {
+        return ticket.sequence - gate.headSequence + 1;
+    }
+
+    private static AdmissionQueuedException queuedAt(Ticket ticket, Gate gate) {
+        return new AdmissionQueuedException(ticket.token, ticket.showtimeId, position(ticket, gate));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    //a slot of the showtime, closing it lets the next waiting token in
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final class GatePermit implements Permit {
+        private final Gate gate;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private GatePermit(Gate gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                leave(gate);
+            }
+        }
+    }
+
+    //waiting room of one showtime, all fields are guarded by lock
+    private static final class Gate {
+        final Long showtimeId;
+        final ReentrantLock lock = new ReentrantLock();
+        final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+        //admitted tokens hold a slot until they are used or expire, oldest first
+        final ArrayDeque<Ticket> admittedTickets = new ArrayDeque<>();
+        int active;
+        long nextSequence;
+        long headSequence;
+        boolean retired;
+
+        Gate(Long showtimeId) {
+            this.showtimeId = showtimeId;
+        }
+    }
+
+    private static final class Ticket {
+        final UUID token;
+        final Long showtimeId;
+        //position in the queue is the distance from the sequence of the current head
+        final long sequence;
+        long lastSeen;
+        boolean admitted;
+
+        Ticket(UUID token, Long showtimeId, long sequence, long lastSeen) {
+            this.token = token;
+            this.showtimeId = showtimeId;
+            this.sequence = sequence;
+            this.lastSeen = lastSeen;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.att.tdp.popcorn_palace.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+//Serialized json of each catalog listing, kept until the listing's version moves on.
+//A poll of an unchanged listing neither queries nor serializes, it only copies the cached bytes out.
+//Concurrent polls after a write wait for the one rebuilding the body instead of all querying at once.
+@Slf4j
+@Component
+public class CatalogBodies {
+
+    //smaller bodies are not worth compressing
+    static final int GZIP_MIN_BYTES = 1024;
+
+    private final CatalogVersion catalogVersion;
+    private final ObjectMapper objectMapper;
+    private final Map<CatalogVersion.Part, Body> bodies = new ConcurrentHashMap<>();
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    public CatalogBodies(CatalogVersion catalogVersion, ObjectMapper objectMapper) {
+        this.catalogVersion = catalogVersion;
+        this.objectMapper = objectMapper;
+    }
+
+    //gzip is null when the body is too small to be worth it
+    public record Body(CatalogVersion.Stamp stamp, byte[] json, byte[] gzip) {
+
+        public String etag(boolean gzipped) {
+            String etag = stamp.etag();
+            //each encoding is its own representation with its own strong validator
+            return gzipped ? etag.substring(0, etag.length() - 1) + "-gzip\"" : etag;
+        }
+    }
+
+    //the cached body of a listing, built from load when the listing changed since it was cached
+    public Body get(CatalogVersion.Part part, Supplier<?> load) {
+        //read the version before the data, a write that lands in between makes the body stale right away instead of never
+        CatalogVersion.Stamp stamp = catalogVersion.current(part);
+        Body body = bodies.get(part);
+        if (body != null && body.stamp().equals(stamp)) {
+            return body;
+        }
+        buildLock.lock();
+        try {
+            stamp = catalogVersion.current(part);
+            body = bodies.get(part);
+            if (body != null && body.stamp().equals(stamp)) {
+                return body;
+            }
+            byte[] json = objectMapper.writeValueAsBytes(load.get());
+            body = new Body(stamp, json, json.length >= GZIP_MIN_BYTES ? gzip(json) : null);
+            bodies.put(part, body);
+            log.debug("Serialized {} listing version {}, {} bytes", part, stamp.version(), json.length);
+            return body;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the " + part + " listing", e);
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,55 @@
+package com.att.tdp.popcorn_palace.catalog;
+
+import com.att.tdp.popcorn_palace.concurrent.AfterCommit;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+//Version of each catalog listing, bumped by every committed write to it.
+//The boot time is part of the version, so an ETag handed out before a restart never matches after it.
+@Component
+public class CatalogVersion {
+
+    public enum Part {
+        MOVIES,
+        SHOWTIMES
+    }
+
+    public record Stamp(long epoch, long version, Instant lastModified) {
+
+        public String etag() {
+            return "\"" + Long.toString(epoch, 36) + "-" + version + "\"";
+        }
+    }
+
+    private final long epoch = System.currentTimeMillis();
+    private final Map<Part, AtomicReference<Stamp>> stamps = new EnumMap<>(Part.class);
+
+    public CatalogVersion() {
+        //http dates have whole seconds
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        for (Part part : Part.values()) {
+            stamps.put(part, new AtomicReference<>(new Stamp(epoch, 0, now)));
+        }
+    }
+
+    public Stamp current(Part part) {
+        return stamps.get(part).get();
+    }
+
+    //bump once the current transaction commits (or right away outside of one)
+    public void bumpAfterCommit(Part... parts) {
+        AfterCommit.run(() -> bump(parts));
+    }
+
+    private void bump(Part... parts) {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        for (Part part : parts) {
+            stamps.get(part).updateAndGet(stamp -> new Stamp(epoch, stamp.version() + 1, now));
+        }
+    }
+}
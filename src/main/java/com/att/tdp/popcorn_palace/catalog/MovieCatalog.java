@@ -0,0 +1,147 @@
+package com.att.tdp.popcorn_palace.catalog;
+
+import com.att.tdp.popcorn_palace.concurrent.AfterCommit;
+import com.att.tdp.popcorn_palace.entity.Movie;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+//In-memory copy of the whole movie catalog, indexed by id and by title.
+//Readers get the current immutable snapshot without locking, every committed write builds a new snapshot and swaps it in.
+//The unique index on movies.title stays the guard for two writers adding the same title at once.
+//Writes also feed the search index, so type-ahead search never goes to the database.
+@Slf4j
+@Component
+public class MovieCatalog {
+
+    private final MovieRepository movieRepository;
+    //writers only, readers never wait
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+    //rebuilt on every load, changed in place by writes
+    private volatile MovieSearchIndex searchIndex = new MovieSearchIndex();
+    private final Timer searches;
+
+    public MovieCatalog(MovieRepository movieRepository, MeterRegistry meterRegistry) {
+        this.movieRepository = movieRepository;
+        this.searches = Timer.builder("popcorn.catalog.search")
+                .description("Type-ahead searches of the search index")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("popcorn.catalog.movies", this, catalog -> catalog.snapshot == null ? 0 : catalog.snapshot.byId().size())
+                .description("Movies in the in-memory catalog")
+                .register(meterRegistry);
+    }
+
+    public Optional<Movie> findById(Long movieId) {
+        return Optional.ofNullable(current().byId().get(movieId)).map(Movie::copy);
+    }
+
+    public Optional<Movie> findByTitle(String title) {
+        return Optional.ofNullable(current().byTitle().get(title)).map(Movie::copy);
+    }
+
+    //best ranked movies with a title or genre word starting with every term of the query
+    public List<Movie> search(String query, int limit) {
+        current();
+        return searches.record(() -> searchIndex.search(query, limit));
+    }
+
+    //record a saved movie once the current transaction commits (or right away outside of one)
+    public void putAfterCommit(Movie movie) {
+        Movie saved = movie.copy();
+        AfterCommit.run(() -> update(byId -> byId.put(saved.getId(), saved), index -> index.put(saved)));
+    }
+
+    //record a batch of saved movies with a single snapshot swap once the current transaction commits
+    public void putAllAfterCommit(Collection<Movie> movies) {
+        if (movies.isEmpty()) {
+            return;
+        }
+        List<Movie> saved = movies.stream().map(Movie::copy).toList();
+        AfterCommit.run(() -> update(byId -> saved.forEach(movie -> byId.put(movie.getId(), movie)), index -> saved.forEach(index::put)));
+    }
+
+    //drop a deleted movie once the current transaction commits (or right away outside of one)
+    public void removeAfterCommit(Long movieId) {
+        AfterCommit.run(() -> update(byId -> byId.remove(movieId), index -> index.remove(movieId)));
+    }
+
+    //read the whole catalog again
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        writeLock.lock();
+        try {
+            load();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        writeLock.lock();
+        try {
+            if (snapshot == null) {
+                load();
+            }
+            return snapshot;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void update(Consumer<Map<Long, Movie>> change, Consumer<MovieSearchIndex> indexChange) {
+        writeLock.lock();
+        try {
+            //not loaded yet, the first read loads the committed state anyway
+            if (snapshot == null) {
+                return;
+            }
+            Map<Long, Movie> byId = new HashMap<>(snapshot.byId());
+            change.accept(byId);
+            snapshot = Snapshot.of(byId);
+            indexChange.accept(searchIndex);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    //called with the write lock held
+    private void load() {
+        Map<Long, Movie> byId = new HashMap<>();
+        MovieSearchIndex index = new MovieSearchIndex();
+        for (Movie movie : movieRepository.findAll()) {
+            byId.put(movie.getId(), movie.copy());
+            index.put(movie);
+        }
+        log.info("Movie catalog loaded with {} movies", byId.size());
+        searchIndex = index;
+        snapshot = Snapshot.of(byId);
+    }
+
+    private record Snapshot(Map<Long, Movie> byId, Map<String, Movie> byTitle) {
+
+        static Snapshot of(Map<Long, Movie> movies) {
+            Map<String, Movie> byTitle = new HashMap<>();
+            movies.values().forEach(movie -> byTitle.put(movie.getTitle(), movie));
+            return new Snapshot(Map.copyOf(movies), Map.copyOf(byTitle));
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.att.tdp.popcorn_palace.catalog;
+
+import com.att.tdp.popcorn_palace.entity.Movie;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Word prefix search over movie titles and genres.
+//Every word points to the movies that contain it, kept in rank order (rating, then release year, both descending),
+//and the words are sorted so all words starting with a prefix are one range of the map.
+//A search merges the ranked lists of the words matching its most selective term and stops at the limit,
+//so it only touches the best ranked candidates instead of every match.
+public final class MovieSearchIndex {
+
+    private static final Comparator<Ranked> BY_RANK = Comparator.comparingDouble(Ranked::rating).reversed()
+            .thenComparing(Comparator.comparingInt(Ranked::releaseYear).reversed())
+            .thenComparingLong(Ranked::id);
+
+    private final ConcurrentSkipListMap<String, NavigableSet<Ranked>> words = new ConcurrentSkipListMap<>();
+    private final Map<Long, Ranked> movies = new ConcurrentHashMap<>();
+    //writers only, searches never wait
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    //add a movie or replace its previous version
+    public void put(Movie movie) {
+        Ranked ranked = new Ranked(movie.getId(), movie.getRating(), movie.getReleaseYear(), movie.copy(),
+                tokens(movie.getTitle() + " " + movie.getGenre()));
+        writeLock.lock();
+        try {
+            Ranked previous = movies.put(ranked.id(), ranked);
+            if (previous != null) {
+                unlink(previous);
+            }
+            for (String token : ranked.tokens()) {
+                words.computeIfAbsent(token, word -> new ConcurrentSkipListSet<>(BY_RANK)).add(ranked);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(Long movieId) {
+        writeLock.lock();
+        try {
+            Ranked previous = movies.remove(movieId);
+            if (previous != null) {
+                unlink(previous);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        return movies.size();
+    }
+
+    //best ranked movies that have a word starting with every term of the query
+    public List<Movie> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(tokens(query));
+        if (terms.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        //the longest term usually matches the fewest words, it drives the merge and the others filter
+        terms.sort(Comparator.comparingInt(String::length).reversed());
+        String driver = terms.get(0);
+        List<String> filters = terms.subList(1, terms.size());
+
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+        for (NavigableSet<Ranked> posting : words.subMap(driver, true, driver + Character.MAX_VALUE, false).values()) {
+            Cursor cursor = new Cursor(posting.iterator());
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+
+        List<Movie> results = new ArrayList<>(Math.min(limit, 16));
+        Ranked last = null;
+        while (!cursors.isEmpty() && results.size() < limit) {
+            Cursor cursor = cursors.poll();
+            Ranked candidate = cursor.head;
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+            //several words of one movie can match the same prefix, the merge sees them one after another
+            if (candidate.equals(last)) {
+                continue;
+            }
+            last = candidate;
+            //skip a version that was replaced while the search ran
+            if (movies.get(candidate.id()) == candidate && matchesAll(candidate, filters)) {
+                results.add(candidate.movie().copy());
+            }
+        }
+        return results;
+    }
+
+    //lower case letter and digit runs, the same split for indexing and for queries
+    static Set<String> tokens(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private void unlink(Ranked ranked) {
+        for (String token : ranked.tokens()) {
+            NavigableSet<Ranked> posting = words.get(token);
+            if (posting != null) {
+                posting.remove(ranked);
+                if (posting.isEmpty()) {
+                    words.remove(token, posting);
+                }
+            }
+        }
+    }
+
+    private static boolean matchesAll(Ranked candidate, List<String> terms) {
+        for (String term : terms) {
+            boolean found = false;
+            for (String token : candidate.tokens()) {
+                if (token.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record Ranked(long id, double rating, int releaseYear, Movie movie, Set<String> tokens) {
+    }
+
+    //position in the ranked list of one word
+    private static final class Cursor implements Comparable<Cursor> {
+        private final Iterator<Ranked> iterator;
+        private Ranked head;
+
+        private Cursor(Iterator<Ranked> iterator) {
+            this.iterator = iterator;
+        }
+
+        private boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            head = iterator.next();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return BY_RANK.compare(head, other.head);
+        }
+    }
+}
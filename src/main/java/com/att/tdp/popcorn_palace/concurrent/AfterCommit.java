@@ -0,0 +1,25 @@
+package com.att.tdp.popcorn_palace.concurrent;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//In-memory state (catalog, schedules, seat bitmaps, caches) follows committed writes only.
+//A change is applied once the current transaction commits, dropped if it rolls back, and applied right away outside of one.
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
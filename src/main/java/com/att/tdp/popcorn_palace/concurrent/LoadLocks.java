@@ -0,0 +1,59 @@
+package com.att.tdp.popcorn_palace.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+//Loads a missing map entry once, for loaders that query the database.
+//computeIfAbsent of ConcurrentHashMap (and of Caffeine, which is built on it) runs the loader inside the bin's monitor,
+//a virtual thread blocked on JDBC in there pins its carrier thread for the whole query.
+//These are striped ReentrantLocks instead, so a waiting or loading virtual thread unmounts like on any other lock.
+public final class LoadLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public LoadLocks(int stripes) {
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    //the entry of key, loaded and stored if missing. A null from the loader stores nothing, like computeIfAbsent
+    public <K, V> V computeIfAbsent(Map<K, V> map, K key, Function<? super K, ? extends V> loader) {
+        V value = map.get(key);
+        if (value != null) {
+            return value;
+        }
+        ReentrantLock lock = of(key);
+        lock.lock();
+        try {
+            value = map.get(key);
+            if (value == null) {
+                value = loader.apply(key);
+                if (value != null) {
+                    map.put(key, value);
+                }
+            }
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //remove an entry, a load of the same key that is running finishes first so it cannot put back what it read before
+    public <K, V> V remove(Map<K, V> map, K key) {
+        ReentrantLock lock = of(key);
+        lock.lock();
+        try {
+            return map.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock of(Object key) {
+        int hash = key.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+}
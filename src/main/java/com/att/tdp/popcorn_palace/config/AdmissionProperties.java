@@ -0,0 +1,18 @@
+package com.att.tdp.popcorn_palace.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+//popcorn-palace.booking.admission.* settings
+@ConfigurationProperties(prefix = "popcorn-palace.booking.admission")
+public record AdmissionProperties(
+        @DefaultValue("true") boolean enabled,
+        //booking requests of one showtime that may run at the same time
+        @DefaultValue("16") int concurrencyPerShowtime,
+        //waiting tokens per showtime, requests beyond that get a 429
+        @DefaultValue("5000") int queueCapacity,
+        //a waiting token that is not polled for this long, or an admitted token that is not used, is dropped
+        @DefaultValue("30s") Duration tokenTtl) {
+}
@@ -0,0 +1,28 @@
+package com.att.tdp.popcorn_palace.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+//popcorn-palace.booking.journal.* settings, the journal is off unless enabled
+@ConfigurationProperties(prefix = "popcorn-palace.booking.journal")
+public record BookingJournalProperties(
+        @DefaultValue("false") boolean enabled,
+        //bookings the drain could not insert are kept next to it in <path>.rejected
+        @DefaultValue("data/booking.journal") Path path,
+        //bookings are written straight to the database while the journal is full
+        @DefaultValue("64MB") DataSize size,
+        //how often journaled bookings are copied into the bookings table
+        @DefaultValue("50ms") Duration drainInterval,
+        @DefaultValue("500") int drainBatchSize) {
+
+    //the journal is a single memory-mapped buffer, addressed with int offsets
+    public BookingJournalProperties {
+        if (size.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("popcorn-palace.booking.journal.size must be below 2GB but was " + size);
+        }
+    }
+}
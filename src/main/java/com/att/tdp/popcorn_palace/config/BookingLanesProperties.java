@@ -0,0 +1,16 @@
+package com.att.tdp.popcorn_palace.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+//popcorn-palace.booking.lanes.* settings
+@ConfigurationProperties(prefix = "popcorn-palace.booking.lanes")
+public record BookingLanesProperties(
+        //route POST /bookings through per-showtime single writer lanes instead of booking on the request thread
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("8") int count,
+        //bookings of one lane saved in one transaction, at most one hibernate JDBC batch
+        @DefaultValue("50") int maxBatch,
+        //bookings waiting per lane, requests beyond that get a 429
+        @DefaultValue("10000") int mailboxCapacity) {
+}
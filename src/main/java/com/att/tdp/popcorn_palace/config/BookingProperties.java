@@ -0,0 +1,13 @@
+package com.att.tdp.popcorn_palace.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+//popcorn-palace.booking.* settings
+@ConfigurationProperties(prefix = "popcorn-palace.booking")
+public record BookingProperties(
+        //how long a held seat stays reserved before it is released again
+        @DefaultValue("5m") Duration holdTtl) {
+}
@@ -0,0 +1,34 @@
+package com.att.tdp.popcorn_palace.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+//popcorn-palace.catalog.* settings
+@ConfigurationProperties(prefix = "popcorn-palace.catalog")
+public record CatalogProperties(
+        //showtimes deleted per transaction, together with all of their bookings
+        @DefaultValue("50") int deleteChunkSize,
+        //rows written per transaction by the schedule import and the bulk movie upsert
+        @DefaultValue("500") int importChunkSize,
+        //where showtime overlaps are looked up
+        @DefaultValue("index") OverlapCheck overlapCheck,
+        //showtimes kept by the read-through showtime cache
+        @DefaultValue("10000") long showtimeCacheSize,
+        //a cached showtime is read again after this long, even if nothing evicted it
+        @DefaultValue("10m") Duration showtimeCacheTtl) {
+
+    public enum OverlapCheck {
+        //in-memory schedule of each theater
+        INDEX,
+        //in-memory schedule, checked against the database query, the database wins on a mismatch
+        VERIFY,
+        //database query only
+        DATABASE,
+        //no check before adding, the exclusion constraint of the showtimes table rejects overlaps.
+        //Updates are still checked against the in-memory schedule for their 5 minute buffer.
+        //Falls back to INDEX where the constraint does not exist
+        CONSTRAINT
+    }
+}
@@ -0,0 +1,17 @@
+package com.att.tdp.popcorn_palace.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+//popcorn-palace.datasource.guard.* settings
+@ConfigurationProperties(prefix = "popcorn-palace.datasource.guard")
+public record DataSourceGuardProperties(
+        //queue connection requests in front of the pool, meant for the virtual thread mode
+        @DefaultValue("false") boolean enabled,
+        //connections handed out at once, 0 takes the maximum pool size of hikari
+        @DefaultValue("0") int permits,
+        //a request that waited this long for a permit fails like a pool timeout
+        @DefaultValue("5s") Duration acquireTimeout) {
+}
@@ -0,0 +1,19 @@
+package com.att.tdp.popcorn_palace.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+//popcorn-palace.booking.idempotency.* settings
+@ConfigurationProperties(prefix = "popcorn-palace.booking.idempotency")
+public record IdempotencyProperties(
+        //how long a key is remembered, in memory and in the idempotency_keys table
+        @DefaultValue("24h") Duration ttl,
+        @DefaultValue("100000") long maxEntries,
+        //how long a retry waits for the first request with the same key to finish
+        @DefaultValue("30s") Duration inFlightWait,
+        //how long a key stays reserved by a request that has not finished, after that a retry takes it over.
+        //Longer than any booking, a key is only left in progress by an instance that died while booking
+        @DefaultValue("2m") Duration inProgressLease) {
+}
@@ -1,13 +1,24 @@
 package com.att.tdp.popcorn_palace.controller;
 
+import com.att.tdp.popcorn_palace.admission.AdmissionControl;
+import com.att.tdp.popcorn_palace.dto.AdmissionStatusDTO;
 import com.att.tdp.popcorn_palace.dto.BookingResponseDTO;
+import com.att.tdp.popcorn_palace.dto.CursorPageDTO;
+import com.att.tdp.popcorn_palace.dto.GroupBookingRequestDTO;
+import com.att.tdp.popcorn_palace.dto.GroupBookingResponseDTO;
+import com.att.tdp.popcorn_palace.dto.SeatHoldRequestDTO;
+import com.att.tdp.popcorn_palace.dto.SeatHoldResponseDTO;
 import com.att.tdp.popcorn_palace.entity.Booking;
+import com.att.tdp.popcorn_palace.exception.ResourceNotFoundException;
+import com.att.tdp.popcorn_palace.service.BookingIdempotency;
+import com.att.tdp.popcorn_palace.service.BookingLanes;
 import com.att.tdp.popcorn_palace.service.BookingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -15,16 +26,81 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class BookingController {
 
+    static final String ADMISSION_TOKEN = "Admission-Token";
+
     private final BookingService bookingService;
+    private final BookingIdempotency bookingIdempotency;
+    private final AdmissionControl admissionControl;
+    //present when popcorn-palace.booking.lanes.enabled is set
+    private final Optional<BookingLanes> bookingLanes;
 
     // Book a Ticket
     @PostMapping
-    public ResponseEntity<BookingResponseDTO> bookTicket(@Valid @RequestBody Booking booking) {
-        BookingResponseDTO response = bookingService.bookTicket(booking);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<BookingResponseDTO> bookTicket(@Valid @RequestBody Booking booking,
+                                                         @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                         @RequestHeader(value = ADMISSION_TOKEN, required = false) UUID admissionToken) {
+        //busy showtimes queue the request before it takes a database connection
+        try (AdmissionControl.Permit permit = admissionControl.enter(booking.getShowtimeId(), admissionToken)) {
+            //retries carrying the same key get the first outcome instead of booking again
+            BookingResponseDTO response = idempotencyKey == null
+                    ? book(booking)
+                    : bookingIdempotency.execute(idempotencyKey, booking, () -> book(booking));
+            return ResponseEntity.ok(response);
+        }
+    }
+
+    //single writer lanes when enabled, otherwise on this thread
+    private BookingResponseDTO book(Booking booking) {
+        return bookingLanes.isPresent() ? bookingLanes.get().bookTicket(booking) : bookingService.bookTicket(booking);
+    }
+
+    // Book several seats of one showtime in a single request
+    @PostMapping("/group")
+    public ResponseEntity<GroupBookingResponseDTO> bookGroup(@Valid @RequestBody GroupBookingRequestDTO request,
+                                                             @RequestHeader(value = ADMISSION_TOKEN, required = false) UUID admissionToken) {
+        try (AdmissionControl.Permit permit = admissionControl.enter(request.showtimeId(), admissionToken)) {
+            return ResponseEntity.ok(bookingService.bookGroup(request));
+        }
+    }
+
+    // Hold a seat during checkout
+    @PostMapping("/holds")
+    public ResponseEntity<SeatHoldResponseDTO> holdSeat(@Valid @RequestBody SeatHoldRequestDTO request,
+                                                        @RequestHeader(value = ADMISSION_TOKEN, required = false) UUID admissionToken) {
+        try (AdmissionControl.Permit permit = admissionControl.enter(request.showtimeId(), admissionToken)) {
+            return ResponseEntity.ok(bookingService.holdSeat(request));
+        }
+    }
+
+    // Poll the waiting room position of a queued booking request
+    @GetMapping("/admission/{token}")
+    public ResponseEntity<AdmissionStatusDTO> getAdmissionStatus(@PathVariable UUID token) {
+        return ResponseEntity.ok(admissionControl.status(token)
+                .orElseThrow(() -> new ResourceNotFoundException("Admission token not found or expired: " + token)));
+    }
+
+    // Confirm a held seat as a booking
+    @PostMapping("/holds/{holdId}/confirm")
+    public ResponseEntity<BookingResponseDTO> confirmHold(@PathVariable UUID holdId) {
+        return ResponseEntity.ok(bookingService.confirmHold(holdId));
+    }
+
+    // Release a held seat
+    @DeleteMapping("/holds/{holdId}")
+    public ResponseEntity<Void> releaseHold(@PathVariable UUID holdId) {
+        bookingService.releaseHold(holdId);
+        return ResponseEntity.ok().build();
     }
 
 
+    // Booking history of a user, newest first, pass nextCursor back as after for the next page
+    @GetMapping
+    public ResponseEntity<CursorPageDTO<Booking>> getUserBookings(@RequestParam String userId,
+                                                                  @RequestParam(required = false) UUID after,
+                                                                  @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(bookingService.getUserBookings(userId, after, limit));
+    }
+
     // Get Booking by ID (for testing)
     @GetMapping("/{bookingId}")
     public ResponseEntity<Booking> getBookingById(@PathVariable UUID bookingId) {
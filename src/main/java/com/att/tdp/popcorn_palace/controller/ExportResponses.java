@@ -0,0 +1,31 @@
+package com.att.tdp.popcorn_palace.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+
+//Content negotiation of the export endpoints, ndjson unless the client asks for json and not for ndjson
+final class ExportResponses {
+
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private ExportResponses() {
+    }
+
+    static boolean isNdjson(String accept) {
+        if (accept == null) {
+            return true;
+        }
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        return accepted.stream().anyMatch(type -> type.equalsTypeAndSubtype(NDJSON))
+                || accepted.stream().noneMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_JSON));
+    }
+
+    static ResponseEntity<StreamingResponseBody> stream(boolean ndjson, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
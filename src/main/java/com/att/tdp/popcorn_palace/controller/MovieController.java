@@ -1,11 +1,19 @@
 package com.att.tdp.popcorn_palace.controller;
 
+import com.att.tdp.popcorn_palace.catalog.CatalogBodies;
+import com.att.tdp.popcorn_palace.catalog.CatalogVersion;
+import com.att.tdp.popcorn_palace.dto.CursorPageDTO;
+import com.att.tdp.popcorn_palace.dto.MovieUpsertReportDTO;
 import com.att.tdp.popcorn_palace.entity.Movie;
+import com.att.tdp.popcorn_palace.service.CatalogExportService;
 import com.att.tdp.popcorn_palace.service.MovieService;
 import lombok.RequiredArgsConstructor;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -15,11 +23,35 @@ import java.util.List;
 public class MovieController {
 
     private final MovieService movieService;
+    private final CatalogBodies catalogBodies;
+    private final CatalogExportService catalogExportService;
 
-    // Get All Movies
+    // Get All Movies, polling clients get 304 until a movie changes
     @GetMapping("/all")
-    public ResponseEntity<List<Movie>> getAllMovies() {
-        return ResponseEntity.ok(movieService.getAllMovies());
+    public ResponseEntity<byte[]> getAllMovies(WebRequest request) {
+        return CatalogResponses.of(catalogBodies.get(CatalogVersion.Part.MOVIES, movieService::getAllMovies), request);
+    }
+
+    // Page through movies in id order, pass nextCursor back as after for the next page
+    @GetMapping
+    public ResponseEntity<CursorPageDTO<Movie>> listMovies(@RequestParam(required = false) String genre,
+                                                           @RequestParam(required = false) Integer releaseYear,
+                                                           @RequestParam(required = false) Long after,
+                                                           @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(movieService.listMovies(genre, releaseYear, after, limit));
+    }
+
+    // Type-ahead search over titles and genres
+    @GetMapping("/search")
+    public ResponseEntity<List<Movie>> searchMovies(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(movieService.searchMovies(q, limit));
+    }
+
+    // Stream every movie for bulk consumers, ndjson by default or one json array for Accept: application/json
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMovies(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        boolean ndjson = ExportResponses.isNdjson(accept);
+        return ExportResponses.stream(ndjson, out -> catalogExportService.exportMovies(out, ndjson));
     }
 
     // Add a New Movie
@@ -28,6 +60,12 @@ public class MovieController {
         return ResponseEntity.ok(movieService.addMovie(movie));
     }
 
+    // Add or update many movies by title in one request, the report has one entry per movie
+    @PostMapping("/bulk")
+    public ResponseEntity<MovieUpsertReportDTO> upsertMovies(@RequestBody List<Movie> movies) {
+        return ResponseEntity.ok(movieService.upsertMovies(movies));
+    }
+
     // Update Movie by Title
     @PostMapping("/update/{movieTitle}")
     public ResponseEntity<Movie> updateMovie(@PathVariable String movieTitle, @Valid @RequestBody Movie updatedMovie) {
@@ -1,13 +1,32 @@
 package com.att.tdp.popcorn_palace.controller;
 
+import com.att.tdp.popcorn_palace.catalog.CatalogBodies;
+import com.att.tdp.popcorn_palace.catalog.CatalogVersion;
+import com.att.tdp.popcorn_palace.dto.CursorPageDTO;
+import com.att.tdp.popcorn_palace.dto.SeatMapDTO;
+import com.att.tdp.popcorn_palace.dto.ShowtimeImportReportDTO;
 import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.inventory.SeatMap;
+import com.att.tdp.popcorn_palace.service.CatalogExportService;
+import com.att.tdp.popcorn_palace.service.ShowtimeImportService;
 import com.att.tdp.popcorn_palace.service.ShowtimeService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 
 
 @RestController
@@ -15,13 +34,36 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ShowtimeController {
 
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
     private final ShowtimeService showtimeService;
+    private final ShowtimeImportService showtimeImportService;
+    private final CatalogExportService catalogExportService;
+    private final CatalogBodies catalogBodies;
 
-    // Get Showtime all
+    // Get Showtime all, polling clients get 304 until a showtime changes
     @GetMapping("/all")
-    public ResponseEntity<List<Showtime>> findeAll() {
-        List<Showtime> founded=  showtimeService.getAllShowtimes();
-        return ResponseEntity.ok(founded);
+    public ResponseEntity<byte[]> findeAll(WebRequest request) {
+        return CatalogResponses.of(catalogBodies.get(CatalogVersion.Part.SHOWTIMES, showtimeService::getAllShowtimes), request);
+    }
+
+    // Page through showtimes in start time order, from/to bound the start time,
+    // pass nextCursor back as after for the next page
+    @GetMapping
+    public ResponseEntity<CursorPageDTO<Showtime>> listShowtimes(@RequestParam(required = false) String theater,
+                                                                 @RequestParam(required = false) Long movieId,
+                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                                 @RequestParam(required = false) String after,
+                                                                 @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(showtimeService.listShowtimes(theater, movieId, from, to, after, limit));
+    }
+
+    // Stream every showtime for bulk consumers, ndjson by default or one json array for Accept: application/json
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportShowtimes(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        boolean ndjson = ExportResponses.isNdjson(accept);
+        return ExportResponses.stream(ndjson, out -> catalogExportService.exportShowtimes(out, ndjson));
     }
 
     // Get Showtime by id
@@ -31,12 +73,37 @@ public class ShowtimeController {
         return ResponseEntity.ok(founded);
     }
 
+    // Get the taken seats of a showtime, polling clients get 304 until a seat changes
+    @GetMapping("/{showtimeId}/seats")
+    public ResponseEntity<SeatMapDTO> getSeatMap(@PathVariable Long showtimeId, WebRequest request) {
+        SeatMap seatMap = showtimeService.getSeatMap(showtimeId);
+        if (request.checkNotModified(seatMap.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(seatMap.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(new SeatMapDTO(showtimeId, seatMap.takenSeats().length, seatMap.takenSeats()));
+    }
+
     // Add New Showtime
     @PostMapping
     public ResponseEntity<Showtime> addShowtime(@Valid @RequestBody Showtime showtime) {
         return ResponseEntity.ok(showtimeService.addShowtime(showtime));
     }
 
+    // Import a whole schedule, either text/csv (movieId,theater,startTime,endTime,price)
+    // or application/x-ndjson (one showtime per line). The report has one entry per row
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ShowtimeImportReportDTO> importShowtimes(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                                   InputStream body) throws IOException {
+        Reader reader = new InputStreamReader(body, contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8);
+        ShowtimeImportReportDTO report = TEXT_CSV.includes(contentType)
+                ? showtimeImportService.importCsv(reader)
+                : showtimeImportService.importNdjson(reader);
+        return ResponseEntity.ok(report);
+    }
+
     // Update Showtime by ID
     @PostMapping("/update/{showtimeId}")
     public ResponseEntity<Showtime> updateShowtime(@PathVariable Long showtimeId, @Valid @RequestBody Showtime updatedShowtime) {
@@ -0,0 +1,42 @@
+package com.att.tdp.popcorn_palace.datasource;
+
+import com.att.tdp.popcorn_palace.config.DataSourceGuardProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+//Wraps the hikari pool in a GuardedDataSource when popcorn-palace.datasource.guard.enabled is set.
+//The settings and the registry are looked up when the pool is created, a post processor that needs them
+//in its constructor would have them created before the other post processors exist.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "popcorn-palace.datasource.guard", name = "enabled", havingValue = "true")
+public class DataSourceGuard implements BeanPostProcessor {
+
+    //what hikari sizes the pool to when maximum-pool-size is not set, it only fills that in once the pool starts
+    private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+
+    private final ObjectProvider<DataSourceGuardProperties> properties;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public DataSourceGuard(ObjectProvider<DataSourceGuardProperties> properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof HikariDataSource pool)) {
+            return bean;
+        }
+        DataSourceGuardProperties guard = properties.getObject();
+        int poolSize = pool.getMaximumPoolSize() > 0 ? pool.getMaximumPoolSize() : HIKARI_DEFAULT_POOL_SIZE;
+        int permits = guard.permits() > 0 ? guard.permits() : poolSize;
+        log.info("Guarding data source '{}' with {} connection permits", beanName, permits);
+        return new GuardedDataSource(pool, permits, guard.acquireTimeout(), meterRegistry.getObject());
+    }
+}
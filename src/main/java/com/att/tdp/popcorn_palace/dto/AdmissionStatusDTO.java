@@ -0,0 +1,7 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import java.util.UUID;
+
+//admitted tokens are sent back on the booking request in the Admission-Token header, position is 0 once admitted
+public record AdmissionStatusDTO(UUID token, Long showtimeId, boolean admitted, long position) {
+}
@@ -0,0 +1,7 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import java.util.List;
+
+//one page of a keyset paginated listing, nextCursor is passed back to get the following page and is null on the last one
+public record CursorPageDTO<T>(List<T> items, String nextCursor) {
+}
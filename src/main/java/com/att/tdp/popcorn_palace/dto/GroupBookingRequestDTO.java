@@ -0,0 +1,17 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import jakarta.validation.constraints.*;
+
+import java.util.List;
+
+public record GroupBookingRequestDTO(
+        @NotNull(message = "Showtime ID cannot be empty")
+        Long showtimeId,
+
+        @NotBlank(message = "User ID cannot be empty")
+        String userId,
+
+        @NotEmpty(message = "At least one seat number is required")
+        @Size(max = 50, message = "A group booking cannot exceed 50 seats")
+        List<@NotNull @Min(value = 1, message = "Seat number must be at least 1") Integer> seatNumbers) {
+}
@@ -0,0 +1,7 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public record GroupBookingResponseDTO(List<UUID> bookingIds) {
+}
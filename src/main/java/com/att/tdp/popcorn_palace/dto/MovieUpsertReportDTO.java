@@ -0,0 +1,7 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import java.util.List;
+
+public record MovieUpsertReportDTO(int received, int created, int updated, int unchanged, int rejected,
+                                   List<MovieUpsertRowDTO> rows) {
+}
@@ -0,0 +1,13 @@
+package com.att.tdp.popcorn_palace.dto;
+
+//outcome of one upserted movie, the id is set unless the row was rejected
+public record MovieUpsertRowDTO(int row, String title, Long movieId, Outcome outcome, String error) {
+
+    public enum Outcome {
+        CREATED,
+        UPDATED,
+        //same details as the stored movie, nothing written
+        UNCHANGED,
+        REJECTED
+    }
+}
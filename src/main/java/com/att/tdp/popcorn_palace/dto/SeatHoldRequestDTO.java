@@ -0,0 +1,14 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import jakarta.validation.constraints.*;
+
+public record SeatHoldRequestDTO(
+        @NotNull(message = "Showtime ID cannot be empty")
+        Long showtimeId,
+
+        @Min(value = 1, message = "Seat number must be at least 1")
+        int seatNumber,
+
+        @NotBlank(message = "User ID cannot be empty")
+        String userId) {
+}
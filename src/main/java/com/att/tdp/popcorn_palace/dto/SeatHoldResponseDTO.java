@@ -0,0 +1,7 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record SeatHoldResponseDTO(UUID holdId, Instant expiresAt) {
+}
@@ -0,0 +1,4 @@
+package com.att.tdp.popcorn_palace.dto;
+
+public record SeatMapDTO(Long showtimeId, int takenCount, int[] takenSeats) {
+}
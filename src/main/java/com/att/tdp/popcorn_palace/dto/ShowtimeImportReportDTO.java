@@ -0,0 +1,6 @@
+package com.att.tdp.popcorn_palace.dto;
+
+import java.util.List;
+
+public record ShowtimeImportReportDTO(int received, int imported, int rejected, List<ShowtimeImportRowDTO> rows) {
+}
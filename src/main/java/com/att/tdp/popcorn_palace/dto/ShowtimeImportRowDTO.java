@@ -0,0 +1,5 @@
+package com.att.tdp.popcorn_palace.dto;
+
+//outcome of one imported row, either the id of the new showtime or the reason it was rejected
+public record ShowtimeImportRowDTO(int row, Long showtimeId, String error) {
+}
@@ -1,5 +1,6 @@
 package com.att.tdp.popcorn_palace.entity;
 
+import com.att.tdp.popcorn_palace.id.UuidV7Id;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
@@ -9,24 +10,27 @@ import lombok.NoArgsConstructor;
 import java.util.UUID;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings",
+        uniqueConstraints = @UniqueConstraint(name = "uk_bookings_showtime_seat", columnNames = {"showtime_id", "seat_number"}),
+        indexes = @Index(name = "idx_bookings_user_booking", columnList = "user_id, booking_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Booking {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7Id//time ordered, older random ids stay valid
     private UUID bookingId;
 
     @Column(nullable = false, name = "showtime_id")
     private Long showtimeId;
 
     @Min(value = 1, message = "Seat number must be at least 1")
-    @Column(nullable = false)
+    @Column(nullable = false, name = "seat_number")
     private int seatNumber;
 
     @NotBlank(message = "User ID cannot be empty")
-    @Column(nullable = false)
+    @Convert(converter = UserIdConverter.class)
+    @Column(nullable = false, name = "user_id")
     private String userId;
 }
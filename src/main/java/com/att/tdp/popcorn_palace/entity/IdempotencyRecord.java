@@ -0,0 +1,38 @@
+package com.att.tdp.popcorn_palace.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+//Stored outcome of a POST /bookings sent with an Idempotency-Key, status 0 while the first request is still running
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_created_at", columnList = "created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    public static final int IN_PROGRESS = 0;
+
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String idempotencyKey;
+
+    @Column(nullable = false, name = "request_fingerprint")
+    private String requestFingerprint;
+
+    @Column(nullable = false)
+    private int status;
+
+    private UUID bookingId;
+
+    @Column(length = 1000)
+    private String message;
+
+    @Column(nullable = false, name = "created_at")
+    private LocalDateTime createdAt;
+}
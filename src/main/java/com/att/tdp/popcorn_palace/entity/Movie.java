@@ -7,14 +7,16 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "movies")
+@Table(name = "movies", uniqueConstraints = @UniqueConstraint(name = "uk_movies_title", columnNames = "title"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Movie {
 
+    //mapped like Showtime.id, the new titles of a bulk upsert go in as one insert batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movies_seq")
+    @SequenceGenerator(name = "movies_seq", sequenceName = "movies_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Title cannot be empty")
@@ -39,5 +41,9 @@ public class Movie {
     @Max(value = 2025, message = "Release year cannot exceed 2025")
     @Column(nullable = false)
     private int releaseYear;
-}
 
+    //detached copy, the in-memory catalog and search index never hand out or keep a managed entity
+    public Movie copy() {
+        return new Movie(id, title, genre, duration, rating, releaseYear);
+    }
+}
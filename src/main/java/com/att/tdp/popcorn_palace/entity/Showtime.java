@@ -7,14 +7,21 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "showtimes")
+@Table(name = "showtimes", indexes = {
+        //listing by theater and schedule window
+        @Index(name = "idx_showtimes_theater_start", columnList = "theater, start_time"),
+        //listing by movie and schedule window
+        @Index(name = "idx_showtimes_movie_start", columnList = "movie_id, start_time")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Showtime {
 
+    //pooled sequence instead of identity, so hibernate knows the ids up front and can batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "showtimes_seq")
+    @SequenceGenerator(name = "showtimes_seq", sequenceName = "showtimes_seq", allocationSize = 50)
     private Long id;
 
 
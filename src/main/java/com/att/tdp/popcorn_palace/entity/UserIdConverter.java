@@ -0,0 +1,29 @@
+package com.att.tdp.popcorn_palace.entity;
+
+import com.att.tdp.popcorn_palace.id.Uuids;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.UUID;
+
+//user ids stay strings in the API but are stored in a native uuid column (16 bytes, indexable)
+@Converter
+public class UserIdConverter implements AttributeConverter<String, UUID> {
+
+    @Override
+    public UUID convertToDatabaseColumn(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        UUID uuid = Uuids.parse(userId);
+        if (uuid == null) {
+            throw new IllegalArgumentException("Invalid UUID format for userId: " + userId);
+        }
+        return uuid;
+    }
+
+    @Override
+    public String convertToEntityAttribute(UUID userId) {
+        return userId == null ? null : userId.toString();
+    }
+}
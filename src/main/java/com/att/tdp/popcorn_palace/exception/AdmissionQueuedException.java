@@ -0,0 +1,24 @@
+package com.att.tdp.popcorn_palace.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.UUID;
+
+//the request was put in the waiting room of a busy showtime, the client polls its token and retries with it
+@Getter
+@ResponseStatus(HttpStatus.ACCEPTED)
+public class AdmissionQueuedException extends RuntimeException {
+
+    private final UUID token;
+    private final Long showtimeId;
+    private final long position;
+
+    public AdmissionQueuedException(UUID token, Long showtimeId, long position) {
+        super("Showtime ID " + showtimeId + " is busy, waiting at position " + position);
+        this.token = token;
+        this.showtimeId = showtimeId;
+        this.position = position;
+    }
+}
@@ -1,7 +1,10 @@
 package com.att.tdp.popcorn_palace.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.http.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
@@ -10,9 +13,26 @@ import java.time.LocalDateTime;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final MeterRegistry meterRegistry;
+    private final Counter validationErrors;
+    private final Counter notFound;
+    private final Counter conflicts;
+    private final Counter tooManyRequests;
+    //the generic handler sees any exception type, its counters are registered once per type
+    private final Map<Class<?>, Counter> unexpected = new ConcurrentHashMap<>();
+
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.validationErrors = counter(HttpStatus.BAD_REQUEST, MethodArgumentNotValidException.class);
+        this.notFound = counter(HttpStatus.NOT_FOUND, ResourceNotFoundException.class);
+        this.conflicts = counter(HttpStatus.CONFLICT, DataConflictException.class);
+        this.tooManyRequests = counter(HttpStatus.TOO_MANY_REQUESTS, TooManyRequestsException.class);
+    }
+
     // 400 (Validation Errors)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidationErrors(MethodArgumentNotValidException ex) {
+        validationErrors.increment();
         Map<String, Object> errors = new HashMap<>();
         ex.getBindingResult().getFieldErrors().forEach((FieldError error) -> errors.put(error.getField(), error.getDefaultMessage()));
 
@@ -23,6 +43,7 @@ public class GlobalExceptionHandler {
     // 404 (Resource Not Found)
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<Map<String, Object>> handleResourceNotFound(ResourceNotFoundException ex) {
+        notFound.increment();
         Map<String, Object> response = Map.of("timestamp", LocalDateTime.now(), "status", HttpStatus.NOT_FOUND.value(), "error", "Resource not found", "message", ex.getMessage());
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
@@ -30,14 +51,41 @@ public class GlobalExceptionHandler {
     // 409 (Duplicate or Conflict)
     @ExceptionHandler(DataConflictException.class)
     public ResponseEntity<Map<String, Object>> handleDataConflictException(DataConflictException ex) {
+        conflicts.increment();
         Map<String, Object> response = Map.of("timestamp", LocalDateTime.now(), "status", HttpStatus.CONFLICT.value(), "error", "Conflict", "message", ex.getMessage());
         return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
     }
 
+    // 202 (Queued in the waiting room of a busy showtime)
+    @ExceptionHandler(AdmissionQueuedException.class)
+    public ResponseEntity<Map<String, Object>> handleAdmissionQueued(AdmissionQueuedException ex) {
+        Map<String, Object> response = Map.of("timestamp", LocalDateTime.now(), "status", HttpStatus.ACCEPTED.value(), "message", ex.getMessage(),
+                "token", ex.getToken(), "showtimeId", ex.getShowtimeId(), "position", ex.getPosition());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+    }
+
+    // 429 (Waiting room is full)
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, Object>> handleTooManyRequests(TooManyRequestsException ex) {
+        tooManyRequests.increment();
+        Map<String, Object> response = Map.of("timestamp", LocalDateTime.now(), "status", HttpStatus.TOO_MANY_REQUESTS.value(), "error", "Too Many Requests", "message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "5").body(response);
+    }
+
     // 500 (Unexpected Issues)
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(Exception ex) {
+        unexpected.computeIfAbsent(ex.getClass(), type -> counter(HttpStatus.INTERNAL_SERVER_ERROR, type)).increment();
         Map<String, Object> response = Map.of("timestamp", LocalDateTime.now(), "status", HttpStatus.INTERNAL_SERVER_ERROR.value(), "error", "Internal Server Error", "message", "An unexpected error occurred.");
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
-}
+
+    //one counter per status and exception type, the message never becomes a tag
+    private Counter counter(HttpStatus status, Class<?> exception) {
+        return Counter.builder("popcorn.http.errors")
+                .description("Requests answered by the exception handler")
+                .tag("status", String.valueOf(status.value()))
+                .tag("exception", exception.getSimpleName())
+                .register(meterRegistry);
+    }
+}
\ No newline at end of file
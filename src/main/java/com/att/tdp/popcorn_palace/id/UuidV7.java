@@ -0,0 +1,55 @@
+package com.att.tdp.popcorn_palace.id;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+//Time ordered UUIDs (RFC 9562 version 7): 48 bit unix millis, 12 bit counter, 62 random bits.
+//Ids of one node are strictly increasing, so inserts append to the right edge of the primary key index
+//instead of landing on random pages. They share the uuid column with the existing random (v4) ids.
+public final class UuidV7 {
+
+    private static final UuidV7 INSTANCE = new UuidV7(System::currentTimeMillis);
+
+    //booking ids are enough to read or cancel a booking, so the random part stays unpredictable.
+    //one shared generator, a per thread one would be seeded again for every virtual thread
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final LongSupplier millis;
+    //(unix millis << 12) | counter of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    UuidV7(LongSupplier millis) {
+        this.millis = millis;
+    }
+
+    public static UUID next() {
+        return INSTANCE.generate();
+    }
+
+    //millis part of a v7 id
+    public static long timestamp(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    UUID generate() {
+        long state = nextState();
+        long mostSignificant = (state >>> 12) << 16 | 0x7000L | (state & 0xFFFL);
+        long leastSignificant = RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    //within one millisecond the counter goes up, when it runs over the id borrows the next millisecond.
+    //a clock that steps back keeps counting from the last id
+    private long nextState() {
+        long now = millis.getAsLong() << 12;
+        while (true) {
+            long previous = last.get();
+            long next = now > previous ? now : previous + 1;
+            if (last.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.att.tdp.popcorn_palace.id;
+
+import java.util.UUID;
+
+//UUID text parsing without exceptions, for values that come straight from requests.
+//Only the canonical 8-4-4-4-12 form is accepted, the same text postgres stores in a uuid column.
+public final class Uuids {
+
+    private Uuids() {
+    }
+
+    public static boolean isValid(CharSequence text) {
+        if (text == null || text.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = text.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (hexValue(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //the uuid, or null if the text is not one
+    public static UUID parse(CharSequence text) {
+        if (!isValid(text)) {
+            return null;
+        }
+        long mostSignificant = hex(text, 0, 8) << 32 | hex(text, 9, 13) << 16 | hex(text, 14, 18);
+        long leastSignificant = hex(text, 19, 23) << 48 | hex(text, 24, 36);
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    private static long hex(CharSequence text, int from, int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            value = value << 4 | hexValue(text.charAt(i));
+        }
+        return value;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,113 @@
+package com.att.tdp.popcorn_palace.inventory;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Occupancy of a single showtime, one bit per seat.
+//Seats are split into fixed pages so a showtime only pays for the seat range it actually uses.
+final class SeatBitmap {
+
+    static final int SEATS_PER_PAGE = 512;
+    private static final int PAGE_SHIFT = 9;
+    private static final int WORDS_PER_PAGE = SEATS_PER_PAGE / Long.SIZE;
+
+    private final ConcurrentMap<Integer, AtomicLongArray> pages = new ConcurrentHashMap<>();
+    //tells apart bitmaps of the same showtime loaded at different times
+    private final long generation;
+    //bumped on every change, together with the generation it identifies a state of the seat map
+    private final AtomicLong version = new AtomicLong();
+    private volatile SeatMap snapshot;
+
+    SeatBitmap(long generation) {
+        this.generation = generation;
+    }
+
+    //claim a free seat with a compare-and-set on its word, false if someone else holds it
+    boolean claim(int seatNumber) {
+        AtomicLongArray page = page(seatNumber);
+        int word = wordIndex(seatNumber);
+        long mask = mask(seatNumber);
+        long current;
+        do {
+            current = page.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(word, current, current | mask));
+        version.incrementAndGet();
+        return true;
+    }
+
+    //hand a seat back, true if it was taken before
+    boolean release(int seatNumber) {
+        AtomicLongArray page = pages.get(seatNumber >>> PAGE_SHIFT);
+        if (page == null) {
+            return false;
+        }
+        int word = wordIndex(seatNumber);
+        long mask = mask(seatNumber);
+        long current;
+        do {
+            current = page.get(word);
+            if ((current & mask) == 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(word, current, current & ~mask));
+        version.incrementAndGet();
+        return true;
+    }
+
+    boolean isTaken(int seatNumber) {
+        AtomicLongArray page = pages.get(seatNumber >>> PAGE_SHIFT);
+        return page != null && (page.get(wordIndex(seatNumber)) & mask(seatNumber)) != 0;
+    }
+
+    //taken seats in ascending order, rebuilt only when the bitmap changed since the last call
+    SeatMap snapshot() {
+        long before = version.get();
+        SeatMap cached = snapshot;
+        if (cached != null && cached.version() == before) {
+            return cached;
+        }
+        int[] taken = new int[64];
+        int count = 0;
+        Integer[] indexes = pages.keySet().toArray(new Integer[0]);
+        Arrays.sort(indexes);
+        for (Integer index : indexes) {
+            AtomicLongArray page = pages.get(index);
+            for (int word = 0; word < WORDS_PER_PAGE; word++) {
+                long bits = page.get(word);
+                while (bits != 0) {
+                    if (count == taken.length) {
+                        taken = Arrays.copyOf(taken, count * 2);
+                    }
+                    taken[count++] = (index << PAGE_SHIFT) + (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                }
+            }
+        }
+        SeatMap seatMap = new SeatMap(generation, before, Arrays.copyOf(taken, count));
+        //a claim during the scan may or may not be in it, only a stable read is cached
+        if (version.get() == before) {
+            snapshot = seatMap;
+        }
+        return seatMap;
+    }
+
+    private AtomicLongArray page(int seatNumber) {
+        Integer index = seatNumber >>> PAGE_SHIFT;
+        AtomicLongArray page = pages.get(index);
+        return page != null ? page : pages.computeIfAbsent(index, i -> new AtomicLongArray(WORDS_PER_PAGE));
+    }
+
+    private static int wordIndex(int seatNumber) {
+        return (seatNumber & (SEATS_PER_PAGE - 1)) >>> 6;
+    }
+
+    private static long mask(int seatNumber) {
+        return 1L << (seatNumber & 63);
+    }
+}
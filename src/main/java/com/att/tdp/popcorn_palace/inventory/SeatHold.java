@@ -0,0 +1,8 @@
+package com.att.tdp.popcorn_palace.inventory;
+
+import java.time.Instant;
+import java.util.UUID;
+
+//A seat claimed in the inventory for a limited time, until it is confirmed as a booking or released
+public record SeatHold(UUID holdId, Long showtimeId, int seatNumber, String userId, Instant expiresAt) {
+}
@@ -0,0 +1,177 @@
+package com.att.tdp.popcorn_palace.inventory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//Temporary seat holds. A held seat is claimed in the SeatInventory, so bookTicket sees it as taken,
+//and is released by the timing wheel when the hold expires.
+@Slf4j
+@Component
+public class SeatHolds {
+
+    static final long TICK_MS = 100;
+
+    private final SeatInventory seatInventory;
+    private final Clock clock;
+    private final TimingWheel wheel;
+    private final ConcurrentMap<UUID, Entry> holds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<SeatKey, Entry> holdsBySeat = new ConcurrentHashMap<>();
+    private final Timer expiryLag;
+    private final Counter expiredHolds;
+    private final ScheduledExecutorService ticker;
+
+    @Autowired
+    public SeatHolds(SeatInventory seatInventory, MeterRegistry meterRegistry) {
+        this(seatInventory, meterRegistry, Clock.systemUTC(), true);
+    }
+
+    SeatHolds(SeatInventory seatInventory, MeterRegistry meterRegistry, Clock clock, boolean startTicker) {
+        this.seatInventory = seatInventory;
+        this.clock = clock;
+        this.wheel = new TimingWheel(TICK_MS, clock.millis());
+        Gauge.builder("popcorn.seat.holds.active", holds, ConcurrentMap::size)
+                .description("Seat holds that are neither confirmed, released nor expired")
+                .register(meterRegistry);
+        this.expiryLag = Timer.builder("popcorn.seat.holds.expiry.lag")
+                .description("Delay between the deadline of a hold and the release of its seat")
+                .register(meterRegistry);
+        this.expiredHolds = Counter.builder("popcorn.seat.holds.expired").register(meterRegistry);
+        if (startTicker) {
+            ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "seat-hold-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleAtFixedRate(this::tick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+        } else {
+            ticker = null;
+        }
+    }
+
+    //claim the seat and hold it for ttl, empty if the seat is already taken
+    public Optional<SeatHold> hold(Long showtimeId, int seatNumber, String userId, Duration ttl) {
+        if (!seatInventory.claim(showtimeId, seatNumber)) {
+            return Optional.empty();
+        }
+        Instant expiresAt = clock.instant().plus(ttl);
+        Entry entry = new Entry(new SeatHold(UUID.randomUUID(), showtimeId, seatNumber, userId, expiresAt));
+        holds.put(entry.hold.holdId(), entry);
+        holdsBySeat.put(new SeatKey(showtimeId, seatNumber), entry);
+        entry.timeout = wheel.schedule(expiresAt.toEpochMilli(), () -> expire(entry));
+        return Optional.of(entry.hold);
+    }
+
+    //remove a live hold, its seat stays claimed and now belongs to the caller
+    public Optional<SeatHold> take(UUID holdId) {
+        Entry entry = holds.remove(holdId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        holdsBySeat.remove(new SeatKey(entry.hold.showtimeId(), entry.hold.seatNumber()), entry);
+        cancelTimeout(entry);
+        if (isDue(entry)) {
+            //past its deadline but the wheel has not got to it yet
+            release(entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.hold);
+    }
+
+    //drop a hold and free its seat, false if it does not exist anymore
+    public boolean release(UUID holdId) {
+        Entry entry = holds.remove(holdId);
+        if (entry == null) {
+            return false;
+        }
+        holdsBySeat.remove(new SeatKey(entry.hold.showtimeId(), entry.hold.seatNumber()), entry);
+        cancelTimeout(entry);
+        seatInventory.release(entry.hold.showtimeId(), entry.hold.seatNumber());
+        return true;
+    }
+
+    //expire the hold on this seat right away if its deadline passed, so the seat is free without waiting for the next tick
+    public boolean expireIfDue(Long showtimeId, int seatNumber) {
+        Entry entry = holdsBySeat.get(new SeatKey(showtimeId, seatNumber));
+        if (entry == null || !isDue(entry)) {
+            return false;
+        }
+        cancelTimeout(entry);
+        return expire(entry);
+    }
+
+    public int activeHolds() {
+        return holds.size();
+    }
+
+    void tick() {
+        try {
+            wheel.advance(clock.millis());
+        } catch (RuntimeException e) {
+            log.error("Seat hold expiry failed", e);
+        }
+    }
+
+    private boolean expire(Entry entry) {
+        if (!holds.remove(entry.hold.holdId(), entry)) {
+            return false;
+        }
+        holdsBySeat.remove(new SeatKey(entry.hold.showtimeId(), entry.hold.seatNumber()), entry);
+        release(entry);
+        expiredHolds.increment();
+        expiryLag.record(Math.max(0, clock.millis() - entry.hold.expiresAt().toEpochMilli()), TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private void release(Entry entry) {
+        seatInventory.release(entry.hold.showtimeId(), entry.hold.seatNumber());
+    }
+
+    //the timeout is set right after the hold is published, a racing expiry may see it unset and the wheel then finds nothing to do
+    private void cancelTimeout(Entry entry) {
+        TimingWheel.Timeout timeout = entry.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private boolean isDue(Entry entry) {
+        return !clock.instant().isBefore(entry.hold.expiresAt());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    private record SeatKey(Long showtimeId, int seatNumber) {
+    }
+
+    private static final class Entry {
+
+        private final SeatHold hold;
+        private volatile TimingWheel.Timeout timeout;
+
+        private Entry(SeatHold hold) {
+            this.hold = hold;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.att.tdp.popcorn_palace.inventory;
+
+import com.att.tdp.popcorn_palace.concurrent.AfterCommit;
+import com.att.tdp.popcorn_palace.concurrent.LoadLocks;
+import com.att.tdp.popcorn_palace.repository.BookingRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//In-memory seat occupancy for every showtime that is being booked.
+//The bitmap decides who wins a seat, the unique key on bookings(showtime_id, seat_number) stays as the last guard.
+//Bitmaps of showtimes that have ended are evicted every few minutes, so the heap holds the open schedule and not its history.
+@Slf4j
+@Component
+public class SeatInventory {
+
+    private static final int EVICT_EVERY_MINUTES = 5;
+    private static final int EVICT_CHUNK_SIZE = 1000;
+
+    private final BookingRepository bookingRepository;
+    private final ConcurrentMap<Long, SeatBitmap> showtimes = new ConcurrentHashMap<>();
+    private final LoadLocks loadLocks = new LoadLocks(64);
+    //starts at the boot time so seat map versions of a previous run are never reused
+    private final AtomicLong generations = new AtomicLong(System.currentTimeMillis());
+    private final ScheduledExecutorService evictor;
+
+    public SeatInventory(BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-evict");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictEndedQuietly, EVICT_EVERY_MINUTES, EVICT_EVERY_MINUTES, TimeUnit.MINUTES);
+    }
+
+    //claim a seat, false if it is already taken
+    public boolean claim(Long showtimeId, int seatNumber) {
+        return bitmap(showtimeId).claim(seatNumber);
+    }
+
+    //claim all seats or none of them, returns the seats that were already taken
+    public List<Integer> claimAll(Long showtimeId, Collection<Integer> seatNumbers) {
+        SeatBitmap bitmap = bitmap(showtimeId);
+        List<Integer> claimed = new ArrayList<>(seatNumbers.size());
+        List<Integer> taken = new ArrayList<>();
+        for (Integer seatNumber : seatNumbers) {
+            if (bitmap.claim(seatNumber)) {
+                claimed.add(seatNumber);
+            } else {
+                taken.add(seatNumber);
+            }
+        }
+        if (!taken.isEmpty()) {
+            claimed.forEach(bitmap::release);
+        }
+        return taken;
+    }
+
+    //hand a claimed seat back
+    public void release(Long showtimeId, int seatNumber) {
+        SeatBitmap bitmap = showtimes.get(showtimeId);
+        if (bitmap != null) {
+            bitmap.release(seatNumber);
+        }
+    }
+
+    public boolean isTaken(Long showtimeId, int seatNumber) {
+        return bitmap(showtimeId).isTaken(seatNumber);
+    }
+
+    //current occupancy of a showtime, served from memory once the showtime is loaded
+    public SeatMap seatMap(Long showtimeId) {
+        return bitmap(showtimeId).snapshot();
+    }
+
+    public boolean isLoaded(Long showtimeId) {
+        return showtimes.containsKey(showtimeId);
+    }
+
+    //release the seat again if the current transaction does not commit
+    public void releaseOnRollback(Long showtimeId, int seatNumber) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    release(showtimeId, seatNumber);
+                }
+            }
+        });
+    }
+
+    //free the seat once the current transaction commits (or right away outside of one)
+    public void releaseAfterCommit(Long showtimeId, int seatNumber) {
+        AfterCommit.run(() -> release(showtimeId, seatNumber));
+    }
+
+    //drop the state of a showtime, it is loaded again on next use
+    public void forget(Long showtimeId) {
+        loadLocks.remove(showtimes, showtimeId);
+    }
+
+    //drop the state of a showtime once the current transaction commits (or right away outside of one)
+    public void forgetAfterCommit(Long showtimeId) {
+        AfterCommit.run(() -> forget(showtimeId));
+    }
+
+    //rebuild the bitmaps of all upcoming showtimes from the bookings table
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Object[]> seats = bookingRepository.findSeatsOfShowtimesStartingAfter(LocalDateTime.now());
+        ConcurrentMap<Long, SeatBitmap> loaded = new ConcurrentHashMap<>();
+        for (Object[] seat : seats) {
+            loaded.computeIfAbsent((Long) seat[0], id -> new SeatBitmap(generations.incrementAndGet())).claim((Integer) seat[1]);
+        }
+        //showtimes already loaded on demand are at least as fresh as this snapshot
+        loaded.forEach(showtimes::putIfAbsent);
+        log.info("Seat inventory rebuilt with {} booked seats across {} showtimes", seats.size(), loaded.size());
+    }
+
+    //drop the bitmaps of showtimes that ended before now, a late request for one of them loads it again
+    public int evictEnded(LocalDateTime now) {
+        List<Long> loaded = new ArrayList<>(showtimes.keySet());
+        int evicted = 0;
+        for (int from = 0; from < loaded.size(); from += EVICT_CHUNK_SIZE) {
+            List<Long> chunk = loaded.subList(from, Math.min(from + EVICT_CHUNK_SIZE, loaded.size()));
+            for (Long showtimeId : bookingRepository.findShowtimeIdsEndedBefore(chunk, now)) {
+                forget(showtimeId);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private void evictEndedQuietly() {
+        try {
+            int evicted = evictEnded(LocalDateTime.now());
+            log.debug("Evicted the seat inventory of {} ended showtimes", evicted);
+        } catch (RuntimeException e) {
+            log.warn("Evicting the seat inventory of ended showtimes failed", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        evictor.shutdownNow();
+    }
+
+    //showtimes that were not part of the startup rebuild are loaded on first use
+    private SeatBitmap bitmap(Long showtimeId) {
+        return loadLocks.computeIfAbsent(showtimes, showtimeId, this::load);
+    }
+
+    private SeatBitmap load(Long showtimeId) {
+        SeatBitmap bitmap = new SeatBitmap(generations.incrementAndGet());
+        for (Integer seatNumber : bookingRepository.findSeatNumbersByShowtimeId(showtimeId)) {
+            bitmap.claim(seatNumber);
+        }
+        return bitmap;
+    }
+}
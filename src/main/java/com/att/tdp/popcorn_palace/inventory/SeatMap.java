@@ -0,0 +1,9 @@
+package com.att.tdp.popcorn_palace.inventory;
+
+//Immutable occupancy snapshot of one showtime, takenSeats is sorted and must not be modified
+public record SeatMap(long generation, long version, int[] takenSeats) {
+
+    public String etag() {
+        return "\"" + generation + "-" + version + "\"";
+    }
+}
@@ -0,0 +1,188 @@
+package com.att.tdp.popcorn_palace.inventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Hierarchical hashed timing wheel: insert and cancel are O(1) and a single ticker drives all expiries through advance().
+//Level 0 has tickMs resolution, every higher level has 64x the tick of the one below, the last level also keeps the overflow.
+//A timeout fires on the first advance() at or after the end of the tick its deadline falls into, never before the deadline.
+final class TimingWheel {
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int LEVELS = 3;
+
+    private final long[] ticks = new long[LEVELS];
+    private final Bucket[][] buckets = new Bucket[LEVELS][WHEEL_SIZE];
+    private final ReentrantLock lock = new ReentrantLock();
+    //start of the first level 0 tick that has not expired yet
+    private long currentTime;
+    private int size;
+
+    TimingWheel(long tickMs, long startTime) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tickMs must be positive");
+        }
+        ticks[0] = tickMs;
+        for (int level = 1; level < LEVELS; level++) {
+            ticks[level] = ticks[level - 1] * WHEEL_SIZE;
+        }
+        for (Bucket[] level : buckets) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                level[i] = new Bucket();
+            }
+        }
+        currentTime = startTime - Math.floorMod(startTime, tickMs);
+    }
+
+    Timeout schedule(long deadline, Runnable task) {
+        Timeout timeout = new Timeout(deadline, task);
+        lock.lock();
+        try {
+            place(timeout);
+            size++;
+        } finally {
+            lock.unlock();
+        }
+        return timeout;
+    }
+
+    //move the wheel up to now and run the tasks of every tick that has fully passed
+    int advance(long now) {
+        List<Timeout> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            while (now >= currentTime + ticks[0]) {
+                //entering a new interval of a higher level spreads its bucket over the levels below
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if (currentTime % ticks[level] == 0) {
+                        Timeout timeout = bucket(level, currentTime / ticks[level]).drain();
+                        while (timeout != null) {
+                            Timeout next = timeout.next;
+                            timeout.next = null;
+                            place(timeout);
+                            timeout = next;
+                        }
+                    }
+                }
+                Timeout timeout = bucket(0, currentTime / ticks[0]).drain();
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    timeout.next = null;
+                    timeout.bucket = null;
+                    expired.add(timeout);
+                    size--;
+                    timeout = next;
+                }
+                currentTime += ticks[0];
+            }
+        } finally {
+            lock.unlock();
+        }
+        //tasks run outside of the lock so they may schedule or cancel freely
+        for (Timeout timeout : expired) {
+            timeout.task.run();
+        }
+        return expired.size();
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void place(Timeout timeout) {
+        long deadline = Math.max(timeout.deadline, currentTime);
+        for (int level = 0; level < LEVELS - 1; level++) {
+            if (deadline / ticks[level] - currentTime / ticks[level] < WHEEL_SIZE) {
+                bucket(level, deadline / ticks[level]).add(timeout);
+                return;
+            }
+        }
+        //beyond the span of the wheel: park in the farthest top level slot, it is placed again when that slot comes up
+        long top = ticks[LEVELS - 1];
+        bucket(LEVELS - 1, Math.min(deadline / top, currentTime / top + WHEEL_SIZE - 1)).add(timeout);
+    }
+
+    private Bucket bucket(int level, long slot) {
+        return buckets[level][(int) (slot & (WHEEL_SIZE - 1))];
+    }
+
+    final class Timeout {
+
+        private final long deadline;
+        private final Runnable task;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        long deadline() {
+            return deadline;
+        }
+
+        //false if the timeout already fired or was cancelled before
+        boolean cancel() {
+            lock.lock();
+            try {
+                if (bucket == null) {
+                    return false;
+                }
+                bucket.remove(this);
+                size--;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    //intrusive doubly linked list, guarded by the wheel lock
+    private static final class Bucket {
+
+        private Timeout head;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        //detach the whole list, the timeouts stay linked through next
+        Timeout drain() {
+            Timeout first = head;
+            head = null;
+            for (Timeout timeout = first; timeout != null; timeout = timeout.next) {
+                timeout.bucket = null;
+                timeout.prev = null;
+            }
+            return first;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.att.tdp.popcorn_palace.journal;
+
+import com.att.tdp.popcorn_palace.entity.Booking;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+//Append-only booking journal on a memory-mapped file.
+//Header: magic, epoch, drained offset (everything before it is in the bookings table).
+//Record: payload length, epoch, crc32 of epoch + payload, payload (booking id, showtime id, seat number, user id).
+//Appends are acknowledged once forced to disk, appends that arrive while a force is running share the next one (group commit).
+//When everything is drained the journal starts over at the first record with a new epoch, so old records are never read again.
+//A failed force cuts off the records it did not acknowledge and the journal takes no more appends until it is reopened.
+@Slf4j
+final class BookingJournal implements Closeable {
+
+    private static final int MAGIC = 0x504A524E;
+    static final int HEADER_SIZE = 64;
+    private static final int EPOCH_OFFSET = 4;
+    private static final int DRAINED_OFFSET = 8;
+    private static final int RECORD_HEADER_SIZE = 12;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+    private final Thread flusher;
+    //forces a range of the mapping to disk, a seam so the tests can make it fail
+    private final Disk disk;
+    private List<CompletableFuture<Void>> waiters = new ArrayList<>();
+    private int epoch;
+    private int tail;
+    private int forced;
+    private int drained;
+    private boolean failed;
+    private volatile boolean closed;
+
+    private BookingJournal(FileChannel channel, MappedByteBuffer buffer, int capacity, Disk disk) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.disk = disk != null ? disk : buffer::force;
+        this.flusher = new Thread(this::flushLoop, "booking-journal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    static BookingJournal open(Path path, int capacity) throws IOException {
+        return open(path, capacity, null);
+    }
+
+    static BookingJournal open(Path path, int capacity, Disk disk) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int size = (int) Math.max(capacity, Math.min(channel.size(), Integer.MAX_VALUE));
+        BookingJournal journal = new BookingJournal(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), size, disk);
+        journal.recover();
+        journal.flusher.start();
+        return journal;
+    }
+
+    //find the end of the valid records after the drained offset, a torn or foreign record ends the journal
+    private void recover() {
+        if (buffer.getInt(0) != MAGIC) {
+            epoch = 1;
+            drained = HEADER_SIZE;
+            writeHeader();
+        } else {
+            epoch = buffer.getInt(EPOCH_OFFSET);
+            drained = (int) buffer.getLong(DRAINED_OFFSET);
+        }
+        int position = drained;
+        while (recordEnd(position) > 0) {
+            position = recordEnd(position);
+        }
+        tail = position;
+        forced = position;
+        log.info("Booking journal opened with {} undrained bytes", tail - drained);
+    }
+
+    //append the bookings and wait until they are on disk, false if the journal has no room left for them
+    //or stopped taking appends after a failed force
+    boolean append(List<Booking> bookings) {
+        List<byte[]> payloads = bookings.stream().map(BookingJournal::encode).toList();
+        int length = payloads.stream().mapToInt(payload -> RECORD_HEADER_SIZE + payload.length).sum();
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Booking journal is closed");
+            }
+            if (failed || tail + length > capacity) {
+                return false;
+            }
+            for (byte[] payload : payloads) {
+                tail = write(tail, payload);
+            }
+            waiters.add(durable);
+            flushRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+        durable.join();
+        return true;
+    }
+
+    //records between the drained offset and what is already on disk, in append order
+    List<Entry> readDurable() {
+        int from;
+        int to;
+        lock.lock();
+        try {
+            from = drained;
+            to = forced;
+        } finally {
+            lock.unlock();
+        }
+        List<Entry> entries = new ArrayList<>();
+        int position = from;
+        while (position < to) {
+            int end = recordEnd(position);
+            if (end < 0) {
+                break;
+            }
+            entries.add(new Entry(decode(position), end));
+            position = end;
+        }
+        return entries;
+    }
+
+    //everything before offset is in the database, once all is drained the file starts over
+    void markDrained(int offset) {
+        lock.lock();
+        try {
+            drained = offset;
+            if (drained == tail) {
+                epoch++;
+                drained = HEADER_SIZE;
+                tail = HEADER_SIZE;
+                forced = HEADER_SIZE;
+            }
+            writeHeader();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int undrainedBytes() {
+        lock.lock();
+        try {
+            return tail - drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<CompletableFuture<Void>> batch;
+            int from;
+            int to;
+            lock.lock();
+            try {
+                while (waiters.isEmpty() && !closed) {
+                    flushRequested.awaitUninterruptibly();
+                }
+                if (waiters.isEmpty()) {
+                    return;
+                }
+                batch = waiters;
+                waiters = new ArrayList<>();
+                from = forced;
+                to = tail;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                disk.force(from, to - from);
+                lock.lock();
+                try {
+                    forced = Math.max(forced, to);
+                } finally {
+                    lock.unlock();
+                }
+                batch.forEach(waiter -> waiter.complete(null));
+            } catch (UncheckedIOException e) {
+                log.error("Booking journal flush failed, no more bookings are journaled until it is reopened", e);
+                List<CompletableFuture<Void>> queued = discardFrom(from);
+                batch.forEach(waiter -> waiter.completeExceptionally(e));
+                queued.forEach(waiter -> waiter.completeExceptionally(e));
+            }
+        }
+    }
+
+    //the records from offset on were never acknowledged, their callers roll them back and free the seats.
+    //A zero length at offset ends the journal there, so neither a later force nor the scan on reopen makes them durable.
+    //Returns the waiters of the appends queued behind the failed force, they are cut off as well
+    private List<CompletableFuture<Void>> discardFrom(int offset) {
+        lock.lock();
+        try {
+            failed = true;
+            buffer.putInt(offset, 0);
+            tail = offset;
+            List<CompletableFuture<Void>> queued = waiters;
+            waiters = new ArrayList<>();
+            try {
+                disk.force(offset, 4);
+            } catch (UncheckedIOException e) {
+                log.error("Booking journal could not persist the end of its acknowledged records", e);
+            }
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int write(int position, byte[] payload) {
+        buffer.putInt(position, payload.length);
+        buffer.putInt(position + 4, epoch);
+        buffer.putInt(position + 8, checksum(epoch, payload));
+        buffer.put(position + RECORD_HEADER_SIZE, payload);
+        return position + RECORD_HEADER_SIZE + payload.length;
+    }
+
+    //end of the record at position, -1 if there is no valid record of the current epoch there
+    private int recordEnd(int position) {
+        if (position + RECORD_HEADER_SIZE > capacity) {
+            return -1;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + RECORD_HEADER_SIZE + length > capacity || buffer.getInt(position + 4) != epoch) {
+            return -1;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(position + RECORD_HEADER_SIZE, payload);
+        if (buffer.getInt(position + 8) != checksum(epoch, payload)) {
+            return -1;
+        }
+        return position + RECORD_HEADER_SIZE + length;
+    }
+
+    private Booking decode(int position) {
+        byte[] payload = new byte[buffer.getInt(position)];
+        buffer.get(position + RECORD_HEADER_SIZE, payload);
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        UUID bookingId = new UUID(in.getLong(), in.getLong());
+        long showtimeId = in.getLong();
+        int seatNumber = in.getInt();
+        byte[] userId = new byte[in.getShort()];
+        in.get(userId);
+        return new Booking(bookingId, showtimeId, seatNumber, new String(userId, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] encode(Booking booking) {
+        byte[] userId = booking.getUserId().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(16 + 8 + 4 + 2 + userId.length)
+                .putLong(booking.getBookingId().getMostSignificantBits())
+                .putLong(booking.getBookingId().getLeastSignificantBits())
+                .putLong(booking.getShowtimeId())
+                .putInt(booking.getSeatNumber())
+                .putShort((short) userId.length)
+                .put(userId)
+                .array();
+    }
+
+    private static int checksum(int epoch, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(4).putInt(0, epoch));
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(EPOCH_OFFSET, epoch);
+        buffer.putLong(DRAINED_OFFSET, drained);
+        buffer.force(0, HEADER_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            flushRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    //a journal record and the offset right after it
+    record Entry(Booking booking, int end) {
+    }
+
+    interface Disk {
+        void force(int index, int length);
+    }
+}
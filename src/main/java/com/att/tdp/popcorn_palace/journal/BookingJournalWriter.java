@@ -0,0 +1,224 @@
+package com.att.tdp.popcorn_palace.journal;
+
+import com.att.tdp.popcorn_palace.config.BookingJournalProperties;
+import com.att.tdp.popcorn_palace.entity.Booking;
+import com.att.tdp.popcorn_palace.id.Uuids;
+import com.att.tdp.popcorn_palace.repository.UniqueKeys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Durability mode for bookings: a booking is acknowledged once it is in the journal on disk,
+//a background drain copies journaled bookings into the bookings table.
+//On startup the journal is replayed and reconciled by booking id, so a booking is neither lost nor inserted twice.
+//An acknowledged booking the table cannot take (its seat was booked elsewhere, its showtime deleted) is written to the
+//rejects file next to the journal and counted before its record is checkpointed, so it is never dropped silently.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "popcorn-palace.booking.journal", name = "enabled", havingValue = "true")
+public class BookingJournalWriter {
+
+    private static final String INSERT_BOOKING = """
+        INSERT INTO bookings (booking_id, showtime_id, seat_number, user_id)
+        VALUES (:bookingId, :showtimeId, :seatNumber, :userId)
+    """;
+
+    private static final String SEAT_TAKEN = "seat_taken";
+    private static final String SHOWTIME_DELETED = "showtime_deleted";
+
+    private final BookingJournal journal;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int drainBatchSize;
+    //journaled but not drained yet, so lookups by id still find them
+    private final ConcurrentMap<UUID, Booking> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Path rejects;
+    private final Map<String, Counter> rejected = new HashMap<>();
+    private final ScheduledExecutorService drainer;
+
+    public BookingJournalWriter(BookingJournalProperties properties, NamedParameterJdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) throws IOException {
+        this.journal = BookingJournal.open(properties.path(), Math.toIntExact(properties.size().toBytes()));
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        //never joins the caller's transaction, a chunk is checkpointed only once its own insert committed
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.drainBatchSize = properties.drainBatchSize();
+        this.rejects = properties.path().resolveSibling(properties.path().getFileName() + ".rejected");
+        for (String reason : List.of(SEAT_TAKEN, SHOWTIME_DELETED)) {
+            rejected.put(reason, Counter.builder("popcorn.booking.journal.rejected")
+                    .description("Journaled bookings that could not be inserted and went to the rejects file")
+                    .tag("reason", reason)
+                    .register(meterRegistry));
+        }
+
+        //replay whatever was acknowledged before the last shutdown or crash
+        journal.readDurable().forEach(entry -> pending.put(entry.booking().getBookingId(), entry.booking()));
+        drain();
+
+        this.drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-journal-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.drainInterval().toMillis();
+        drainer.scheduleWithFixedDelay(this::drainQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    //journal the bookings and wait until they are durable, false if the journal is full or failed
+    public boolean write(List<Booking> bookings) {
+        bookings.forEach(booking -> pending.put(booking.getBookingId(), booking));
+        boolean written = false;
+        try {
+            written = journal.append(bookings);
+            return written;
+        } finally {
+            if (!written) {
+                bookings.forEach(booking -> pending.remove(booking.getBookingId()));
+            }
+        }
+    }
+
+    public Optional<Booking> findPending(UUID bookingId) {
+        return Optional.ofNullable(pending.get(bookingId));
+    }
+
+    //copy everything durable into the bookings table, chunk by chunk, each chunk committed before it is checkpointed
+    public void drain() {
+        drainLock.lock();
+        try {
+            List<BookingJournal.Entry> entries = journal.readDurable();
+            for (int from = 0; from < entries.size(); from += drainBatchSize) {
+                List<BookingJournal.Entry> chunk = entries.subList(from, Math.min(from + drainBatchSize, entries.size()));
+                List<Booking> bookings = chunk.stream().map(BookingJournal.Entry::booking).toList();
+                insertMissing(bookings);
+                journal.markDrained(chunk.get(chunk.size() - 1).end());
+                bookings.forEach(booking -> pending.remove(booking.getBookingId()));
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    //reconcile against the table first, a crash after the insert but before the checkpoint replays the same bookings
+    private void insertMissing(List<Booking> bookings) {
+        try {
+            reject(transactionTemplate.execute(status -> insert(bookings)), SHOWTIME_DELETED);
+        } catch (DataIntegrityViolationException e) {
+            //a seat was booked outside of this instance meanwhile, keep every other booking of the chunk
+            for (Booking booking : bookings) {
+                try {
+                    reject(transactionTemplate.execute(status -> insert(List.of(booking))), SHOWTIME_DELETED);
+                } catch (DataIntegrityViolationException conflict) {
+                    if (!UniqueKeys.isViolation(conflict, UniqueKeys.BOOKING_SEAT)) {
+                        throw conflict;
+                    }
+                    reject(List.of(booking), SEAT_TAKEN);
+                }
+            }
+        }
+    }
+
+    //insert the bookings that are not in the table yet and whose showtime still exists, returns those whose showtime is gone.
+    //The showtime rows stay locked until the insert commits, so a cascade delete of one of them either waits for this insert
+    //and deletes its bookings too, or is committed first and its bookings are rejected here instead of being inserted without a showtime
+    private List<Booking> insert(List<Booking> bookings) {
+        Set<UUID> existing = existingIds(bookings);
+        Set<Long> showtimes = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM showtimes WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+                Map.of("ids", bookings.stream().map(Booking::getShowtimeId).distinct().toList()), Long.class));
+        List<Booking> missing = new ArrayList<>(bookings.size());
+        List<Booking> orphaned = new ArrayList<>();
+        for (Booking booking : bookings) {
+            if (existing.contains(booking.getBookingId())) {
+                continue;
+            }
+            (showtimes.contains(booking.getShowtimeId()) ? missing : orphaned).add(booking);
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_BOOKING, missing.stream().map(BookingJournalWriter::parameters).toArray(SqlParameterSource[]::new));
+        }
+        return orphaned;
+    }
+
+    //keep acknowledged bookings that cannot be inserted, synced to disk before the drain checkpoints them.
+    //If this fails the drain fails, and the bookings are tried again on the next run
+    private void reject(List<Booking> bookings, String reason) {
+        if (bookings == null || bookings.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (Booking booking : bookings) {
+            log.error("Journaled booking {} for showtime {} seat {} could not be inserted ({}), it is kept in {}",
+                    booking.getBookingId(), booking.getShowtimeId(), booking.getSeatNumber(), reason, rejects);
+            lines.append(booking.getBookingId()).append(',').append(booking.getShowtimeId()).append(',').append(booking.getSeatNumber())
+                    .append(',').append(booking.getUserId()).append(',').append(reason).append(',').append(Instant.now()).append('\n');
+        }
+        try {
+            Files.writeString(rejects, lines, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write rejected bookings to " + rejects, e);
+        }
+        rejected.get(reason).increment(bookings.size());
+    }
+
+    private Set<UUID> existingIds(List<Booking> bookings) {
+        List<UUID> ids = bookings.stream().map(Booking::getBookingId).toList();
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT booking_id FROM bookings WHERE booking_id IN (:ids)",
+                Map.of("ids", ids), UUID.class));
+    }
+
+    private static SqlParameterSource parameters(Booking booking) {
+        return new MapSqlParameterSource()
+                .addValue("bookingId", booking.getBookingId())
+                .addValue("showtimeId", booking.getShowtimeId())
+                .addValue("seatNumber", booking.getSeatNumber())
+                .addValue("userId", Uuids.parse(booking.getUserId()));
+    }
+
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.error("Draining the booking journal failed, retrying on the next run", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws IOException {
+        drainer.shutdown();
+        try {
+            drainer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainQuietly();
+        journal.close();
+    }
+}
@@ -1,9 +1,17 @@
 package com.att.tdp.popcorn_palace.repository;
 
 import com.att.tdp.popcorn_palace.entity.Booking;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,4 +20,36 @@ public interface BookingRepository extends JpaRepository<Booking, UUID> {
 
     boolean existsByShowtimeIdAndSeatNumber(Long showtimeId, int seatNumber);
 
+    // Booking history of a user, both run as a seek on idx_bookings_user_booking
+    List<Booking> findByUserIdOrderByBookingIdDesc(String userId, Limit limit);
+
+    List<Booking> findByUserIdAndBookingIdLessThanOrderByBookingIdDesc(String userId, UUID bookingId, Limit limit);
+
+    // Used to cascade showtime deletes, one statement per chunk of showtimes
+    @Modifying
+    @Query("DELETE FROM Booking b WHERE b.showtimeId IN :showtimeIds")
+    int deleteAllOfShowtimes(@Param("showtimeIds") Collection<Long> showtimeIds);
+
+    // Used to cancel a booking, 0 when a concurrent cancel deleted it first
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Booking b WHERE b.bookingId = :bookingId")
+    int deleteByBookingId(@Param("bookingId") UUID bookingId);
+
+    // Used to load the seat inventory of a single showtime
+    @Query("SELECT b.seatNumber FROM Booking b WHERE b.showtimeId = :showtimeId")
+    List<Integer> findSeatNumbersByShowtimeId(@Param("showtimeId") Long showtimeId);
+
+    // Used to rebuild the seat inventory on startup, rows are [showtimeId, seatNumber]
+    @Query("""
+        SELECT b.showtimeId, b.seatNumber
+        FROM Booking b
+        WHERE b.showtimeId IN (SELECT s.id FROM Showtime s WHERE s.startTime > :now)
+    """)
+    List<Object[]> findSeatsOfShowtimesStartingAfter(@Param("now") LocalDateTime now);
+
+    // Used to evict the seat inventory of showtimes that have already played
+    @Query("SELECT s.id FROM Showtime s WHERE s.id IN :showtimeIds AND s.endTime < :now")
+    List<Long> findShowtimeIdsEndedBefore(@Param("showtimeIds") Collection<Long> showtimeIds, @Param("now") LocalDateTime now);
+
 }
@@ -1,16 +1,37 @@
 package com.att.tdp.popcorn_palace.repository;
 
 import com.att.tdp.popcorn_palace.entity.Movie;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface MovieRepository extends JpaRepository<Movie, Long> {
+public interface MovieRepository extends JpaRepository<Movie, Long>, JpaSpecificationExecutor<Movie> {
 
     Optional<Movie> findByTitle(String title);
 
+    // Used by the bulk upsert, one query for a whole chunk of titles
+    List<Movie> findByTitleIn(Collection<String> titles);
+
     boolean existsById(Long id);  // Used for movie existence validation
 
+    // Used by the export, rows come from a forward-only cursor a few hundred at a time
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT m FROM Movie m ORDER BY m.id")
+    Stream<Movie> streamAll();
+
+    // Used by the schedule import, rows are [id, duration]
+    @Query("SELECT m.id, m.duration FROM Movie m")
+    List<Object[]> findDurations();
+
 }
@@ -0,0 +1,24 @@
+package com.att.tdp.popcorn_palace.repository;
+
+import com.att.tdp.popcorn_palace.entity.Movie;
+import org.springframework.data.jpa.domain.Specification;
+
+//Filters of the movie listing, each one is skipped when its value is null
+public final class MovieSpecifications {
+
+    private MovieSpecifications() {
+    }
+
+    public static Specification<Movie> ofGenre(String genre) {
+        return (root, query, cb) -> genre == null ? null : cb.equal(root.get("genre"), genre);
+    }
+
+    public static Specification<Movie> releasedIn(Integer releaseYear) {
+        return (root, query, cb) -> releaseYear == null ? null : cb.equal(root.get("releaseYear"), releaseYear);
+    }
+
+    //keyset cursor, movies with a larger id
+    public static Specification<Movie> after(Long id) {
+        return (root, query, cb) -> id == null ? null : cb.greaterThan(root.get("id"), id);
+    }
+}
@@ -1,17 +1,24 @@
 package com.att.tdp.popcorn_palace.repository;
 
 import com.att.tdp.popcorn_palace.entity.Showtime;
+import jakarta.persistence.QueryHint;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface ShowtimeRepository extends JpaRepository<Showtime, Long> {
+public interface ShowtimeRepository extends JpaRepository<Showtime, Long>, JpaSpecificationExecutor<Showtime> {
 
     @Query("""
         SELECT COUNT(s) > 0
@@ -41,4 +48,28 @@ public interface ShowtimeRepository extends JpaRepository<Showtime, Long> {
             @Param("startTime") LocalDateTime startTime,
             @Param("endTime") LocalDateTime endTime,
             @Param("showtimeId") Long showtimeId
-    );}
+    );
+
+    // Used to load the in-memory schedule of a theater, rows are [id, startTime, endTime]
+    @Query("SELECT s.id, s.startTime, s.endTime FROM Showtime s WHERE s.theater = :theater")
+    List<Object[]> findSlotsByTheater(@Param("theater") String theater);
+
+    // Used by the schedule import, rows are [theater, id, startTime, endTime]
+    @Query("""
+        SELECT s.theater, s.id, s.startTime, s.endTime
+        FROM Showtime s
+        WHERE s.theater IN :theaters AND s.startTime <= :to AND s.endTime >= :from
+    """)
+    List<Object[]> findSlotsOfTheatersBetween(@Param("theaters") Collection<String> theaters,
+                                              @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Used by the export, rows come from a forward-only cursor a few hundred at a time
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT s FROM Showtime s ORDER BY s.id")
+    Stream<Showtime> streamAll();
+
+    // Used to cascade movie deletes chunk by chunk
+    @Query("SELECT s.id FROM Showtime s WHERE s.movieId = :movieId ORDER BY s.id")
+    List<Long> findIdsByMovieId(@Param("movieId") Long movieId, Limit limit);
+}
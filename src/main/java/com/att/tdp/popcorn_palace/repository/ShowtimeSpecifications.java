@@ -0,0 +1,34 @@
+package com.att.tdp.popcorn_palace.repository;
+
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+//Filters of the showtime listing, each one is skipped when its value is null
+public final class ShowtimeSpecifications {
+
+    private ShowtimeSpecifications() {
+    }
+
+    public static Specification<Showtime> inTheater(String theater) {
+        return (root, query, cb) -> theater == null ? null : cb.equal(root.get("theater"), theater);
+    }
+
+    public static Specification<Showtime> ofMovie(Long movieId) {
+        return (root, query, cb) -> movieId == null ? null : cb.equal(root.get("movieId"), movieId);
+    }
+
+    //start time in [from, to)
+    public static Specification<Showtime> startingBetween(LocalDateTime from, LocalDateTime to) {
+        return Specification.<Showtime>where((root, query, cb) -> from == null ? null : cb.greaterThanOrEqualTo(root.get("startTime"), from))
+                .and((root, query, cb) -> to == null ? null : cb.lessThan(root.get("startTime"), to));
+    }
+
+    //keyset cursor, showtimes after (startTime, id) in listing order
+    public static Specification<Showtime> after(LocalDateTime startTime, Long id) {
+        return (root, query, cb) -> startTime == null ? null : cb.or(
+                cb.greaterThan(root.get("startTime"), startTime),
+                cb.and(cb.equal(root.get("startTime"), startTime), cb.greaterThan(root.get("id"), id)));
+    }
+}
@@ -0,0 +1,26 @@
+package com.att.tdp.popcorn_palace.repository;
+
+import java.util.Locale;
+
+//Names of the unique keys the services translate into a 409.
+//A failed write is only that conflict if it names the key, any other integrity violation (a foreign key, a not null column)
+//is a different error and has to surface as one. Postgres quotes the name in its message, H2 upper cases it in the index name.
+public final class UniqueKeys {
+
+    public static final String BOOKING_SEAT = "uk_bookings_showtime_seat";
+    public static final String MOVIE_TITLE = "uk_movies_title";
+
+    private UniqueKeys() {
+    }
+
+    //true if the write failed on the given unique key
+    public static boolean isViolation(Throwable error, String key) {
+        String name = key.toLowerCase(Locale.ROOT);
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().toLowerCase(Locale.ROOT).contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
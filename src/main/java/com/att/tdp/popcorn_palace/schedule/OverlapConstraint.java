@@ -0,0 +1,64 @@
+package com.att.tdp.popcorn_palace.schedule;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+//The showtimes_no_overlap exclusion constraint that schema-postgresql.sql puts on the showtimes table.
+//Other databases (H2 in the tests) do not have it, there the in-memory schedule stays the check.
+@Slf4j
+@Component
+public class OverlapConstraint {
+
+    static final String NAME = "showtimes_no_overlap";
+    //postgres exclusion_violation
+    static final String EXCLUSION_VIOLATION = "23P01";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean enforced;
+
+    public OverlapConstraint(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    //looked up once, on the first check
+    public boolean isEnforced() {
+        Boolean result = enforced;
+        if (result == null) {
+            result = lookup();
+            enforced = result;
+        }
+        return result;
+    }
+
+    //true if the write failed because it overlaps another showtime of the same theater
+    public static boolean isViolation(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && EXCLUSION_VIOLATION.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean lookup() {
+        try {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            Integer count = "PostgreSQL".equals(database)
+                    ? jdbcTemplate.queryForObject("SELECT count(*) FROM pg_constraint WHERE conname = ?", Integer.class, NAME)
+                    : Integer.valueOf(0);
+            if (count == null || count == 0) {
+                log.warn("Exclusion constraint {} is not in the {} database, overlaps are checked against the in-memory schedule", NAME, database);
+                return false;
+            }
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Could not look up exclusion constraint {}, overlaps are checked against the in-memory schedule", NAME, e);
+            return false;
+        }
+    }
+}
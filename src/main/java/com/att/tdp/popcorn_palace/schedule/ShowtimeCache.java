@@ -0,0 +1,69 @@
+package com.att.tdp.popcorn_palace.schedule;
+
+import com.att.tdp.popcorn_palace.concurrent.AfterCommit;
+import com.att.tdp.popcorn_palace.concurrent.LoadLocks;
+import com.att.tdp.popcorn_palace.config.CatalogProperties;
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+//Read-through cache of showtimes by id, used by the booking path and GET /showtimes/{id}.
+//Showtimes rarely change once published, updates and deletes evict their entry when they commit.
+//Concurrent misses of the same id wait for one load, and every caller gets its own copy of the cached showtime.
+@Component
+public class ShowtimeCache {
+
+    private final ShowtimeRepository showtimeRepository;
+    private final Cache<Long, Showtime> showtimes;
+    private final LoadLocks loadLocks = new LoadLocks(64);
+    private final Timer loads;
+
+    public ShowtimeCache(ShowtimeRepository showtimeRepository, CatalogProperties catalogProperties, MeterRegistry meterRegistry) {
+        this.showtimeRepository = showtimeRepository;
+        this.showtimes = Caffeine.newBuilder()
+                .maximumSize(catalogProperties.showtimeCacheSize())
+                .expireAfterWrite(catalogProperties.showtimeCacheTtl())
+                .recordStats()
+                .build();
+        this.loads = Timer.builder("popcorn.showtimes.cache.load")
+                .description("Time to load a showtime that was not cached")
+                .register(meterRegistry);
+        Gauge.builder("popcorn.showtimes.cache.hit.ratio", showtimes, cache -> cache.stats().hitRate())
+                .description("Share of showtime lookups served from the cache")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, showtimes, "showtimes");
+    }
+
+    //unknown ids are not cached, a showtime added later is found right away
+    public Optional<Showtime> get(Long showtimeId) {
+        //getIfPresent records the hit or miss, the load runs under a load lock and not inside Caffeine's compute
+        Showtime showtime = showtimes.getIfPresent(showtimeId);
+        if (showtime == null) {
+            showtime = loadLocks.computeIfAbsent(showtimes.asMap(), showtimeId, this::load);
+        }
+        return Optional.ofNullable(showtime).map(ShowtimeCache::copy);
+    }
+
+    //drop a changed or deleted showtime once the current transaction commits (or right away outside of one)
+    public void evictAfterCommit(Long showtimeId) {
+        AfterCommit.run(() -> loadLocks.remove(showtimes.asMap(), showtimeId));
+    }
+
+    private Showtime load(Long showtimeId) {
+        //copied so the cached showtime is never a managed entity
+        return loads.record(() -> showtimeRepository.findById(showtimeId).map(ShowtimeCache::copy).orElse(null));
+    }
+
+    private static Showtime copy(Showtime showtime) {
+        return new Showtime(showtime.getId(), showtime.getMovieId(), showtime.getPrice(), showtime.getTheater(),
+                showtime.getStartTime(), showtime.getEndTime());
+    }
+}
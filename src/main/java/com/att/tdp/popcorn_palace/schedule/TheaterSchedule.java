@@ -0,0 +1,111 @@
+package com.att.tdp.popcorn_palace.schedule;
+
+import com.att.tdp.popcorn_palace.concurrent.AfterCommit;
+import com.att.tdp.popcorn_palace.concurrent.LoadLocks;
+import com.att.tdp.popcorn_palace.config.CatalogProperties;
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//In-memory schedule of every theater, used for the showtime overlap checks instead of a query per check.
+//A theater is loaded from the showtimes table on its first check and follows every committed add, update and delete after that.
+@Slf4j
+@Component
+public class TheaterSchedule {
+
+    private final ShowtimeRepository showtimeRepository;
+    private final CatalogProperties.OverlapCheck overlapCheck;
+    private final OverlapConstraint overlapConstraint;
+    private final ConcurrentMap<String, TheaterTimeline> theaters = new ConcurrentHashMap<>();
+    private final LoadLocks loadLocks = new LoadLocks(64);
+    private final Counter mismatches;
+
+    public TheaterSchedule(ShowtimeRepository showtimeRepository, CatalogProperties catalogProperties,
+                           OverlapConstraint overlapConstraint, MeterRegistry meterRegistry) {
+        this.showtimeRepository = showtimeRepository;
+        this.overlapCheck = catalogProperties.overlapCheck();
+        this.overlapConstraint = overlapConstraint;
+        this.mismatches = Counter.builder("popcorn.showtimes.overlap.mismatch")
+                .description("Overlap checks where the in-memory schedule and the database disagreed")
+                .register(meterRegistry);
+    }
+
+    //any showtime of the theater that touches [start, end], the check for new showtimes
+    public boolean overlapsAny(String theater, LocalDateTime start, LocalDateTime end) {
+        return switch (overlapCheck) {
+            case DATABASE -> showtimeRepository.existsByTheaterAndOverlappingTimeRange(theater, start, end);
+            case INDEX -> timeline(theater).overlaps(start, end, null, true);
+            case VERIFY -> verified(theater, timeline(theater).overlaps(start, end, null, true),
+                    showtimeRepository.existsByTheaterAndOverlappingTimeRange(theater, start, end));
+            //the insert itself is rejected by the exclusion constraint
+            case CONSTRAINT -> !overlapConstraint.isEnforced() && timeline(theater).overlaps(start, end, null, true);
+        };
+    }
+
+    //any other showtime of the theater that overlaps (start, end), the check for updated showtimes
+    public boolean overlapsOther(String theater, LocalDateTime start, LocalDateTime end, Long showtimeId) {
+        return switch (overlapCheck) {
+            case DATABASE -> showtimeRepository.existsByTheaterAndOverlappingTimeRangeExcludingSelf(theater, start, end, showtimeId);
+            case INDEX -> timeline(theater).overlaps(start, end, showtimeId, false);
+            case VERIFY -> verified(theater, timeline(theater).overlaps(start, end, showtimeId, false),
+                    showtimeRepository.existsByTheaterAndOverlappingTimeRangeExcludingSelf(theater, start, end, showtimeId));
+            //updates keep a buffer around the range that the exclusion constraint does not know about,
+            //so the in-memory schedule stays the check and the constraint only backs it up
+            case CONSTRAINT -> timeline(theater).overlaps(start, end, showtimeId, false);
+        };
+    }
+
+    //record a saved showtime once the current transaction commits (or right away outside of one)
+    public void putAfterCommit(Showtime showtime) {
+        Long id = showtime.getId();
+        String theater = showtime.getTheater();
+        TheaterTimeline.Slot slot = new TheaterTimeline.Slot(id, showtime.getStartTime(), showtime.getEndTime());
+        AfterCommit.run(() -> {
+            //the showtime may have moved from another theater
+            theaters.forEach((name, timeline) -> {
+                if (!name.equals(theater)) {
+                    timeline.remove(id);
+                }
+            });
+            //theaters that are not loaded read it from the table when they are
+            theaters.computeIfPresent(theater, (name, timeline) -> {
+                timeline.put(slot);
+                return timeline;
+            });
+        });
+    }
+
+    //drop a deleted showtime once the current transaction commits (or right away outside of one)
+    public void removeAfterCommit(Long showtimeId) {
+        AfterCommit.run(() -> theaters.values().forEach(timeline -> timeline.remove(showtimeId)));
+    }
+
+    private boolean verified(String theater, boolean fromSchedule, boolean fromDatabase) {
+        if (fromSchedule != fromDatabase) {
+            mismatches.increment();
+            log.warn("Overlap check for theater '{}' disagrees with the database (schedule {}, database {}), reloading it",
+                    theater, fromSchedule, fromDatabase);
+            loadLocks.remove(theaters, theater);
+        }
+        return fromDatabase;
+    }
+
+    private TheaterTimeline timeline(String theater) {
+        return loadLocks.computeIfAbsent(theaters, theater, this::load);
+    }
+
+    private TheaterTimeline load(String theater) {
+        TheaterTimeline timeline = new TheaterTimeline();
+        for (Object[] slot : showtimeRepository.findSlotsByTheater(theater)) {
+            timeline.put(new TheaterTimeline.Slot((Long) slot[0], (LocalDateTime) slot[1], (LocalDateTime) slot[2]));
+        }
+        return timeline;
+    }
+}
@@ -0,0 +1,91 @@
+package com.att.tdp.popcorn_palace.schedule;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//Showtimes of one theater ordered by start time.
+//A showtime that overlaps [start, end] starts at most the longest showtime length before start,
+//so a lookup only walks that window of the sorted set.
+public final class TheaterTimeline {
+
+    private static final Comparator<Slot> BY_START = Comparator.comparing(Slot::start).thenComparing(Slot::id);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableSet<Slot> slots = new TreeSet<>(BY_START);
+    private final Map<Long, Slot> slotsById = new HashMap<>();
+    //only grows, a longer window just walks a few more slots
+    private Duration longest = Duration.ZERO;
+
+    //touching: showtimes that only share an end point count as overlapping too
+    public boolean overlaps(LocalDateTime start, LocalDateTime end, Long excludedId, boolean touching) {
+        lock.readLock().lock();
+        try {
+            Slot from = new Slot(Long.MIN_VALUE, start.minus(longest), null);
+            Slot to = new Slot(Long.MAX_VALUE, end, null);
+            if (BY_START.compare(from, to) > 0) {
+                return false;
+            }
+            for (Slot slot : slots.subSet(from, true, to, true)) {
+                if (slot.id().equals(excludedId)) {
+                    continue;
+                }
+                boolean overlapping = touching
+                        ? !slot.start().isAfter(end) && !slot.end().isBefore(start)
+                        : slot.start().isBefore(end) && slot.end().isAfter(start);
+                if (overlapping) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(Slot slot) {
+        lock.writeLock().lock();
+        try {
+            Slot previous = slotsById.put(slot.id(), slot);
+            if (previous != null) {
+                slots.remove(previous);
+            }
+            slots.add(slot);
+            Duration length = Duration.between(slot.start(), slot.end());
+            if (length.compareTo(longest) > 0) {
+                longest = length;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long showtimeId) {
+        lock.writeLock().lock();
+        try {
+            Slot previous = slotsById.remove(showtimeId);
+            if (previous != null) {
+                slots.remove(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public record Slot(Long id, LocalDateTime start, LocalDateTime end) {
+    }
+}
@@ -0,0 +1,177 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.config.IdempotencyProperties;
+import com.att.tdp.popcorn_palace.dto.BookingResponseDTO;
+import com.att.tdp.popcorn_palace.entity.Booking;
+import com.att.tdp.popcorn_palace.entity.IdempotencyRecord;
+import com.att.tdp.popcorn_palace.exception.*;
+import com.att.tdp.popcorn_palace.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+//Idempotency-Key handling for POST /bookings.
+//The first final outcome of a key (booking id, 404 or 409) is kept in a bounded, expiring cache backed by the idempotency_keys table,
+//duplicates arriving while the first request runs wait for its outcome instead of booking again.
+@Slf4j
+@Service
+public class BookingIdempotency {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final IdempotencyProperties properties;
+    private final Cache<String, CompletableFuture<IdempotencyRecord>> outcomes;
+    private final ScheduledExecutorService purger;
+
+    public BookingIdempotency(IdempotencyRecordRepository idempotencyRecordRepository, IdempotencyProperties properties) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.properties = properties;
+        this.outcomes = Caffeine.newBuilder()
+                .maximumSize(properties.maxEntries())
+                .expireAfterWrite(properties.ttl())
+                .build();
+        this.purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(this::purgeExpired, 1, 60, TimeUnit.MINUTES);
+    }
+
+    //run the booking once per key, later requests with the same key get the first outcome
+    public BookingResponseDTO execute(String idempotencyKey, Booking booking, Supplier<BookingResponseDTO> action) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > 255) {
+            throw new InvalidInputException("Idempotency-Key must be between 1 and 255 characters.");
+        }
+        String fingerprint = fingerprint(booking);
+        CompletableFuture<IdempotencyRecord> mine = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> inFlight = outcomes.asMap().putIfAbsent(idempotencyKey, mine);
+        if (inFlight != null) {
+            return replay(await(inFlight), fingerprint);
+        }
+
+        IdempotencyRecord outcome;
+        try {
+            outcome = executeOnce(idempotencyKey, fingerprint, action);
+        } catch (RuntimeException e) {
+            outcomes.asMap().remove(idempotencyKey, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        if (outcome.getStatus() == IdempotencyRecord.IN_PROGRESS) {
+            //running on another instance, do not remember that
+            outcomes.asMap().remove(idempotencyKey, mine);
+        }
+        mine.complete(outcome);
+        return replay(outcome, fingerprint);
+    }
+
+    private IdempotencyRecord executeOnce(String idempotencyKey, String fingerprint, Supplier<BookingResponseDTO> action) {
+        //evicted, restarted or handled by another instance
+        Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findById(idempotencyKey);
+        if (stored.isPresent() && !takeOverExpiredLease(stored.get(), fingerprint, idempotencyKey)) {
+            return stored.get();
+        }
+        IdempotencyRecord record = new IdempotencyRecord(idempotencyKey, fingerprint, IdempotencyRecord.IN_PROGRESS, null, null, LocalDateTime.now());
+        try {
+            idempotencyRecordRepository.saveAndFlush(record);
+        } catch (DataIntegrityViolationException e) {
+            //another instance reserved the key first
+            return idempotencyRecordRepository.findById(idempotencyKey).orElseThrow(() -> e);
+        }
+
+        try {
+            BookingResponseDTO response = action.get();
+            record.setStatus(200);
+            record.setBookingId(response.bookingId());
+        } catch (RuntimeException e) {
+            int status = statusOf(e);
+            if (status != 404 && status != 409) {
+                //only a missing showtime or a taken seat is final. A full lane (429) or an unexpected failure
+                //is not, and neither is a rejected request, a retry runs the booking again
+                idempotencyRecordRepository.deleteById(idempotencyKey);
+                throw e;
+            }
+            record.setStatus(status);
+            record.setMessage(e.getMessage());
+        }
+        return idempotencyRecordRepository.save(record);
+    }
+
+    //an in progress key past its lease was left by a request that died, it is released so this request can reserve it.
+    //The delete is conditional, of two retries only one takes the key over, the other one finds its reservation
+    private boolean takeOverExpiredLease(IdempotencyRecord stored, String fingerprint, String idempotencyKey) {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.inProgressLease());
+        if (stored.getStatus() != IdempotencyRecord.IN_PROGRESS || !stored.getRequestFingerprint().equals(fingerprint)
+                || !stored.getCreatedAt().isBefore(cutoff)) {
+            return false;
+        }
+        if (idempotencyRecordRepository.deleteInProgressCreatedBefore(idempotencyKey, cutoff) == 0) {
+            return false;
+        }
+        log.warn("Idempotency-Key {} was in progress since {}, running the booking again", idempotencyKey, stored.getCreatedAt());
+        return true;
+    }
+
+    private BookingResponseDTO replay(IdempotencyRecord outcome, String fingerprint) {
+        if (!outcome.getRequestFingerprint().equals(fingerprint)) {
+            throw new InvalidInputException("Idempotency-Key was already used for a different booking request.");
+        }
+        return switch (outcome.getStatus()) {
+            case 200 -> new BookingResponseDTO(outcome.getBookingId());
+            case IdempotencyRecord.IN_PROGRESS -> throw new DataConflictException("A request with this Idempotency-Key is still being processed.");
+            case 404 -> throw new ResourceNotFoundException(outcome.getMessage());
+            case 409 -> throw new DataConflictException(outcome.getMessage());
+            default -> throw new InvalidInputException(outcome.getMessage());
+        };
+    }
+
+    private IdempotencyRecord await(CompletableFuture<IdempotencyRecord> inFlight) {
+        try {
+            return inFlight.get(properties.inFlightWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new DataConflictException("A request with this Idempotency-Key is still being processed.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataConflictException("A request with this Idempotency-Key is still being processed.");
+        } catch (ExecutionException e) {
+            //the first request failed unexpectedly, its duplicates fail the same way
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static String fingerprint(Booking booking) {
+        return booking.getShowtimeId() + ":" + booking.getSeatNumber() + ":" + booking.getUserId();
+    }
+
+    private static int statusOf(RuntimeException e) {
+        ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(e.getClass(), ResponseStatus.class);
+        return responseStatus != null ? responseStatus.code().value() : 500;
+    }
+
+    private void purgeExpired() {
+        try {
+            int purged = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(properties.ttl()));
+            log.debug("Purged {} expired idempotency keys", purged);
+        } catch (RuntimeException e) {
+            log.warn("Purging expired idempotency keys failed", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        purger.shutdownNow();
+    }
+}
@@ -0,0 +1,138 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.config.BookingLanesProperties;
+import com.att.tdp.popcorn_palace.dto.BookingResponseDTO;
+import com.att.tdp.popcorn_palace.entity.Booking;
+import com.att.tdp.popcorn_palace.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+//Single writer booking mode. Every showtime is owned by one lane, picked by the hash of its id.
+//A lane is a virtual thread draining its mailbox, so bookings of a showtime never race each other,
+//and whatever piled up while the last transaction ran is booked together in the next one.
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "popcorn-palace.booking.lanes", name = "enabled", havingValue = "true")
+public class BookingLanes {
+
+    private final BookingService bookingService;
+    private final BookingLanesProperties properties;
+    private final List<Lane> lanes;
+    private final DistributionSummary batchSizes;
+
+    public BookingLanes(BookingService bookingService, BookingLanesProperties properties, MeterRegistry meterRegistry) {
+        this.bookingService = bookingService;
+        this.properties = properties;
+        this.batchSizes = DistributionSummary.builder("popcorn.booking.lanes.batch.size")
+                .description("Bookings saved together in one lane transaction")
+                .register(meterRegistry);
+        List<Lane> created = new ArrayList<>(properties.count());
+        for (int i = 0; i < properties.count(); i++) {
+            created.add(new Lane(i));
+        }
+        this.lanes = List.copyOf(created);
+        Gauge.builder("popcorn.booking.lanes.queued", lanes, all -> all.stream().mapToInt(lane -> lane.mailbox.size()).sum())
+                .description("Bookings waiting in lane mailboxes")
+                .register(meterRegistry);
+    }
+
+    //hand the booking to the lane of its showtime and wait for the outcome
+    public BookingResponseDTO bookTicket(Booking booking) {
+        Request request = new Request(booking, new CompletableFuture<>());
+        Lane lane = laneOf(booking.getShowtimeId());
+        if (!lane.mailbox.offer(request)) {
+            throw new TooManyRequestsException("Too many bookings are waiting for showtime ID " + booking.getShowtimeId() + ", try again later.");
+        }
+        try {
+            return request.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Lane laneOf(Long showtimeId) {
+        return lanes.get(showtimeId == null ? 0 : Math.floorMod(Long.hashCode(showtimeId), lanes.size()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lanes.forEach(lane -> lane.thread.interrupt());
+    }
+
+    private record Request(Booking booking, CompletableFuture<BookingResponseDTO> result) {
+    }
+
+    private final class Lane {
+        final BlockingQueue<Request> mailbox = new ArrayBlockingQueue<>(properties.mailboxCapacity());
+        final Thread thread;
+
+        Lane(int index) {
+            thread = Thread.ofVirtual().name("booking-lane-" + index).start(this::run);
+        }
+
+        private void run() {
+            List<Request> batch = new ArrayList<>(properties.maxBatch());
+            while (true) {
+                try {
+                    batch.add(mailbox.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                mailbox.drainTo(batch, properties.maxBatch() - 1);
+                process(batch);
+                batch.clear();
+            }
+            List<Request> pending = new ArrayList<>();
+            mailbox.drainTo(pending);
+            pending.forEach(request -> request.result.completeExceptionally(new IllegalStateException("Booking lanes are shutting down.")));
+        }
+
+        private void process(List<Request> batch) {
+            batchSizes.record(batch.size());
+            List<BookingService.BookingOutcome> outcomes;
+            try {
+                outcomes = bookingService.bookTicketBatch(batch.stream().map(Request::booking).toList());
+            } catch (RuntimeException e) {
+                //a seat of the batch was booked outside of this lane, book them one by one so only that one fails
+                log.debug("Lane batch of {} bookings failed, retrying one by one", batch.size(), e);
+                for (Request request : batch) {
+                    request.booking.setBookingId(null);
+                    complete(request, () -> bookingService.bookTicket(request.booking));
+                }
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                BookingService.BookingOutcome outcome = outcomes.get(i);
+                if (outcome.error() != null) {
+                    batch.get(i).result.completeExceptionally(outcome.error());
+                } else {
+                    batch.get(i).result.complete(outcome.response());
+                }
+            }
+        }
+
+        private void complete(Request request, Supplier<BookingResponseDTO> booking) {
+            try {
+                request.result.complete(booking.get());
+            } catch (RuntimeException e) {
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+}
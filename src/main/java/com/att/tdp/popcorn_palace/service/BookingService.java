@@ -1,80 +1,395 @@
 package com.att.tdp.popcorn_palace.service;
 
+import com.att.tdp.popcorn_palace.config.BookingProperties;
 import com.att.tdp.popcorn_palace.entity.Booking;
 import com.att.tdp.popcorn_palace.entity.Showtime;
 import com.att.tdp.popcorn_palace.dto.BookingResponseDTO;
+import com.att.tdp.popcorn_palace.dto.CursorPageDTO;
+import com.att.tdp.popcorn_palace.dto.GroupBookingRequestDTO;
+import com.att.tdp.popcorn_palace.dto.GroupBookingResponseDTO;
+import com.att.tdp.popcorn_palace.dto.SeatHoldRequestDTO;
+import com.att.tdp.popcorn_palace.dto.SeatHoldResponseDTO;
 import com.att.tdp.popcorn_palace.exception.*;
+import com.att.tdp.popcorn_palace.id.UuidV7;
+import com.att.tdp.popcorn_palace.id.Uuids;
+import com.att.tdp.popcorn_palace.inventory.SeatHold;
+import com.att.tdp.popcorn_palace.inventory.SeatHolds;
+import com.att.tdp.popcorn_palace.inventory.SeatInventory;
+import com.att.tdp.popcorn_palace.journal.BookingJournalWriter;
 import com.att.tdp.popcorn_palace.repository.BookingRepository;
-import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
-import lombok.RequiredArgsConstructor;
+import com.att.tdp.popcorn_palace.repository.UniqueKeys;
+import com.att.tdp.popcorn_palace.schedule.ShowtimeCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
-@RequiredArgsConstructor
 public class BookingService {
 
+    static final int MAX_PAGE_SIZE = 100;
+    private static final List<String> OPERATIONS = List.of("single", "group", "hold", "lane");
+    private static final List<String> OUTCOMES = List.of("booked", "conflict", "invalid", "not_found", "error");
+    private static final List<String> CONFLICT_SOURCES = List.of("memory", "database", "hold");
+
     private final BookingRepository bookingRepository;
-    private final ShowtimeRepository showtimeRepository;
+    private final ShowtimeCache showtimeCache;
+    private final SeatInventory seatInventory;
+    private final SeatHolds seatHolds;
+    private final BookingProperties bookingProperties;
+    //present when popcorn-palace.booking.journal.enabled is set
+    private final Optional<BookingJournalWriter> journalWriter;
+    private final MeterRegistry meterRegistry;
+    //operation -> outcome -> timer, all tag combinations registered up front
+    private final Map<String, Map<String, Timer>> requestTimers = new HashMap<>();
+    private final Map<String, Counter> seatConflicts = new HashMap<>();
+
+    public BookingService(BookingRepository bookingRepository, ShowtimeCache showtimeCache, SeatInventory seatInventory,
+                          SeatHolds seatHolds, BookingProperties bookingProperties, Optional<BookingJournalWriter> journalWriter,
+                          MeterRegistry meterRegistry) {
+        this.bookingRepository = bookingRepository;
+        this.showtimeCache = showtimeCache;
+        this.seatInventory = seatInventory;
+        this.seatHolds = seatHolds;
+        this.bookingProperties = bookingProperties;
+        this.journalWriter = journalWriter;
+        this.meterRegistry = meterRegistry;
+        for (String operation : OPERATIONS) {
+            Map<String, Timer> byOutcome = new HashMap<>();
+            for (String outcome : OUTCOMES) {
+                byOutcome.put(outcome, Timer.builder("popcorn.booking.requests")
+                        .description("Booking calls of the booking service")
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+            requestTimers.put(operation, byOutcome);
+        }
+        for (String source : CONFLICT_SOURCES) {
+            seatConflicts.put(source, Counter.builder("popcorn.booking.seat.conflicts")
+                    .description("Bookings rejected because the seat was already taken")
+                    .tag("source", source)
+                    .register(meterRegistry));
+        }
+    }
 
     // Book a Ticket
     @Transactional
     public BookingResponseDTO bookTicket(Booking booking) {
-        if (booking == null) {//for testing
-            throw new InvalidInputException("Booking details cannot be null.");
+        return timed("single", () -> {
+            if (booking == null) {//for testing
+                throw new InvalidInputException("Booking details cannot be null.");
+            }
+            validateUserId(booking.getUserId());
+            findBookableShowtime(booking.getShowtimeId());
+
+            //check for double booked seat, only the request that claims the seat in memory goes on to the database
+            if (!claimSeat(booking.getShowtimeId(), booking.getSeatNumber())) {
+                throw seatTaken(booking, "memory");
+            }
+            return new BookingResponseDTO(saveClaimedSeat(booking).getBookingId());
+        });
+    }
+
+    // Book the tickets a booking lane collected, every booking that can be made is saved in this one transaction
+    @Transactional
+    public List<BookingOutcome> bookTicketBatch(List<Booking> bookings) {
+        long start = meterRegistry.config().clock().monotonicTime();
+        BookingOutcome[] outcomes = new BookingOutcome[bookings.size()];
+        List<Booking> claimed = new ArrayList<>(bookings.size());
+        Set<Long> bookableShowtimes = new HashSet<>();
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
+            try {
+                validateUserId(booking.getUserId());
+                if (!bookableShowtimes.contains(booking.getShowtimeId())) {
+                    findBookableShowtime(booking.getShowtimeId());
+                    bookableShowtimes.add(booking.getShowtimeId());
+                }
+                if (!claimSeat(booking.getShowtimeId(), booking.getSeatNumber())) {
+                    throw seatTaken(booking, "memory");
+                }
+                claimed.add(booking);
+            } catch (RuntimeException e) {
+                outcomes[i] = new BookingOutcome(null, e);
+            }
+        }
+        if (!claimed.isEmpty() && !writeToJournal(claimed)) {
+            claimed.forEach(booking -> seatInventory.releaseOnRollback(booking.getShowtimeId(), booking.getSeatNumber()));
+            //a seat booked outside of this instance fails the whole batch, the lane then books one by one
+            bookingRepository.saveAllAndFlush(claimed);
+        }
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == null) {
+                outcomes[i] = new BookingOutcome(new BookingResponseDTO(bookings.get(i).getBookingId()), null);
+            }
+        }
+        //every booking of the batch took as long as the batch. A failed batch is not recorded, the lane books it one by one
+        long elapsed = meterRegistry.config().clock().monotonicTime() - start;
+        for (BookingOutcome outcome : outcomes) {
+            requestTimers.get("lane").get(outcome.error() == null ? "booked" : outcomeOf(outcome.error()))
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+        }
+        return Arrays.asList(outcomes);
+    }
+
+    // Book several seats of one showtime at once, either all of them are booked or none
+    @Transactional
+    public GroupBookingResponseDTO bookGroup(GroupBookingRequestDTO request) {
+        return timed("group", () -> {
+            if (request == null || request.seatNumbers() == null || request.seatNumbers().isEmpty()) {
+                throw new InvalidInputException("Group booking must contain at least one seat.");
+            }
+            validateUserId(request.userId());
+            //the same seat twice in one request would hit our own claim
+            Set<Integer> seatNumbers = new LinkedHashSet<>(request.seatNumbers());
+            if (seatNumbers.size() != request.seatNumbers().size()) {
+                throw new InvalidInputException("Seat numbers in a group booking must be unique.");
+            }
+            findBookableShowtime(request.showtimeId());
+
+            //all seats are checked together, nothing is claimed if one of them is taken
+            List<Integer> taken = seatInventory.claimAll(request.showtimeId(), seatNumbers);
+            if (!taken.isEmpty() && expireDueHolds(request.showtimeId(), taken)) {
+                taken = seatInventory.claimAll(request.showtimeId(), seatNumbers);
+            }
+            if (!taken.isEmpty()) {
+                seatConflicts.get("memory").increment();
+                throw new DataConflictException("Seat numbers " + taken + " are already booked for showtime ID " + request.showtimeId());
+            }
+            List<Booking> bookings = new ArrayList<>(seatNumbers.size());
+            for (Integer seatNumber : seatNumbers) {
+                bookings.add(new Booking(null, request.showtimeId(), seatNumber, request.userId()));
+            }
+            if (writeToJournal(bookings)) {
+                return new GroupBookingResponseDTO(bookings.stream().map(Booking::getBookingId).toList());
+            }
+            bookings.forEach(booking -> seatInventory.releaseOnRollback(booking.getShowtimeId(), booking.getSeatNumber()));
+
+            //ids are generated in memory, so hibernate sends the inserts as one JDBC batch
+            List<Booking> savedBookings;
+            try {
+                savedBookings = bookingRepository.saveAllAndFlush(bookings);
+            } catch (DataIntegrityViolationException e) {
+                if (!UniqueKeys.isViolation(e, UniqueKeys.BOOKING_SEAT)) {
+                    throw e;
+                }
+                seatConflicts.get("database").increment();
+                throw new DataConflictException("One of the seat numbers " + seatNumbers + " is already booked for showtime ID " + request.showtimeId());
+            }
+            return new GroupBookingResponseDTO(savedBookings.stream().map(Booking::getBookingId).toList());
+        });
+    }
+
+    // Hold a seat for a few minutes while the customer checks out
+    public SeatHoldResponseDTO holdSeat(SeatHoldRequestDTO request) {
+        if (request == null) {
+            throw new InvalidInputException("Seat hold details cannot be null.");
+        }
+        validateUserId(request.userId());
+        findBookableShowtime(request.showtimeId());
+
+        SeatHold hold = seatHolds.hold(request.showtimeId(), request.seatNumber(), request.userId(), bookingProperties.holdTtl())
+                .or(() -> seatHolds.expireIfDue(request.showtimeId(), request.seatNumber())
+                        ? seatHolds.hold(request.showtimeId(), request.seatNumber(), request.userId(), bookingProperties.holdTtl())
+                        : Optional.empty())
+                .orElseThrow(() -> {
+                    seatConflicts.get("hold").increment();
+                    return new DataConflictException("Seat number " + request.seatNumber() +
+                            " is already booked for showtime ID " + request.showtimeId());
+                });
+        return new SeatHoldResponseDTO(hold.holdId(), hold.expiresAt());
+    }
+
+    // Turn a held seat into a booking
+    @Transactional
+    public BookingResponseDTO confirmHold(UUID holdId) {
+        return timed("hold", () -> {
+            SeatHold hold = seatHolds.take(holdId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Seat hold not found or expired with ID: " + holdId));
+            //the seat is ours now, give it back if the showtime cannot be booked anymore
+            try {
+                findBookableShowtime(hold.showtimeId());
+            } catch (RuntimeException e) {
+                seatInventory.release(hold.showtimeId(), hold.seatNumber());
+                throw e;
+            }
+            Booking booking = new Booking(null, hold.showtimeId(), hold.seatNumber(), hold.userId());
+            return new BookingResponseDTO(saveClaimedSeat(booking).getBookingId());
+        });
+    }
+
+    // Release a held seat before its hold expires
+    public void releaseHold(UUID holdId) {
+        if (!seatHolds.release(holdId)) {
+            throw new ResourceNotFoundException("Seat hold not found or expired with ID: " + holdId);
+        }
+    }
+
+    //claim in memory, a seat whose hold just ran out counts as free even if the timer did not fire yet
+    private boolean claimSeat(Long showtimeId, int seatNumber) {
+        if (seatInventory.claim(showtimeId, seatNumber)) {
+            return true;
+        }
+        return seatHolds.expireIfDue(showtimeId, seatNumber) && seatInventory.claim(showtimeId, seatNumber);
+    }
+
+    //same for a group, true if a taken seat was only held past its deadline and is free now
+    private boolean expireDueHolds(Long showtimeId, List<Integer> taken) {
+        boolean expired = false;
+        for (Integer seatNumber : taken) {
+            expired |= seatHolds.expireIfDue(showtimeId, seatNumber);
         }
-        //check if userId is UUId format
-        if (!isValidUUID(booking.getUserId())) {
-            throw new InvalidInputException("Invalid UUID format for userId: " + booking.getUserId());
+        return expired;
+    }
+
+    //persist a booking whose seat this request already claimed
+    private Booking saveClaimedSeat(Booking booking) {
+        if (writeToJournal(List.of(booking))) {
+            return booking;
+        }
+        seatInventory.releaseOnRollback(booking.getShowtimeId(), booking.getSeatNumber());
+        try {
+            return bookingRepository.saveAndFlush(booking);
+        } catch (DataIntegrityViolationException e) {
+            //the unique key caught a seat booked outside of this instance
+            if (UniqueKeys.isViolation(e, UniqueKeys.BOOKING_SEAT)) {
+                throw seatTaken(booking, "database");
+            }
+            throw e;
         }
+    }
 
+    //in journal mode the bookings are acknowledged once journaled, false means they still have to be saved here
+    private boolean writeToJournal(List<Booking> bookings) {
+        if (journalWriter.isEmpty()) {
+            return false;
+        }
+        bookings.forEach(booking -> booking.setBookingId(UuidV7.next()));
+        try {
+            if (journalWriter.get().write(bookings)) {
+                return true;
+            }
+        } catch (RuntimeException e) {
+            bookings.forEach(booking -> seatInventory.release(booking.getShowtimeId(), booking.getSeatNumber()));
+            throw e;
+        }
+        //journal is full or failed, fall back to a direct insert
+        bookings.forEach(booking -> booking.setBookingId(null));
+        return false;
+    }
+
+    //check if userId is UUId format
+    private void validateUserId(String userId) {
+        if (!Uuids.isValid(userId)) {
+            throw new InvalidInputException("Invalid UUID format for userId: " + userId);
+        }
+    }
+
+    private Showtime findBookableShowtime(Long showtimeId) {
         // check if the showtime is in the database
-        Showtime showtime = showtimeRepository.findById(booking.getShowtimeId())
-                .orElseThrow(() -> new ResourceNotFoundException("Showtime ID " + booking.getShowtimeId() + " does not exist."));
+        Showtime showtime = showtimeCache.get(showtimeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Showtime ID " + showtimeId + " does not exist."));
 
         //check if trying to book a past showtime according to the localtime.now() (our current time)
         if (showtime.getStartTime().isBefore(LocalDateTime.now())) {
             throw new InvalidInputException("Cannot book a seat for a past showtime.");
         }
+        return showtime;
+    }
 
-        //check for double booked seat
-        if (bookingRepository.existsByShowtimeIdAndSeatNumber(booking.getShowtimeId(), booking.getSeatNumber())) {
-            throw new DataConflictException("Seat number " + booking.getSeatNumber() +
-                    " is already booked for showtime ID " + booking.getShowtimeId());}
-
-        Booking savedBooking = bookingRepository.save(booking);
-        return new BookingResponseDTO(savedBooking.getBookingId());
+    //source tells where the conflict was caught: memory (seat inventory), database (unique key) or hold
+    private DataConflictException seatTaken(Booking booking, String source) {
+        seatConflicts.get(source).increment();
+        return new DataConflictException("Seat number " + booking.getSeatNumber() +
+                " is already booked for showtime ID " + booking.getShowtimeId());
     }
 
-    //UUID Validation
-    private boolean isValidUUID(String userId) {
+    //latency of one booking call by operation and outcome. Runs inside the transaction, so the commit is only in http.server.requests
+    private <T> T timed(String operation, Supplier<T> booking) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
         try {
-            UUID.fromString(userId);
-            return true;
-        } catch (IllegalArgumentException e) {
-            return false;
+            T result = booking.get();
+            outcome = "booked";
+            return result;
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            sample.stop(requestTimers.get(operation).get(outcome));
         }
     }
 
+    private static String outcomeOf(RuntimeException e) {
+        if (e instanceof DataConflictException) {
+            return "conflict";
+        }
+        if (e instanceof InvalidInputException) {
+            return "invalid";
+        }
+        if (e instanceof ResourceNotFoundException) {
+            return "not_found";
+        }
+        return "error";
+    }
 
     // Get Booking by ID (for testing)
     public Booking getBookingById(UUID bookingId) {
-
+        //journaled bookings may not be in the table yet
+        Optional<Booking> pending = journalWriter.flatMap(writer -> writer.findPending(bookingId));
+        if (pending.isPresent()) {
+            return pending.get();
+        }
         return bookingRepository.findById(bookingId)
                 //check if the bookingId exists
                 .orElseThrow(() -> new ResourceNotFoundException("Booking not found with ID: " + bookingId));
     }
 
+    //result of one booking of a lane batch, either the response or the error to answer with
+    public record BookingOutcome(BookingResponseDTO response, RuntimeException error) {
+    }
+
+    // Bookings of a user, newest first, one page per call.
+    // Seeks past the last booking id of the previous page, so every page costs the same however deep it is.
+    // Journaled bookings show up once they are drained.
+    public CursorPageDTO<Booking> getUserBookings(String userId, UUID after, int limit) {
+        validateUserId(userId);
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        //one extra row tells if there is a next page
+        List<Booking> bookings = after == null
+                ? bookingRepository.findByUserIdOrderByBookingIdDesc(userId, Limit.of(limit + 1))
+                : bookingRepository.findByUserIdAndBookingIdLessThanOrderByBookingIdDesc(userId, after, Limit.of(limit + 1));
+        if (bookings.size() <= limit) {
+            return new CursorPageDTO<>(bookings, null);
+        }
+        List<Booking> page = List.copyOf(bookings.subList(0, limit));
+        return new CursorPageDTO<>(page, page.get(limit - 1).getBookingId().toString());
+    }
+
     //Cancel a Booking (for testing)
-    @Transactional
+    //Not one transaction: a journaled booking is drained in the journal's own transaction first,
+    //then the delete commits on its own and only the request that deleted the row frees the seat
     public void cancelBooking(UUID bookingId) {
+        //a journaled booking has to reach the table before it can be deleted
+        journalWriter.filter(writer -> writer.findPending(bookingId).isPresent()).ifPresent(BookingJournalWriter::drain);
         //check if the booking id exists
-        if (!bookingRepository.existsById(bookingId)) {
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new ResourceNotFoundException("Booking not found with ID: " + bookingId));
+        if (bookingRepository.deleteByBookingId(bookingId) == 0) {
             throw new ResourceNotFoundException("Booking not found with ID: " + bookingId);
         }
-        bookingRepository.deleteById(bookingId);
+        seatInventory.release(booking.getShowtimeId(), booking.getSeatNumber());
     }
 }
@@ -0,0 +1,106 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.catalog.MovieCatalog;
+import com.att.tdp.popcorn_palace.config.CatalogProperties;
+import com.att.tdp.popcorn_palace.inventory.SeatInventory;
+import com.att.tdp.popcorn_palace.journal.BookingJournalWriter;
+import com.att.tdp.popcorn_palace.repository.BookingRepository;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.schedule.ShowtimeCache;
+import com.att.tdp.popcorn_palace.schedule.TheaterSchedule;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+//Deletes movies and showtimes together with everything that hangs off them.
+//Each chunk of showtimes goes in its own short transaction as two set based deletes (showtimes, then bookings),
+//so a large cascade never holds its locks for long and never loads the rows it removes.
+@Slf4j
+@Service
+public class CascadeDeleteService {
+
+    private final BookingRepository bookingRepository;
+    private final ShowtimeRepository showtimeRepository;
+    private final MovieRepository movieRepository;
+    private final MovieCatalog movieCatalog;
+    private final SeatInventory seatInventory;
+    private final TheaterSchedule theaterSchedule;
+    private final ShowtimeCache showtimeCache;
+    //present when popcorn-palace.booking.journal.enabled is set
+    private final Optional<BookingJournalWriter> journalWriter;
+    private final int chunkSize;
+    private final TransactionTemplate chunkTransaction;
+
+    public CascadeDeleteService(BookingRepository bookingRepository, ShowtimeRepository showtimeRepository,
+                                MovieRepository movieRepository, MovieCatalog movieCatalog, SeatInventory seatInventory,
+                                TheaterSchedule theaterSchedule, ShowtimeCache showtimeCache,
+                                Optional<BookingJournalWriter> journalWriter, CatalogProperties catalogProperties,
+                                PlatformTransactionManager transactionManager) {
+        this.bookingRepository = bookingRepository;
+        this.showtimeRepository = showtimeRepository;
+        this.movieRepository = movieRepository;
+        this.movieCatalog = movieCatalog;
+        this.seatInventory = seatInventory;
+        this.theaterSchedule = theaterSchedule;
+        this.showtimeCache = showtimeCache;
+        this.journalWriter = journalWriter;
+        this.chunkSize = catalogProperties.deleteChunkSize();
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Delete showtimes and their bookings
+    public void deleteShowtimes(List<Long> showtimeIds) {
+        for (int from = 0; from < showtimeIds.size(); from += chunkSize) {
+            List<Long> chunk = showtimeIds.subList(from, Math.min(from + chunkSize, showtimeIds.size()));
+            drainJournal();
+            chunkTransaction.executeWithoutResult(status -> deleteChunk(chunk));
+        }
+    }
+
+    // Delete a movie with its showtimes and their bookings.
+    // The showtimes go first, chunk by chunk, the movie row goes with the last chunk
+    public void deleteMovie(Long movieId) {
+        boolean done = false;
+        while (!done) {
+            drainJournal();
+            done = Boolean.TRUE.equals(chunkTransaction.execute(status -> {
+                List<Long> chunk = showtimeRepository.findIdsByMovieId(movieId, Limit.of(chunkSize));
+                deleteChunk(chunk);
+                if (chunk.size() < chunkSize) {
+                    movieRepository.deleteAllByIdInBatch(List.of(movieId));
+                    movieCatalog.removeAfterCommit(movieId);
+                    return true;
+                }
+                return false;
+            }));
+        }
+    }
+
+    private void deleteChunk(List<Long> showtimeIds) {
+        if (showtimeIds.isEmpty()) {
+            return;
+        }
+        //showtimes first, their row locks make a concurrent journal drain wait until the bookings below are gone too
+        showtimeRepository.deleteAllByIdInBatch(showtimeIds);
+        int bookings = bookingRepository.deleteAllOfShowtimes(showtimeIds);
+        //seat state, theater schedules and the showtime cache drop the showtimes once the delete is committed
+        showtimeIds.forEach(seatInventory::forgetAfterCommit);
+        showtimeIds.forEach(theaterSchedule::removeAfterCommit);
+        showtimeIds.forEach(showtimeCache::evictAfterCommit);
+        log.debug("Deleted {} showtimes with {} bookings", showtimeIds.size(), bookings);
+    }
+
+    //journaled bookings of the next chunk reach the table before it is deleted, once for every chunk because bookings
+    //keep coming in while a large cascade runs. One journaled after this drain is dropped by the drain that finds its showtime gone
+    private void drainJournal() {
+        journalWriter.ifPresent(BookingJournalWriter::drain);
+    }
+}
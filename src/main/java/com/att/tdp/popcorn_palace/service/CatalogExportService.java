@@ -0,0 +1,90 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.entity.Movie;
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+//Full catalog and schedule exports.
+//Rows are read from a forward-only cursor inside one read-only transaction and written to the response as they arrive,
+//each row is detached once written, so the heap used does not grow with the number of rows.
+@Service
+public class CatalogExportService {
+
+    private final MovieRepository movieRepository;
+    private final ShowtimeRepository showtimeRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public CatalogExportService(MovieRepository movieRepository, ShowtimeRepository showtimeRepository,
+                                EntityManager entityManager, ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager) {
+        this.movieRepository = movieRepository;
+        this.showtimeRepository = showtimeRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // Write every movie, one json object per line (ndjson) or as one json array
+    public void exportMovies(OutputStream out, boolean ndjson) throws IOException {
+        export(out, ndjson, Movie.class, movieRepository::streamAll);
+    }
+
+    // Write every showtime, one json object per line (ndjson) or as one json array
+    public void exportShowtimes(OutputStream out, boolean ndjson) throws IOException {
+        export(out, ndjson, Showtime.class, showtimeRepository::streamAll);
+    }
+
+    private <T> void export(OutputStream out, boolean ndjson, Class<T> type, Supplier<Stream<T>> query) throws IOException {
+        //the generator buffers and flushes on its own, not after every row
+        ObjectWriter writer = objectMapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            //ndjson rows are separated by the newline written after each one
+            generator.setRootValueSeparator(null);
+            if (!ndjson) {
+                generator.writeStartArray();
+            }
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<T> rows = query.get()) {
+                    rows.forEach(row -> {
+                        write(writer, generator, row, ndjson);
+                        entityManager.detach(row);
+                    });
+                }
+            });
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        }
+    }
+
+    private static void write(ObjectWriter writer, JsonGenerator generator, Object row, boolean ndjson) {
+        try {
+            writer.writeValue(generator, row);
+            if (ndjson) {
+                generator.writeRaw('\n');
+            }
+        } catch (IOException e) {
+            //most likely the client went away, this ends the cursor and the transaction
+            throw new UncheckedIOException(e);
+        }
+    }
+}
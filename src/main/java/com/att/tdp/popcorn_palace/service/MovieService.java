@@ -1,19 +1,46 @@
 package com.att.tdp.popcorn_palace.service;
 
+import com.att.tdp.popcorn_palace.catalog.CatalogVersion;
+import com.att.tdp.popcorn_palace.catalog.MovieCatalog;
+import com.att.tdp.popcorn_palace.config.CatalogProperties;
+import com.att.tdp.popcorn_palace.dto.CursorPageDTO;
+import com.att.tdp.popcorn_palace.dto.MovieUpsertReportDTO;
+import com.att.tdp.popcorn_palace.dto.MovieUpsertRowDTO;
 import com.att.tdp.popcorn_palace.entity.Movie;
 import com.att.tdp.popcorn_palace.exception.*;
 import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.repository.MovieSpecifications;
+import com.att.tdp.popcorn_palace.repository.UniqueKeys;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class MovieService {
 
+    static final int MAX_PAGE_SIZE = 100;
+    static final int MAX_SEARCH_RESULTS = 50;
+    static final int MAX_UPSERT_ROWS = 10_000;
+
     private final MovieRepository movieRepository;
+    private final MovieCatalog movieCatalog;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final CatalogVersion catalogVersion;
+    private final CatalogProperties catalogProperties;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
 
     //Get All Movies
     public List<Movie> getAllMovies() {
@@ -21,20 +48,63 @@ public class MovieService {
         return movie;
     }
 
+    //One page of movies in id order, genre and release year are optional filters.
+    //after is the id of the last movie of the previous page
+    public CursorPageDTO<Movie> listMovies(String genre, Integer releaseYear, Long after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        Specification<Movie> filter = MovieSpecifications.ofGenre(genre)
+                .and(MovieSpecifications.releasedIn(releaseYear))
+                .and(MovieSpecifications.after(after));
+        //one extra row tells if there is a next page
+        List<Movie> movies = movieRepository.findBy(filter, query -> query.sortBy(Sort.by("id")).limit(limit + 1).all());
+        if (movies.size() <= limit) {
+            return new CursorPageDTO<>(movies, null);
+        }
+        List<Movie> page = List.copyOf(movies.subList(0, limit));
+        return new CursorPageDTO<>(page, page.get(limit - 1).getId().toString());
+    }
+
+    //Type-ahead search, every word of the query is a prefix of a title or genre word.
+    //Best rated first, newer first on equal rating
+    public List<Movie> searchMovies(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new InvalidInputException("Search query cannot be empty.");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new InvalidInputException("Limit must be between 1 and " + MAX_SEARCH_RESULTS + ".");
+        }
+        return movieCatalog.search(query, limit);
+    }
+
     // Add New Movie
     @Transactional
     public Movie addMovie(Movie movie) {
         //check if the movie already exist
-        if (movieRepository.findByTitle(movie.getTitle()).isPresent()) {
+        if (movieCatalog.findByTitle(movie.getTitle()).isPresent()) {
             throw new DataConflictException("Movie with title '" + movie.getTitle() + "' already exists.");
         }
-        return movieRepository.save(movie);
+        Movie savedMovie;
+        try {
+            savedMovie = movieRepository.save(movie);
+            movieRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            //added by someone else since the catalog was read, caught by the unique index on the title
+            if (!UniqueKeys.isViolation(e, UniqueKeys.MOVIE_TITLE)) {
+                throw e;
+            }
+            throw new DataConflictException("Movie with title '" + movie.getTitle() + "' already exists.");
+        }
+        movieCatalog.putAfterCommit(savedMovie);
+        catalogVersion.bumpAfterCommit(CatalogVersion.Part.MOVIES);
+        return savedMovie;
     }
 
     //Update Movie by Title
     @Transactional
     public Movie updateMovie(String title, Movie updatedMovie) {
-        Movie existingMovie = movieRepository.findByTitle(title)
+        Movie existingMovie = movieCatalog.findByTitle(title)
                 //check if the movie_title is in the database
                 .orElseThrow(() -> new ResourceNotFoundException("Movie not found with title: " + title));
 
@@ -43,16 +113,157 @@ public class MovieService {
         existingMovie.setRating(updatedMovie.getRating());
         existingMovie.setReleaseYear(updatedMovie.getReleaseYear());
 
-        return movieRepository.save(existingMovie);
+        Movie savedMovie = movieRepository.save(existingMovie);
+        movieCatalog.putAfterCommit(savedMovie);
+        catalogVersion.bumpAfterCommit(CatalogVersion.Part.MOVIES);
+        return savedMovie;
     }
 
-    //Delete Movie by Title
-    @Transactional
+    //Add or update many movies by title, e.g. a distributor feed.
+    //Each chunk of titles is looked up with one query, the differences are written as batched inserts and updates
+    //in one transaction per chunk. A chunk that fails is reported row by row, the chunks before it stay written
+    public MovieUpsertReportDTO upsertMovies(List<Movie> movies) {
+        if (movies.size() > MAX_UPSERT_ROWS) {
+            throw new InvalidInputException("At most " + MAX_UPSERT_ROWS + " movies can be upserted at once.");
+        }
+        List<UpsertRow> rows = new ArrayList<>(movies.size());
+        List<UpsertRow> valid = new ArrayList<>(movies.size());
+        Map<String, Integer> rowOfTitle = new HashMap<>();
+        for (Movie movie : movies) {
+            UpsertRow row = new UpsertRow(rows.size() + 1, movie);
+            rows.add(row);
+            row.error = validate(movie);
+            if (row.error == null) {
+                Integer first = rowOfTitle.putIfAbsent(movie.getTitle(), row.number);
+                if (first != null) {
+                    row.error = "Title already appears in row " + first + ".";
+                }
+            }
+            if (row.error == null) {
+                valid.add(row);
+            } else {
+                row.outcome = MovieUpsertRowDTO.Outcome.REJECTED;
+            }
+        }
+
+        int chunkSize = catalogProperties.importChunkSize();
+        for (int from = 0; from < valid.size(); from += chunkSize) {
+            upsertChunk(valid.subList(from, Math.min(from + chunkSize, valid.size())));
+        }
+
+        Map<MovieUpsertRowDTO.Outcome, Integer> counts = new EnumMap<>(MovieUpsertRowDTO.Outcome.class);
+        List<MovieUpsertRowDTO> results = new ArrayList<>(rows.size());
+        for (UpsertRow row : rows) {
+            counts.merge(row.outcome, 1, Integer::sum);
+            results.add(new MovieUpsertRowDTO(row.number, row.movie == null ? null : row.movie.getTitle(),
+                    row.movieId, row.outcome, row.error));
+        }
+        return new MovieUpsertReportDTO(rows.size(),
+                counts.getOrDefault(MovieUpsertRowDTO.Outcome.CREATED, 0),
+                counts.getOrDefault(MovieUpsertRowDTO.Outcome.UPDATED, 0),
+                counts.getOrDefault(MovieUpsertRowDTO.Outcome.UNCHANGED, 0),
+                counts.getOrDefault(MovieUpsertRowDTO.Outcome.REJECTED, 0),
+                results);
+    }
+
+    private void upsertChunk(List<UpsertRow> chunk) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<String, Movie> stored = new HashMap<>();
+                for (Movie movie : movieRepository.findByTitleIn(chunk.stream().map(row -> row.movie.getTitle()).toList())) {
+                    stored.put(movie.getTitle(), movie);
+                }
+                List<Movie> inserts = new ArrayList<>();
+                List<Movie> changed = new ArrayList<>();
+                for (UpsertRow row : chunk) {
+                    Movie existing = stored.get(row.movie.getTitle());
+                    if (existing == null) {
+                        Movie movie = row.movie;
+                        movie.setId(null);
+                        inserts.add(movie);
+                        row.saved = movie;
+                        row.outcome = MovieUpsertRowDTO.Outcome.CREATED;
+                    } else if (sameDetails(existing, row.movie)) {
+                        row.saved = existing;
+                        row.outcome = MovieUpsertRowDTO.Outcome.UNCHANGED;
+                    } else {
+                        //managed entity, written as a batched update at flush
+                        existing.setGenre(row.movie.getGenre());
+                        existing.setDuration(row.movie.getDuration());
+                        existing.setRating(row.movie.getRating());
+                        existing.setReleaseYear(row.movie.getReleaseYear());
+                        changed.add(existing);
+                        row.saved = existing;
+                        row.outcome = MovieUpsertRowDTO.Outcome.UPDATED;
+                    }
+                }
+                movieRepository.saveAll(inserts);
+                movieRepository.flush();
+                changed.addAll(inserts);
+                movieCatalog.putAllAfterCommit(changed);
+                if (!changed.isEmpty()) {
+                    catalogVersion.bumpAfterCommit(CatalogVersion.Part.MOVIES);
+                }
+            });
+            chunk.forEach(row -> row.movieId = row.saved.getId());
+        } catch (RuntimeException e) {
+            log.warn("Could not upsert {} movies starting at row {}", chunk.size(), chunk.get(0).number, e);
+            String error = UniqueKeys.isViolation(e, UniqueKeys.MOVIE_TITLE)
+                    //a title of this chunk was added by someone else since it was looked up
+                    ? "Movie could not be saved, a title of this chunk was added meanwhile."
+                    : "Movie could not be saved.";
+            for (UpsertRow row : chunk) {
+                row.outcome = MovieUpsertRowDTO.Outcome.REJECTED;
+                row.error = error;
+                row.movieId = null;
+            }
+        }
+    }
+
+    //same checks as the annotations on a single POST, one message per row
+    private String validate(Movie movie) {
+        if (movie == null) {
+            return "Movie is missing.";
+        }
+        Set<ConstraintViolation<Movie>> violations = validator.validate(movie);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", ")) + ".";
+    }
+
+    private static boolean sameDetails(Movie stored, Movie movie) {
+        return stored.getGenre().equals(movie.getGenre())
+                && stored.getDuration() == movie.getDuration()
+                && stored.getRating() == movie.getRating()
+                && stored.getReleaseYear() == movie.getReleaseYear();
+    }
+
+    //Delete Movie by Title, its showtimes and their bookings go with it
     public void deleteMovie(String title) {
-        Movie existingMovie = movieRepository.findByTitle(title)
+        Movie existingMovie = movieCatalog.findByTitle(title)
                 //check if the movie_title is in the database
                 .orElseThrow(() -> new ResourceNotFoundException("Movie not found with title: " + title));
 
-        movieRepository.delete(existingMovie);
+        try {
+            cascadeDeleteService.deleteMovie(existingMovie.getId());
+        } finally {
+            //also after a failure, showtimes deleted before it are committed
+            catalogVersion.bumpAfterCommit(CatalogVersion.Part.MOVIES, CatalogVersion.Part.SHOWTIMES);
+        }
+    }
+
+    private static final class UpsertRow {
+        private final int number;
+        private final Movie movie;
+        private Movie saved;
+        private Long movieId;
+        private MovieUpsertRowDTO.Outcome outcome;
+        private String error;
+
+        private UpsertRow(int number, Movie movie) {
+            this.number = number;
+            this.movie = movie;
+        }
     }
 }
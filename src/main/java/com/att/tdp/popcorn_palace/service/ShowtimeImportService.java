@@ -0,0 +1,335 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.catalog.CatalogVersion;
+import com.att.tdp.popcorn_palace.config.CatalogProperties;
+import com.att.tdp.popcorn_palace.dto.ShowtimeImportReportDTO;
+import com.att.tdp.popcorn_palace.dto.ShowtimeImportRowDTO;
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.exception.InvalidInputException;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.schedule.OverlapConstraint;
+import com.att.tdp.popcorn_palace.schedule.TheaterSchedule;
+import com.att.tdp.popcorn_palace.schedule.TheaterTimeline;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+//Bulk import of a whole schedule.
+//The body is read line by line, every row is checked against one preloaded map of movie durations,
+//then the rows of each theater are swept in start order against each other and against the showtimes already stored.
+//Accepted rows are inserted in chunks, each chunk in its own transaction with batched inserts.
+@Slf4j
+@Service
+public class ShowtimeImportService {
+
+    static final String CSV_HEADER = "movieId,theater,startTime,endTime,price";
+    //every row is held until the report is built, a larger schedule is imported in several requests
+    static final int MAX_IMPORT_ROWS = 50_000;
+
+    private final ShowtimeRepository showtimeRepository;
+    private final MovieRepository movieRepository;
+    private final TheaterSchedule theaterSchedule;
+    private final CatalogVersion catalogVersion;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final TransactionTemplate chunkTransaction;
+    private final Map<String, Counter> overlapRejections = new HashMap<>();
+    private final Counter importedRows;
+    private final Counter rejectedRows;
+
+    public ShowtimeImportService(ShowtimeRepository showtimeRepository, MovieRepository movieRepository,
+                                 TheaterSchedule theaterSchedule, CatalogVersion catalogVersion, ObjectMapper objectMapper,
+                                 CatalogProperties catalogProperties, PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.showtimeRepository = showtimeRepository;
+        this.movieRepository = movieRepository;
+        this.theaterSchedule = theaterSchedule;
+        this.catalogVersion = catalogVersion;
+        this.objectMapper = objectMapper;
+        this.chunkSize = catalogProperties.importChunkSize();
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        //same meter as the single showtime writes, batch is a row overlapping an earlier row of the same import
+        for (String check : List.of("schedule", "batch", "constraint")) {
+            overlapRejections.put(check, Counter.builder("popcorn.showtimes.overlap.rejected")
+                    .description("Showtimes rejected for overlapping another showtime of the theater")
+                    .tag("operation", "import")
+                    .tag("check", check)
+                    .register(meterRegistry));
+        }
+        this.importedRows = importedRows("imported", meterRegistry);
+        this.rejectedRows = importedRows("rejected", meterRegistry);
+    }
+
+    // Import a csv schedule, one showtime per line as movieId,theater,startTime,endTime,price (header optional)
+    public ShowtimeImportReportDTO importCsv(Reader body) throws IOException {
+        return importRows(read(body, this::parseCsv));
+    }
+
+    // Import a ndjson schedule, one showtime object per line
+    public ShowtimeImportReportDTO importNdjson(Reader body) throws IOException {
+        return importRows(read(body, this::parseJson));
+    }
+
+    private ShowtimeImportReportDTO importRows(List<Row> rows) {
+        Map<Long, Integer> durations = new HashMap<>();
+        for (Object[] movie : movieRepository.findDurations()) {
+            durations.put((Long) movie[0], (Integer) movie[1]);
+        }
+
+        Map<String, List<Row>> byTheater = new HashMap<>();
+        for (Row row : rows) {
+            if (row.error == null) {
+                row.error = validate(row.showtime, durations);
+            }
+            if (row.error == null) {
+                byTheater.computeIfAbsent(row.showtime.getTheater(), theater -> new ArrayList<>()).add(row);
+            }
+        }
+
+        List<Row> accepted = sweep(byTheater);
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            insert(accepted.subList(from, Math.min(from + chunkSize, accepted.size())));
+        }
+
+        List<ShowtimeImportRowDTO> results = new ArrayList<>(rows.size());
+        int imported = 0;
+        for (Row row : rows) {
+            Long id = row.error == null ? row.showtime.getId() : null;
+            if (id != null) {
+                imported++;
+            }
+            results.add(new ShowtimeImportRowDTO(row.number, id, row.error));
+        }
+        log.info("Imported {} of {} showtimes", imported, rows.size());
+        importedRows.increment(imported);
+        rejectedRows.increment(rows.size() - imported);
+        return new ShowtimeImportReportDTO(rows.size(), imported, rows.size() - imported, results);
+    }
+
+    //same rules as adding a single showtime
+    private String validate(Showtime showtime, Map<Long, Integer> durations) {
+        if (showtime.getMovieId() == null || showtime.getStartTime() == null || showtime.getEndTime() == null
+                || showtime.getTheater() == null || showtime.getTheater().isBlank()) {
+            return "movieId, theater, startTime and endTime are required.";
+        }
+        if (showtime.getPrice() < 1 || showtime.getPrice() > 100) {
+            return "Price must be between 1.0 and 100.0.";
+        }
+        Integer movieDuration = durations.get(showtime.getMovieId());
+        if (movieDuration == null) {
+            return "Movie ID " + showtime.getMovieId() + " does not exist.";
+        }
+        long showtimeDurationMinutes = Duration.between(showtime.getStartTime(), showtime.getEndTime()).toMinutes();
+        if (showtimeDurationMinutes < movieDuration) {
+            return "Showtime duration cannot be shorter than the movie duration.";
+        }
+        if (showtimeDurationMinutes > movieDuration + 10) {
+            return "Showtime duration cannot be more than 10 minutes longer than the movie duration.";
+        }
+        return null;
+    }
+
+    //walks the rows of each theater in start order, a row is kept if it starts after everything kept before it ended
+    //and does not touch a stored showtime. Showtimes that only share an end point overlap, like in addShowtime
+    private List<Row> sweep(Map<String, List<Row>> byTheater) {
+        Map<String, TheaterTimeline> existing = loadExisting(byTheater);
+        List<Row> accepted = new ArrayList<>();
+        for (Map.Entry<String, List<Row>> theater : byTheater.entrySet()) {
+            List<Row> rows = theater.getValue();
+            rows.sort(Comparator.comparing((Row row) -> row.showtime.getStartTime()).thenComparingInt(row -> row.number));
+            TheaterTimeline stored = existing.get(theater.getKey());
+            Row latest = null;
+            for (Row row : rows) {
+                Showtime showtime = row.showtime;
+                if (stored != null && stored.overlaps(showtime.getStartTime(), showtime.getEndTime(), null, true)) {
+                    row.error = "Showtime conflicts with an existing showtime in the same theater.";
+                    overlapRejected("schedule");
+                } else if (latest != null && !showtime.getStartTime().isAfter(latest.showtime.getEndTime())) {
+                    row.error = "Showtime conflicts with row " + latest.number + " in the same theater.";
+                    overlapRejected("batch");
+                } else {
+                    accepted.add(row);
+                    latest = row;
+                }
+            }
+        }
+        return accepted;
+    }
+
+    //stored showtimes of the imported theaters inside the time window of the import, in one query
+    private Map<String, TheaterTimeline> loadExisting(Map<String, List<Row>> byTheater) {
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        for (List<Row> rows : byTheater.values()) {
+            for (Row row : rows) {
+                if (from == null || row.showtime.getStartTime().isBefore(from)) {
+                    from = row.showtime.getStartTime();
+                }
+                if (to == null || row.showtime.getEndTime().isAfter(to)) {
+                    to = row.showtime.getEndTime();
+                }
+            }
+        }
+        Map<String, TheaterTimeline> timelines = new HashMap<>();
+        if (from == null) {
+            return timelines;
+        }
+        for (Object[] slot : showtimeRepository.findSlotsOfTheatersBetween(byTheater.keySet(), from, to)) {
+            timelines.computeIfAbsent((String) slot[0], theater -> new TheaterTimeline())
+                    .put(new TheaterTimeline.Slot((Long) slot[1], (LocalDateTime) slot[2], (LocalDateTime) slot[3]));
+        }
+        return timelines;
+    }
+
+    //a chunk that fails to insert is reported row by row, the chunks before it stay imported
+    private void insert(List<Row> chunk) {
+        try {
+            chunkTransaction.executeWithoutResult(status -> {
+                List<Showtime> showtimes = chunk.stream().map(row -> row.showtime).toList();
+                showtimeRepository.saveAll(showtimes).forEach(theaterSchedule::putAfterCommit);
+                catalogVersion.bumpAfterCommit(CatalogVersion.Part.SHOWTIMES);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not import {} showtimes starting at row {}", chunk.size(), chunk.get(0).number, e);
+            //another writer took a slot of this chunk since the sweep
+            boolean overlap = OverlapConstraint.isViolation(e);
+            if (overlap) {
+                overlapRejected("constraint");
+            }
+            String error = overlap
+                    ? "Showtime could not be saved, a showtime of this chunk conflicts with one added meanwhile."
+                    : "Showtime could not be saved.";
+            for (Row row : chunk) {
+                row.showtime.setId(null);
+                row.error = error;
+            }
+        }
+    }
+
+    private void overlapRejected(String check) {
+        overlapRejections.get(check).increment();
+    }
+
+    private static Counter importedRows(String outcome, MeterRegistry meterRegistry) {
+        return Counter.builder("popcorn.showtimes.import.rows")
+                .description("Rows of showtime imports by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private List<Row> read(Reader body, LineParser parser) throws IOException {
+        BufferedReader reader = body instanceof BufferedReader buffered ? buffered : new BufferedReader(body);
+        List<Row> rows = new ArrayList<>();
+        String line;
+        boolean first = true;
+        while ((line = reader.readLine()) != null) {
+            if (first) {
+                first = false;
+                //tolerate a byte order mark and a csv header
+                line = line.startsWith("\uFEFF") ? line.substring(1) : line;
+                if (line.replace(" ", "").equalsIgnoreCase(CSV_HEADER)) {
+                    continue;
+                }
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            if (rows.size() == MAX_IMPORT_ROWS) {
+                throw new InvalidInputException("At most " + MAX_IMPORT_ROWS + " showtimes can be imported at once.");
+            }
+            Row row = new Row(rows.size() + 1);
+            try {
+                row.showtime = parser.parse(line);
+                row.showtime.setId(null);
+            } catch (IllegalArgumentException | DateTimeParseException | JsonProcessingException e) {
+                row.error = "Malformed row: " + e.getMessage();
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private Showtime parseJson(String line) throws JsonProcessingException {
+        Showtime showtime = objectMapper.readValue(line, Showtime.class);
+        if (showtime == null) {
+            throw new IllegalArgumentException("expected a showtime object");
+        }
+        return showtime;
+    }
+
+    private Showtime parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 5) {
+            throw new IllegalArgumentException("expected 5 fields (" + CSV_HEADER + ") but got " + fields.size());
+        }
+        Showtime showtime = new Showtime();
+        showtime.setMovieId(Long.valueOf(fields.get(0).trim()));
+        showtime.setTheater(fields.get(1).trim());
+        showtime.setStartTime(LocalDateTime.parse(fields.get(2).trim()));
+        showtime.setEndTime(LocalDateTime.parse(fields.get(3).trim()));
+        showtime.setPrice(Double.parseDouble(fields.get(4).trim()));
+        return showtime;
+    }
+
+    //comma separated, a field may be quoted and a quote inside it is doubled
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quote");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private interface LineParser {
+        Showtime parse(String line) throws JsonProcessingException;
+    }
+
+    private static final class Row {
+        private final int number;
+        private Showtime showtime;
+        private String error;
+
+        private Row(int number) {
+            this.number = number;
+        }
+    }
+}
@@ -1,29 +1,77 @@
 package com.att.tdp.popcorn_palace.service;
 
+import com.att.tdp.popcorn_palace.catalog.CatalogVersion;
+import com.att.tdp.popcorn_palace.catalog.MovieCatalog;
+import com.att.tdp.popcorn_palace.dto.CursorPageDTO;
 import com.att.tdp.popcorn_palace.entity.Movie;
 import com.att.tdp.popcorn_palace.entity.Showtime;
 import com.att.tdp.popcorn_palace.exception.*;
-import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.inventory.SeatInventory;
+import com.att.tdp.popcorn_palace.inventory.SeatMap;
 import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.repository.ShowtimeSpecifications;
+import com.att.tdp.popcorn_palace.schedule.OverlapConstraint;
+import com.att.tdp.popcorn_palace.schedule.ShowtimeCache;
+import com.att.tdp.popcorn_palace.schedule.TheaterSchedule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
-@RequiredArgsConstructor
 public class ShowtimeService {
 
+    static final int MAX_PAGE_SIZE = 100;
+
     private final ShowtimeRepository showtimeRepository;
-    private final MovieRepository movieRepository;
+    private final MovieCatalog movieCatalog;
+    private final SeatInventory seatInventory;
+    private final CascadeDeleteService cascadeDeleteService;
+    private final TheaterSchedule theaterSchedule;
+    private final ShowtimeCache showtimeCache;
+    private final CatalogVersion catalogVersion;
+    //operation -> check -> counter, registered up front
+    private final Map<String, Map<String, Counter>> overlapRejections = new HashMap<>();
+
+    public ShowtimeService(ShowtimeRepository showtimeRepository, MovieCatalog movieCatalog, SeatInventory seatInventory,
+                           CascadeDeleteService cascadeDeleteService, TheaterSchedule theaterSchedule, ShowtimeCache showtimeCache,
+                           CatalogVersion catalogVersion, MeterRegistry meterRegistry) {
+        this.showtimeRepository = showtimeRepository;
+        this.movieCatalog = movieCatalog;
+        this.seatInventory = seatInventory;
+        this.cascadeDeleteService = cascadeDeleteService;
+        this.theaterSchedule = theaterSchedule;
+        this.showtimeCache = showtimeCache;
+        this.catalogVersion = catalogVersion;
+        for (String operation : List.of("add", "update")) {
+            Map<String, Counter> byCheck = new HashMap<>();
+            for (String check : List.of("schedule", "constraint")) {
+                byCheck.put(check, Counter.builder("popcorn.showtimes.overlap.rejected")
+                        .description("Showtimes rejected for overlapping another showtime of the theater")
+                        .tag("operation", operation)
+                        .tag("check", check)
+                        .register(meterRegistry));
+            }
+            overlapRejections.put(operation, byCheck);
+        }
+    }
 
     //Add a new showtime
     @Transactional
     public Showtime addShowtime(Showtime showtime) {
 
-        Movie movie = movieRepository.findById(showtime.getMovieId())
+        Movie movie = movieCatalog.findById(showtime.getMovieId())
                 .orElseThrow(() -> new ResourceNotFoundException("Movie ID " + showtime.getMovieId() + " does not exist."));
 
 
@@ -37,14 +85,17 @@ public class ShowtimeService {
             throw new InvalidInputException("Showtime duration cannot be more than 10 minutes longer than the movie duration.");
         }
 
-        boolean overlappingExists = showtimeRepository.existsByTheaterAndOverlappingTimeRange(
+        boolean overlappingExists = theaterSchedule.overlapsAny(
                 showtime.getTheater(), showtime.getStartTime(), showtime.getEndTime());
 
         if (overlappingExists) {
-            throw new DataConflictException("Showtime conflicts with an existing showtime in the same theater.");
+            throw overlapRejected("add", "schedule");
         }
 
-        return showtimeRepository.save(showtime);
+        Showtime savedShowtime = saveChecked(showtime, "add");
+        theaterSchedule.putAfterCommit(savedShowtime);
+        catalogVersion.bumpAfterCommit(CatalogVersion.Part.SHOWTIMES);
+        return savedShowtime;
     }
 
 
@@ -55,7 +106,7 @@ public class ShowtimeService {
         Showtime existingShowtime = showtimeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Showtime not found with ID: " + id));
 
-        Movie movie = movieRepository.findById(updatedShowtime.getMovieId())
+        Movie movie = movieCatalog.findById(updatedShowtime.getMovieId())
                 .orElseThrow(() -> new ResourceNotFoundException("Movie ID " + updatedShowtime.getMovieId() + " does not exist."));
 
         long showtimeDurationMinutes = Duration.between(updatedShowtime.getStartTime(), updatedShowtime.getEndTime()).toMinutes();
@@ -67,7 +118,7 @@ public class ShowtimeService {
         }
 
         // Improved Conflict Check for Updates
-        boolean overlappingExists = showtimeRepository.existsByTheaterAndOverlappingTimeRangeExcludingSelf(
+        boolean overlappingExists = theaterSchedule.overlapsOther(
                 updatedShowtime.getTheater(),
                 updatedShowtime.getStartTime().minusMinutes(5), // 5-minute flexibility
                 updatedShowtime.getEndTime().plusMinutes(5),     // 5-minute flexibility
@@ -75,7 +126,7 @@ public class ShowtimeService {
         );
 
         if (overlappingExists) {
-            throw new DataConflictException("Showtime conflicts with an existing showtime in the same theater.");
+            throw overlapRejected("update", "schedule");
         }
 
         // Update Showtime Details
@@ -84,32 +135,114 @@ public class ShowtimeService {
         existingShowtime.setEndTime(updatedShowtime.getEndTime());
         existingShowtime.setPrice(updatedShowtime.getPrice());
 
-        return showtimeRepository.save(existingShowtime);
+        Showtime savedShowtime = saveChecked(existingShowtime, "update");
+        theaterSchedule.putAfterCommit(savedShowtime);
+        showtimeCache.evictAfterCommit(savedShowtime.getId());
+        catalogVersion.bumpAfterCommit(CatalogVersion.Part.SHOWTIMES);
+        return savedShowtime;
     }
 
 
 
+    //flushed right away so an overlap rejected by the exclusion constraint surfaces here and not at commit
+    private Showtime saveChecked(Showtime showtime, String operation) {
+        try {
+            Showtime savedShowtime = showtimeRepository.save(showtime);
+            showtimeRepository.flush();
+            return savedShowtime;
+        } catch (DataIntegrityViolationException e) {
+            if (OverlapConstraint.isViolation(e)) {
+                throw overlapRejected(operation, "constraint");
+            }
+            throw e;
+        }
+    }
+
+    //check is where the overlap was caught: schedule (the configured overlap check) or constraint (the exclusion constraint)
+    private DataConflictException overlapRejected(String operation, String check) {
+        overlapRejections.get(operation).get(check).increment();
+        return new DataConflictException("Showtime conflicts with an existing showtime in the same theater.");
+    }
+
     // Get a showtime by ID
     public Showtime getShowtimeById(Long id) {
-        return showtimeRepository.findById(id)
+        return showtimeCache.get(id)
                 //check if the showtime id exists
                 .orElseThrow(() -> new ResourceNotFoundException("Showtime not found with ID: " + id));
     }
 
+    // Get the taken seats of a showtime, the database is only read the first time a showtime is asked for
+    public SeatMap getSeatMap(Long id) {
+        if (!seatInventory.isLoaded(id) && !showtimeRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Showtime not found with ID: " + id);
+        }
+        return seatInventory.seatMap(id);
+    }
+
     //get all showtimes (for testing)
     public List<Showtime> getAllShowtimes() {
         List<Showtime> showtimes = showtimeRepository.findAll();
         return showtimes;//return empty list if there is nothing
     }
 
-    // Delete a showtime by ID
-    @Transactional
+    //One page of showtimes in start time order, every filter is optional.
+    //The cursor is the (startTime, id) of the last showtime of the previous page, so each page is one index range scan
+    public CursorPageDTO<Showtime> listShowtimes(String theater, Long movieId, LocalDateTime from, LocalDateTime to,
+                                                 String after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidInputException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        LocalDateTime afterStart = null;
+        Long afterId = null;
+        if (after != null) {
+            String cursor = decodeCursor(after);
+            int separator = cursor.lastIndexOf('_');
+            try {
+                afterStart = LocalDateTime.parse(cursor.substring(0, Math.max(separator, 0)));
+                afterId = Long.valueOf(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new InvalidInputException("Invalid cursor.");
+            }
+        }
+        Specification<Showtime> filter = ShowtimeSpecifications.inTheater(theater)
+                .and(ShowtimeSpecifications.ofMovie(movieId))
+                .and(ShowtimeSpecifications.startingBetween(from, to))
+                .and(ShowtimeSpecifications.after(afterStart, afterId));
+        //one extra row tells if there is a next page
+        List<Showtime> showtimes = showtimeRepository.findBy(filter,
+                query -> query.sortBy(Sort.by("startTime", "id")).limit(limit + 1).all());
+        if (showtimes.size() <= limit) {
+            return new CursorPageDTO<>(showtimes, null);
+        }
+        List<Showtime> page = List.copyOf(showtimes.subList(0, limit));
+        Showtime last = page.get(limit - 1);
+        return new CursorPageDTO<>(page, encodeCursor(last.getStartTime() + "_" + last.getId()));
+    }
+
+    private static String encodeCursor(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException("Invalid cursor.");
+        }
+    }
+
+    // Delete a showtime by ID, its bookings go with it
     public void deleteShowtime(Long id) {
         //check if the showtime id exists
         if (!showtimeRepository.existsById(id)) {
             throw new ResourceNotFoundException("Showtime not found with ID: " + id);
         }
 
-        showtimeRepository.deleteById(id);
+        try {
+            cascadeDeleteService.deleteShowtimes(List.of(id));
+        } finally {
+            //also after a failure, chunks deleted before it are committed
+            catalogVersion.bumpAfterCommit(CatalogVersion.Part.SHOWTIMES);
+        }
     }
 }
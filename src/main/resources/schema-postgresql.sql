@@ -0,0 +1,31 @@
+-- bookings.user_id used to be a varchar column, it is a native uuid now
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = ''bookings'' AND column_name = ''user_id'' AND data_type <> ''uuid'') THEN
+        ALTER TABLE bookings ALTER COLUMN user_id TYPE uuid USING user_id::uuid;
+    END IF;
+END';
+
+-- booking history of a user, newest first
+CREATE INDEX IF NOT EXISTS idx_bookings_user_booking ON bookings (user_id, booking_id);
+
+-- showtime ids come from a pooled sequence now, move it past the ids the old identity column handed out
+SELECT setval('showtimes_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM showtimes) + 50, (SELECT last_value FROM showtimes_seq)));
+
+-- movie ids come from a pooled sequence now as well
+SELECT setval('movies_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM movies) + 50, (SELECT last_value FROM movies_seq)));
+
+-- showtime listings filtered by theater or movie, in start time order
+CREATE INDEX IF NOT EXISTS idx_showtimes_theater_start ON showtimes (theater, start_time);
+CREATE INDEX IF NOT EXISTS idx_showtimes_movie_start ON showtimes (movie_id, start_time);
+
+-- two showtimes of the same theater may not overlap or touch, enforced by the database itself
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = ''showtimes_no_overlap'') THEN
+        ALTER TABLE showtimes ADD CONSTRAINT showtimes_no_overlap
+            EXCLUDE USING gist (theater WITH =, tsrange(start_time, end_time, ''[]'') WITH &&);
+    END IF;
+END';
@@ -3,23 +3,41 @@ package com.att.tdp.popcorn_palace;
 import com.att.tdp.popcorn_palace.controller.MovieController;
 import com.att.tdp.popcorn_palace.controller.ShowtimeController;
 import com.att.tdp.popcorn_palace.controller.BookingController;
+import com.att.tdp.popcorn_palace.dto.CursorPageDTO;
+import com.att.tdp.popcorn_palace.dto.MovieUpsertReportDTO;
+import com.att.tdp.popcorn_palace.dto.ShowtimeImportReportDTO;
+import com.att.tdp.popcorn_palace.entity.Booking;
+import com.att.tdp.popcorn_palace.entity.Movie;
+import com.att.tdp.popcorn_palace.entity.Showtime;
 import com.att.tdp.popcorn_palace.repository.MovieRepository;
 import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
 import com.att.tdp.popcorn_palace.repository.BookingRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+//keeps the prometheus registry, tests run with a simple in-memory one otherwise
+@AutoConfigureObservability
 class PopcornPalaceApplicationTests {
 
 	@Autowired
@@ -86,5 +104,145 @@ class PopcornPalaceApplicationTests {
 		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
 	}
 
+	//user ids are stored as uuid and the history query runs against the real schema
+	@Test
+	void getUserBookings_EndpointWorks() {
+		String baseUrl = "http://localhost:" + port + "/bookings?userId=84438967-f68f-4fa0-b620-0f08217e76af&limit=5";
+		ResponseEntity<String> response = restTemplate.getForEntity(baseUrl, String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(response.getBody()).contains("\"items\":[]");
+	}
+
+	//deleting a movie removes its showtimes and their bookings
+	@Test
+	void deleteMovie_CascadesToShowtimesAndBookings() {
+		//added through the api so the movie catalog knows it
+		Movie movie = restTemplate.postForObject("http://localhost:" + port + "/movies",
+				new Movie(null, "Cascade Test", "Drama", 100, 7.0, 2020), Movie.class);
+		LocalDateTime start = LocalDateTime.now().plusDays(3);
+		Showtime showtime = showtimeRepository.save(new Showtime(null, movie.getId(), 20.0, "Cascade Hall", start, start.plusMinutes(105)));
+		bookingRepository.save(new Booking(null, showtime.getId(), 1, "84438967-f68f-4fa0-b620-0f08217e76af"));
+
+		restTemplate.delete("http://localhost:" + port + "/movies/" + movie.getTitle());
+
+		assertThat(movieRepository.findById(movie.getId())).isEmpty();
+		assertThat(showtimeRepository.findById(showtime.getId())).isEmpty();
+		assertThat(bookingRepository.findSeatNumbersByShowtimeId(showtime.getId())).isEmpty();
+	}
+
+	//a csv schedule goes through the real parser, sweep and batched inserts
+	@Test
+	void importShowtimes_Csv_InsertsSchedule() {
+		Movie movie = movieRepository.save(new Movie(null, "Import Test", "Drama", 90, 7.0, 2021));
+		LocalDateTime start = LocalDateTime.now().plusDays(30).withNano(0);
+		StringBuilder csv = new StringBuilder("movieId,theater,startTime,endTime,price\n");
+		for (int i = 0; i < 1000; i++) {
+			LocalDateTime rowStart = start.plusMinutes(100L * (i / 10));
+			csv.append(movie.getId()).append(",Import Hall ").append(i % 10).append(',')
+					.append(rowStart).append(',').append(rowStart.plusMinutes(90)).append(",12.5\n");
+		}
+		//overlaps the first row of Import Hall 0
+		csv.append(movie.getId()).append(",Import Hall 0,").append(start.plusMinutes(30)).append(',').append(start.plusMinutes(120)).append(",12.5\n");
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.parseMediaType("text/csv"));
+		ResponseEntity<ShowtimeImportReportDTO> response = restTemplate.postForEntity("http://localhost:" + port + "/showtimes/import",
+				new HttpEntity<>(csv.toString(), headers), ShowtimeImportReportDTO.class);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(response.getBody().imported()).isEqualTo(1000);
+		assertThat(response.getBody().rows().get(1000).error()).isEqualTo("Showtime conflicts with row 1 in the same theater.");
+		assertThat(showtimeRepository.findById(response.getBody().rows().get(999).showtimeId())).isPresent();
+	}
 
+	//pages of a filtered showtime listing follow each other without gaps or repeats
+	@Test
+	void listShowtimes_PagesThroughTheater() {
+		Movie movie = movieRepository.save(new Movie(null, "Paging Test", "Paging", 60, 7.0, 2022));
+		LocalDateTime start = LocalDateTime.of(2031, 1, 1, 10, 0);
+		for (int i = 0; i < 5; i++) {
+			showtimeRepository.save(new Showtime(null, movie.getId(), 10.0, "Paging Hall", start.plusHours(2L * i), start.plusHours(2L * i).plusMinutes(60)));
+		}
+		showtimeRepository.save(new Showtime(null, movie.getId(), 10.0, "Other Paging Hall", start, start.plusMinutes(60)));
+
+		List<Long> seen = new ArrayList<>();
+		String cursor = null;
+		do {
+			String url = "http://localhost:" + port + "/showtimes?theater=Paging Hall&limit=2" + (cursor == null ? "" : "&after=" + cursor);
+			CursorPageDTO<Map<String, Object>> page = restTemplate.exchange(url, HttpMethod.GET, null,
+					new ParameterizedTypeReference<CursorPageDTO<Map<String, Object>>>() {}).getBody();
+			page.items().forEach(item -> seen.add(((Number) item.get("id")).longValue()));
+			cursor = page.nextCursor();
+		} while (cursor != null);
+
+		assertThat(seen).hasSize(5).doesNotHaveDuplicates();
+		String movies = restTemplate.getForObject("http://localhost:" + port + "/movies?genre=Paging&releaseYear=2022", String.class);
+		assertThat(movies).contains("Paging Test").contains("\"nextCursor\":null");
+	}
+
+	//the showtime export streams one json object per line straight from the table
+	@Test
+	void exportShowtimes_StreamsNdjson() {
+		Movie movie = movieRepository.save(new Movie(null, "Export Test", "Drama", 60, 7.0, 2022));
+		LocalDateTime start = LocalDateTime.of(2032, 1, 1, 10, 0);
+		Showtime showtime = showtimeRepository.save(new Showtime(null, movie.getId(), 10.0, "Export Hall", start, start.plusMinutes(60)));
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.ACCEPT, "application/x-ndjson");
+		ResponseEntity<String> response = restTemplate.exchange("http://localhost:" + port + "/showtimes/export", HttpMethod.GET,
+				new HttpEntity<>(headers), String.class);
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(response.getHeaders().getContentType().toString()).isEqualTo("application/x-ndjson");
+		assertThat(response.getBody().lines()).allMatch(line -> line.startsWith("{\"id\":"))
+				.anyMatch(line -> line.contains("\"id\":" + showtime.getId() + ",") && line.contains("Export Hall"));
+	}
+
+	//the unique index on the title backs the catalog check
+	@Test
+	void addMovie_DuplicateTitle_Returns409() {
+		String url = "http://localhost:" + port + "/movies";
+		restTemplate.postForObject(url, new Movie(null, "Unique Test", "Drama", 100, 7.0, 2020), Movie.class);
+
+		ResponseEntity<String> duplicate = restTemplate.postForEntity(url, new Movie(null, "Unique Test", "Comedy", 90, 6.0, 2021), String.class);
+
+		assertThat(duplicate.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+		assertThat(movieRepository.findByTitle("Unique Test")).isPresent();
+	}
+
+	//a feed adds new titles and updates known ones, search sees both right away
+	@Test
+	void upsertMovies_Feed_InsertsAndUpdates() {
+		String url = "http://localhost:" + port + "/movies";
+		restTemplate.postForObject(url, new Movie(null, "Feed Known", "Drama", 100, 6.0, 2020), Movie.class);
+
+		MovieUpsertReportDTO report = restTemplate.postForObject(url + "/bulk", List.of(
+				new Movie(null, "Feed Known", "Drama", 100, 7.5, 2020),
+				new Movie(null, "Feed New One", "Comedy", 90, 6.5, 2021),
+				new Movie(null, "Feed New Two", "Comedy", 95, 6.0, 2022)), MovieUpsertReportDTO.class);
+
+		assertThat(report.created()).isEqualTo(2);
+		assertThat(report.updated()).isEqualTo(1);
+		assertThat(movieRepository.findByTitle("Feed Known").orElseThrow().getRating()).isEqualTo(7.5);
+		ResponseEntity<List<Movie>> found = restTemplate.exchange(url + "/search?q=feed new", HttpMethod.GET, null,
+				new ParameterizedTypeReference<>() {});
+		assertThat(found.getBody()).extracting(Movie::getTitle).containsExactly("Feed New One", "Feed New Two");
+	}
+
+	//the scrape endpoint carries the booking, error, repository and connection pool meters
+	@Test
+	void prometheus_AfterConflict_ExposesMeters() {
+		String url = "http://localhost:" + port + "/movies";
+		restTemplate.postForObject(url, new Movie(null, "Scraped Twice", "Drama", 100, 7.0, 2020), Movie.class);
+		restTemplate.postForEntity(url, new Movie(null, "Scraped Twice", "Drama", 100, 7.0, 2020), String.class);
+
+		String scrape = restTemplate.getForObject("http://localhost:" + port + "/actuator/prometheus", String.class);
+
+		assertThat(scrape)
+				.contains("popcorn_http_errors_total{exception=\"DataConflictException\",status=\"409\"}")
+				.contains("spring_data_repository_invocations_seconds_bucket{")
+				.contains("http_server_requests_seconds_bucket{")
+				.contains("hikaricp_connections_pending{")
+				.contains("popcorn_catalog_movies ");
+	}
 }
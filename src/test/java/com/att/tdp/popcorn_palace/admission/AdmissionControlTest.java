@@ -0,0 +1,131 @@
+package com.att.tdp.popcorn_palace.admission;
+
+import com.att.tdp.popcorn_palace.config.AdmissionProperties;
+import com.att.tdp.popcorn_palace.dto.AdmissionStatusDTO;
+import com.att.tdp.popcorn_palace.exception.AdmissionQueuedException;
+import com.att.tdp.popcorn_palace.exception.InvalidInputException;
+import com.att.tdp.popcorn_palace.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MutableClock clock;
+    private AdmissionControl admissionControl;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock();
+        admissionControl = new AdmissionControl(new AdmissionProperties(true, 2, 2, Duration.ofSeconds(30)), meterRegistry, clock, false);
+    }
+
+    //requests beyond the concurrency of a showtime are queued in arrival order
+    @Test
+    void enter_ShowtimeBusy_QueuesInOrder() {
+        admissionControl.enter(1L, null);
+        admissionControl.enter(1L, null);
+
+        AdmissionQueuedException first = assertThrows(AdmissionQueuedException.class, () -> admissionControl.enter(1L, null));
+        AdmissionQueuedException second = assertThrows(AdmissionQueuedException.class, () -> admissionControl.enter(1L, null));
+        assertEquals(1, first.getPosition());
+        assertEquals(2, second.getPosition());
+
+        //other showtimes are not affected
+        assertNotNull(admissionControl.enter(2L, null));
+        assertEquals(3.0, meterRegistry.get("popcorn.admission.admitted").counter().count());
+        assertEquals(2.0, meterRegistry.get("popcorn.admission.queued").counter().count());
+    }
+
+    //a full waiting room rejects new requests
+    @Test
+    void enter_QueueFull_ThrowsTooManyRequests() {
+        admissionControl.enter(1L, null);
+        admissionControl.enter(1L, null);
+        assertThrows(AdmissionQueuedException.class, () -> admissionControl.enter(1L, null));
+        assertThrows(AdmissionQueuedException.class, () -> admissionControl.enter(1L, null));
+
+        assertThrows(TooManyRequestsException.class, () -> admissionControl.enter(1L, null));
+        assertEquals(1.0, meterRegistry.get("popcorn.admission.rejected").counter().count());
+    }
+
+    //a finished request admits the head of the queue, which then gets in with its token
+    @Test
+    void close_AdmitsHeadOfQueue() {
+        AdmissionControl.Permit permit = admissionControl.enter(1L, null);
+        admissionControl.enter(1L, null);
+        UUID token = assertThrows(AdmissionQueuedException.class, () -> admissionControl.enter(1L, null)).getToken();
+        UUID next = assertThrows(AdmissionQueuedException.class, () -> admissionControl.enter(1L, null)).getToken();
+
+        permit.close();
+
+        AdmissionStatusDTO status = admissionControl.status(token).orElseThrow();
+        assertTrue(status.admitted());
+        assertEquals(1, admissionControl.status(next).orElseThrow().position());
+        assertNotNull(admissionControl.enter(1L, token));
+        assertTrue(admissionControl.status(token).isEmpty());
+    }
+
+    //an admitted token that is never used gives its slot to the next one
+    @Test
+    void sweep_UnusedAdmittedToken_FreesSlot() {
+        AdmissionControl.Permit permit = admissionControl.enter(1L, null);
+        admissionControl.enter(1L, null);
+        UUID token = assertThrows(AdmissionQueuedException.class, () -> admissionControl.enter(1L, null)).getToken();
+        UUID next = assertThrows(AdmissionQueuedException.class, () -> admissionControl.enter(1L, null)).getToken();
+        permit.close();
+
+        clock.advance(Duration.ofSeconds(20));
+        admissionControl.status(next);
+        clock.advance(Duration.ofSeconds(15));
+        admissionControl.sweep();
+
+        assertTrue(admissionControl.status(token).isEmpty());
+        assertTrue(admissionControl.status(next).orElseThrow().admitted());
+    }
+
+    //a token only works for the showtime it was issued for
+    @Test
+    void enter_TokenOfOtherShowtime_ThrowsInvalidInputException() {
+        admissionControl.enter(1L, null);
+        admissionControl.enter(1L, null);
+        UUID token = assertThrows(AdmissionQueuedException.class, () -> admissionControl.enter(1L, null)).getToken();
+
+        assertThrows(InvalidInputException.class, () -> admissionControl.enter(2L, token));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2030-01-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
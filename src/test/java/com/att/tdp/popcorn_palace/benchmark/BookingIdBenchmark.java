@@ -0,0 +1,115 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.att.tdp.popcorn_palace.id.UuidV7;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+//Random (v4) vs time ordered (v7) booking ids: cost of generating one, and inserts into a uuid primary key.
+//The index size of each run is printed at the end of the trial.
+//run: mvn -Pbench test-compile exec:exec -Dbench.include=BookingIdBenchmark
+//against postgres: add -Dbench.args="-p jdbcUrl=jdbc:postgresql://localhost:5432/popcorn-palace?user=popcorn-palace&password=popcorn-palace"
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingIdBenchmark {
+
+    private static final int BATCH_SIZE = 50;
+
+    @Benchmark
+    @Threads(4)
+    public UUID generateRandomV4() {
+        return UUID.randomUUID();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public UUID generateTimeOrderedV7() {
+        return UuidV7.next();
+    }
+
+    @State(Scope.Thread)
+    public static class Table {
+
+        @Param({"v4", "v7"})
+        String generator;
+
+        @Param({"jdbc:h2:./target/bench/booking-id"})
+        String jdbcUrl;
+
+        Connection connection;
+        PreparedStatement insert;
+        long rows;
+
+        @Setup
+        public void setUp() throws SQLException {
+            connection = DriverManager.getConnection(jdbcUrl);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS booking_id_bench");
+                statement.execute("""
+                    CREATE TABLE booking_id_bench (
+                        booking_id UUID PRIMARY KEY,
+                        showtime_id BIGINT NOT NULL,
+                        seat_number INT NOT NULL,
+                        user_id VARCHAR(255) NOT NULL)
+                """);
+            }
+            insert = connection.prepareStatement("INSERT INTO booking_id_bench (booking_id, showtime_id, seat_number, user_id) VALUES (?, ?, ?, 'bench')");
+        }
+
+        UUID nextId() {
+            return "v7".equals(generator) ? UuidV7.next() : UUID.randomUUID();
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            long bytes = indexBytes();
+            System.out.printf("%n[%s] %d rows, primary key index %d bytes (%.1f bytes per row)%n", generator, rows, bytes, (double) bytes / Math.max(rows, 1));
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE booking_id_bench");
+            }
+            connection.close();
+        }
+
+        private long indexBytes() throws SQLException {
+            boolean postgres = jdbcUrl.startsWith("jdbc:postgresql:");
+            try (Statement statement = connection.createStatement()) {
+                if (postgres) {
+                    statement.execute("VACUUM booking_id_bench");
+                } else {
+                    statement.execute("CHECKPOINT");
+                }
+                //h2 only reports the table together with its indexes
+                String query = postgres
+                        ? "SELECT pg_relation_size('booking_id_bench_pkey')"
+                        : "SELECT DISK_SPACE_USED('BOOKING_ID_BENCH')";
+                try (ResultSet resultSet = statement.executeQuery(query)) {
+                    resultSet.next();
+                    return resultSet.getLong(1);
+                }
+            }
+        }
+    }
+
+    //one JDBC batch of BATCH_SIZE bookings per operation, the way hibernate sends them
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int[] insertBatch(Table table) throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            table.insert.setObject(1, table.nextId());
+            table.insert.setLong(2, table.rows / 10_000);
+            table.insert.setInt(3, (int) (table.rows++ % 10_000) + 1);
+            table.insert.addBatch();
+        }
+        return table.insert.executeBatch();
+    }
+}
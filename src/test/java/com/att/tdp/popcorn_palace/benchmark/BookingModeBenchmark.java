@@ -0,0 +1,82 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.att.tdp.popcorn_palace.PopcornPalaceApplication;
+import com.att.tdp.popcorn_palace.controller.BookingController;
+import com.att.tdp.popcorn_palace.dto.BookingResponseDTO;
+import com.att.tdp.popcorn_palace.entity.Booking;
+import com.att.tdp.popcorn_palace.entity.Movie;
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//POST /bookings on the request thread (direct) vs through the single writer lanes, many threads on a few hot showtimes.
+//Runs the whole application on H2 in memory without the web layer, the waiting room is switched off.
+//run: mvn -Pbench test-compile exec:exec -Dbench.include=BookingModeBenchmark
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+public class BookingModeBenchmark {
+
+    private static final int HOT_SHOWTIMES = 4;
+
+    @State(Scope.Benchmark)
+    public static class App {
+
+        @Param({"direct", "lanes"})
+        String mode;
+
+        ConfigurableApplicationContext context;
+        BookingController bookingController;
+        final long[] showtimeIds = new long[HOT_SHOWTIMES];
+        final AtomicInteger[] nextSeats = new AtomicInteger[HOT_SHOWTIMES];
+
+        @Setup
+        public void setUp() {
+            context = new SpringApplicationBuilder(PopcornPalaceApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .run(
+                            "--spring.datasource.url=jdbc:h2:mem:booking-mode-" + mode + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                            "--spring.jpa.show-sql=false",
+                            "--logging.level.root=WARN",
+                            "--popcorn-palace.booking.admission.enabled=false",
+                            "--popcorn-palace.booking.lanes.enabled=" + "lanes".equals(mode));
+            bookingController = context.getBean(BookingController.class);
+
+            Movie movie = context.getBean(MovieRepository.class).save(new Movie(null, "Bench", "Drama", 120, 8.0, 2024));
+            ShowtimeRepository showtimeRepository = context.getBean(ShowtimeRepository.class);
+            LocalDateTime start = LocalDateTime.now().plusDays(1);
+            for (int i = 0; i < HOT_SHOWTIMES; i++) {
+                Showtime showtime = showtimeRepository.save(new Showtime(null, movie.getId(), 20.0, "Hall " + i, start, start.plusHours(2)));
+                showtimeIds[i] = showtime.getId();
+                nextSeats[i] = new AtomicInteger();
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    //every request books a fresh seat of one of the hot showtimes
+    @Benchmark
+    public ResponseEntity<BookingResponseDTO> bookTicket(App app) {
+        int hot = ThreadLocalRandom.current().nextInt(HOT_SHOWTIMES);
+        Booking booking = new Booking(null, app.showtimeIds[hot], app.nextSeats[hot].incrementAndGet(), UUID.randomUUID().toString());
+        return app.bookingController.bookTicket(booking, null, null);
+    }
+}
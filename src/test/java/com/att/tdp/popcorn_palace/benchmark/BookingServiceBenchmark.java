@@ -0,0 +1,134 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.att.tdp.popcorn_palace.PopcornPalaceApplication;
+import com.att.tdp.popcorn_palace.config.BookingProperties;
+import com.att.tdp.popcorn_palace.config.CatalogProperties;
+import com.att.tdp.popcorn_palace.dto.BookingResponseDTO;
+import com.att.tdp.popcorn_palace.entity.Booking;
+import com.att.tdp.popcorn_palace.entity.Movie;
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.id.UuidV7;
+import com.att.tdp.popcorn_palace.inventory.SeatHolds;
+import com.att.tdp.popcorn_palace.inventory.SeatInventory;
+import com.att.tdp.popcorn_palace.repository.BookingRepository;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.schedule.ShowtimeCache;
+import com.att.tdp.popcorn_palace.service.BookingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+//BookingService.bookTicket, one fresh seat per call, against in-memory fakes (the service's own cost: validation,
+//showtime cache, seat claim) and against the whole application on H2 (plus transaction, insert and flush).
+//run: mvn -Pbench test-compile exec:exec -Dbench.include=BookingServiceBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingServiceBenchmark {
+
+    private static final int SHOWTIMES = 64;
+    private static final String USER_ID = "84438967-f68f-4fa0-b620-0f08217e76af";
+
+    @State(Scope.Benchmark)
+    public static class Backend {
+
+        @Param({"fakes", "h2"})
+        String backend;
+
+        ConfigurableApplicationContext context;
+        BookingService bookingService;
+        final long[] showtimeIds = new long[SHOWTIMES];
+        final AtomicInteger nextShowtime = new AtomicInteger();
+
+        @Setup
+        public void setUp() {
+            if ("h2".equals(backend)) {
+                startApplication();
+            } else {
+                wireFakes();
+            }
+        }
+
+        private void startApplication() {
+            context = new SpringApplicationBuilder(PopcornPalaceApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .run(
+                            "--spring.datasource.url=jdbc:h2:mem:booking-service;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                            "--spring.jpa.show-sql=false",
+                            "--logging.level.root=WARN");
+            bookingService = context.getBean(BookingService.class);
+            Movie movie = context.getBean(MovieRepository.class).save(new Movie(null, "Bench", "Drama", 120, 8.0, 2024));
+            ShowtimeRepository showtimeRepository = context.getBean(ShowtimeRepository.class);
+            LocalDateTime start = LocalDateTime.now().plusDays(1);
+            for (int i = 0; i < SHOWTIMES; i++) {
+                showtimeIds[i] = showtimeRepository.save(new Showtime(null, movie.getId(), 20.0, "Hall " + i, start, start.plusHours(2))).getId();
+            }
+        }
+
+        //stub only mocks keep no invocation history, so they do not grow with the run
+        private void wireFakes() {
+            BookingRepository bookingRepository = Mockito.mock(BookingRepository.class, Mockito.withSettings().stubOnly());
+            when(bookingRepository.saveAndFlush(any(Booking.class))).thenAnswer(invocation -> {
+                Booking booking = invocation.getArgument(0);
+                booking.setBookingId(UuidV7.next());
+                return booking;
+            });
+            ShowtimeRepository showtimeRepository = Mockito.mock(ShowtimeRepository.class, Mockito.withSettings().stubOnly());
+            LocalDateTime start = LocalDateTime.now().plusDays(1);
+            when(showtimeRepository.findById(anyLong())).thenAnswer(invocation ->
+                    Optional.of(new Showtime(invocation.getArgument(0), 1L, 20.0, "Hall", start, start.plusHours(2))));
+
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            SeatInventory seatInventory = new SeatInventory(bookingRepository);
+            bookingService = new BookingService(bookingRepository,
+                    new ShowtimeCache(showtimeRepository,
+                            new CatalogProperties(50, 500, CatalogProperties.OverlapCheck.INDEX, 10_000, Duration.ofMinutes(10)), meterRegistry),
+                    seatInventory, new SeatHolds(seatInventory, meterRegistry), new BookingProperties(Duration.ofMinutes(5)), Optional.empty(),
+                    meterRegistry);
+            for (int i = 0; i < SHOWTIMES; i++) {
+                showtimeIds[i] = i + 1;
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    //each thread books its own showtime seat by seat, so no call loses a seat race
+    @State(Scope.Thread)
+    public static class Seats {
+
+        long showtimeId;
+        int nextSeat;
+
+        @Setup
+        public void setUp(Backend backend) {
+            showtimeId = backend.showtimeIds[backend.nextShowtime.getAndIncrement() % SHOWTIMES];
+        }
+    }
+
+    @Benchmark
+    public BookingResponseDTO bookTicket(Backend backend, Seats seats) {
+        return backend.bookingService.bookTicket(new Booking(null, seats.showtimeId, ++seats.nextSeat, USER_ID));
+    }
+}
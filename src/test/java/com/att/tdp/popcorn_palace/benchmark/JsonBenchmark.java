@@ -0,0 +1,75 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.att.tdp.popcorn_palace.dto.BookingResponseDTO;
+import com.att.tdp.popcorn_palace.entity.Movie;
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.id.UuidV7;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Response serialization with the object mapper settings spring boot uses, one entity or dto per call
+//and a 100 movie page. Bytes, the way the message converters write them.
+//run: mvn -Pbench test-compile exec:exec -Dbench.include=JsonBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Movie movie;
+    private Showtime showtime;
+    private BookingResponseDTO bookingResponse;
+    private List<Movie> movies;
+    private byte[] movieJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        movie = new Movie(1L, "Inception", "Sci-Fi", 148, 8.8, 2010);
+        LocalDateTime start = LocalDateTime.of(2025, 4, 1, 20, 0);
+        showtime = new Showtime(1L, 1L, 20.0, "Main Theater", start, start.plusMinutes(150));
+        bookingResponse = new BookingResponseDTO(UuidV7.next());
+        movies = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            movies.add(new Movie(id, "Movie " + id, "Drama", 90 + (int) id, 7.5, 2000 + (int) (id % 25)));
+        }
+        movieJson = objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public byte[] writeMovie() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public byte[] writeShowtime() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(showtime);
+    }
+
+    @Benchmark
+    public byte[] writeBookingResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(bookingResponse);
+    }
+
+    @Benchmark
+    public byte[] writeMoviePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(movies);
+    }
+
+    //request bodies go the other way
+    @Benchmark
+    public Movie readMovie() throws IOException {
+        return objectMapper.readValue(movieJson, Movie.class);
+    }
+}
@@ -0,0 +1,98 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.att.tdp.popcorn_palace.catalog.MovieSearchIndex;
+import com.att.tdp.popcorn_palace.entity.Movie;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//Type-ahead search latency over a synthetic catalog, the sample mode prints the p99 and p99.9 next to the mean.
+//scan is the same search without the index: filter every movie, sort the matches, take the top ones.
+//run: mvn -Pbench test-compile exec:exec -Dbench.include=MovieSearchBenchmark
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieSearchBenchmark {
+
+    private static final String[] WORDS = {
+            "the", "star", "war", "wars", "return", "king", "night", "dark", "love", "lost", "city", "last",
+            "story", "man", "woman", "girl", "boy", "house", "road", "blood", "dream", "time", "world", "ghost",
+            "river", "moon", "sun", "fire", "ice", "storm", "secret", "game", "heart", "shadow", "empire", "rise"};
+    private static final String[] GENRES = {"Action", "Comedy", "Drama", "Horror", "Sci-Fi", "Romance", "Thriller", "Animation"};
+    private static final int LIMIT = 10;
+
+    @Param({"100000"})
+    int movies;
+
+    //single letter, common word, two words, rare prefix
+    @Param({"t", "the", "star wa", "drama lo", "ghos riv"})
+    String query;
+
+    private MovieSearchIndex index;
+    private List<Movie> catalog;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new MovieSearchIndex();
+        catalog = new ArrayList<>(movies);
+        for (long id = 1; id <= movies; id++) {
+            int words = 1 + random.nextInt(4);
+            StringBuilder title = new StringBuilder();
+            for (int w = 0; w < words; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                title.append(w == 0 ? "" : " ").append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            }
+            title.append(' ').append(id);
+            Movie movie = new Movie(id, title.toString(), GENRES[random.nextInt(GENRES.length)], 90 + random.nextInt(90),
+                    Math.round(random.nextDouble() * 100) / 10.0, 1950 + random.nextInt(76));
+            index.put(movie);
+            catalog.add(movie);
+        }
+    }
+
+    @Benchmark
+    public List<Movie> index() {
+        return index.search(query, LIMIT);
+    }
+
+    @Benchmark
+    public List<Movie> scan() {
+        String[] terms = query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        List<Movie> matches = new ArrayList<>();
+        for (Movie movie : catalog) {
+            String[] words = (movie.getTitle() + " " + movie.getGenre()).toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+            if (matchesAll(words, terms)) {
+                matches.add(movie);
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Movie::getRating).reversed()
+                .thenComparing(Comparator.comparingInt(Movie::getReleaseYear).reversed())
+                .thenComparingLong(Movie::getId));
+        return matches.subList(0, Math.min(LIMIT, matches.size()));
+    }
+
+    private static boolean matchesAll(String[] words, String[] terms) {
+        for (String term : terms) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.att.tdp.popcorn_palace.PopcornPalaceApplication;
+import com.att.tdp.popcorn_palace.entity.Movie;
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.schedule.TheaterSchedule;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//Showtime overlap checks of TheaterSchedule in each mode of popcorn-palace.catalog.overlap-check, on H2:
+//index answers from the in-memory timeline, database runs the repository query, verify does both.
+//Half of the probed windows hit a stored showtime, the other half fall into the gap between two.
+//run: mvn -Pbench test-compile exec:exec -Dbench.include=OverlapCheckBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OverlapCheckBenchmark {
+
+    private static final String THEATER = "Bench Hall";
+    //2 hour showtimes every 3 hours
+    private static final int SLOT_HOURS = 3;
+
+    @Param({"index", "database", "verify"})
+    String mode;
+
+    //showtimes of the checked theater
+    @Param({"100", "10000"})
+    int showtimes;
+
+    private ConfigurableApplicationContext context;
+    private TheaterSchedule theaterSchedule;
+    private LocalDateTime first;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(PopcornPalaceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:overlap-" + mode + "-" + showtimes + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--popcorn-palace.catalog.overlap-check=" + mode);
+        theaterSchedule = context.getBean(TheaterSchedule.class);
+        Movie movie = context.getBean(MovieRepository.class).save(new Movie(null, "Bench", "Drama", 120, 8.0, 2024));
+        first = LocalDateTime.now().plusDays(1).withNano(0);
+        List<Showtime> schedule = new ArrayList<>(showtimes);
+        for (int i = 0; i < showtimes; i++) {
+            LocalDateTime start = first.plusHours((long) SLOT_HOURS * i);
+            schedule.add(new Showtime(null, movie.getId(), 20.0, THEATER, start, start.plusHours(2)));
+        }
+        context.getBean(ShowtimeRepository.class).saveAll(schedule);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    //a 30 minute window, either inside a showtime or inside the hour between two
+    @Benchmark
+    public boolean overlapsAny() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime slot = first.plusHours((long) SLOT_HOURS * random.nextInt(showtimes));
+        LocalDateTime start = random.nextBoolean() ? slot.plusMinutes(30) : slot.plusMinutes(135);
+        return theaterSchedule.overlapsAny(THEATER, start, start.plusMinutes(30));
+    }
+}
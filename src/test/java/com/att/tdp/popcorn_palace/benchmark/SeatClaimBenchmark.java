@@ -0,0 +1,132 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.att.tdp.popcorn_palace.inventory.SeatInventory;
+import com.att.tdp.popcorn_palace.repository.BookingRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Seat claim through the in-memory bitmap vs the old exists-then-insert round trips (H2 in memory, so no network cost at all)
+//run: mvn -Pbench test-compile exec:exec -Dbench.include=SeatClaimBenchmark
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class SeatClaimBenchmark {
+
+    private static final String DB_URL = "jdbc:h2:mem:seat-claim-bench;DB_CLOSE_DELAY=-1";
+    private static final int SEATS_PER_SHOWTIME = 100_000;
+    private static final long HOT_SHOWTIME = 0L;
+    private static final int HOT_SEAT = 1;
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        SeatInventory seatInventory;
+        final AtomicLong showtimeIds = new AtomicLong(1);
+        private Connection keepAlive;
+
+        @Setup
+        public void setUp() throws SQLException {
+            seatInventory = new SeatInventory(Mockito.mock(BookingRepository.class));
+            seatInventory.claim(HOT_SHOWTIME, HOT_SEAT);
+
+            keepAlive = DriverManager.getConnection(DB_URL);
+            try (Statement statement = keepAlive.createStatement()) {
+                statement.execute("""
+                    CREATE TABLE bookings (
+                        booking_id UUID DEFAULT RANDOM_UUID() PRIMARY KEY,
+                        showtime_id BIGINT NOT NULL,
+                        seat_number INT NOT NULL,
+                        user_id VARCHAR(255) NOT NULL,
+                        CONSTRAINT uk_bookings_showtime_seat UNIQUE (showtime_id, seat_number))
+                """);
+                statement.execute("INSERT INTO bookings (showtime_id, seat_number, user_id) VALUES (0, 1, 'hot')");
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            try (Statement statement = keepAlive.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+            }
+            keepAlive.close();
+        }
+    }
+
+    //every thread books its own fresh seats, so each claim succeeds
+    @State(Scope.Thread)
+    public static class Cursor {
+        long showtimeId;
+        int seatNumber;
+        Connection connection;
+        PreparedStatement exists;
+        PreparedStatement insert;
+
+        @Setup
+        public void setUp(Shared shared) throws SQLException {
+            showtimeId = shared.showtimeIds.getAndIncrement();
+            connection = DriverManager.getConnection(DB_URL);
+            exists = connection.prepareStatement("SELECT COUNT(*) > 0 FROM bookings WHERE showtime_id = ? AND seat_number = ?");
+            insert = connection.prepareStatement("INSERT INTO bookings (showtime_id, seat_number, user_id) VALUES (?, ?, 'bench')");
+        }
+
+        int nextSeat(Shared shared) {
+            if (++seatNumber > SEATS_PER_SHOWTIME) {
+                shared.seatInventory.forget(showtimeId);
+                showtimeId = shared.showtimeIds.getAndIncrement();
+                seatNumber = 1;
+            }
+            return seatNumber;
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public boolean bitmapClaimFreeSeat(Shared shared, Cursor cursor) {
+        return shared.seatInventory.claim(cursor.showtimeId, cursor.nextSeat(shared));
+    }
+
+    @Benchmark
+    public boolean bitmapRejectTakenSeat(Shared shared) {
+        return shared.seatInventory.claim(HOT_SHOWTIME, HOT_SEAT);
+    }
+
+    @Benchmark
+    public boolean databaseCheckThenInsertFreeSeat(Shared shared, Cursor cursor) throws SQLException {
+        int seat = cursor.nextSeat(shared);
+        if (seatExists(cursor, cursor.showtimeId, seat)) {
+            return false;
+        }
+        cursor.insert.setLong(1, cursor.showtimeId);
+        cursor.insert.setInt(2, seat);
+        return cursor.insert.executeUpdate() == 1;
+    }
+
+    @Benchmark
+    public boolean databaseRejectTakenSeat(Cursor cursor) throws SQLException {
+        return !seatExists(cursor, HOT_SHOWTIME, HOT_SEAT);
+    }
+
+    private static boolean seatExists(Cursor cursor, long showtimeId, int seatNumber) throws SQLException {
+        cursor.exists.setLong(1, showtimeId);
+        cursor.exists.setInt(2, seatNumber);
+        try (ResultSet resultSet = cursor.exists.executeQuery()) {
+            resultSet.next();
+            return resultSet.getBoolean(1);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.att.tdp.popcorn_palace.benchmark;
+
+import com.att.tdp.popcorn_palace.id.Uuids;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+//userId validation of every booking request: the scanning Uuids.isValid against UUID.fromString with a catch,
+//the check BookingService used before. Invalid ids are where the exception makes the difference.
+//run: mvn -Pbench test-compile exec:exec -Dbench.include=UuidValidationBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UuidValidationBenchmark {
+
+    @Param({"84438967-f68f-4fa0-b620-0f08217e76af", "not-a-uuid", "84438967-f68f-4fa0-b620-0f08217e76aZ"})
+    String userId;
+
+    @Benchmark
+    public boolean scan() {
+        return Uuids.isValid(userId);
+    }
+
+    @Benchmark
+    public boolean fromString() {
+        try {
+            UUID.fromString(userId);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public UUID parse() {
+        return Uuids.parse(userId);
+    }
+}
@@ -0,0 +1,67 @@
+package com.att.tdp.popcorn_palace.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogBodiesTest {
+
+    private CatalogVersion catalogVersion;
+    private CatalogBodies catalogBodies;
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<List<String>> load = () -> List.of("load " + loads.incrementAndGet());
+
+    @BeforeEach
+    void setUp() {
+        catalogVersion = new CatalogVersion();
+        catalogBodies = new CatalogBodies(catalogVersion, new ObjectMapper());
+    }
+
+    //the body is serialized once per version of its listing
+    @Test
+    void get_SameVersion_ServesCachedBytes() {
+        CatalogBodies.Body first = catalogBodies.get(CatalogVersion.Part.MOVIES, load);
+        CatalogBodies.Body second = catalogBodies.get(CatalogVersion.Part.MOVIES, load);
+
+        assertSame(first, second);
+        assertEquals("[\"load 1\"]", new String(first.json()));
+        assertNull(first.gzip());
+        assertEquals(1, loads.get());
+    }
+
+    //a write to one listing does not invalidate the other
+    @Test
+    void get_AfterBump_RebuildsOnlyThatListing() {
+        CatalogBodies.Body movies = catalogBodies.get(CatalogVersion.Part.MOVIES, load);
+        catalogBodies.get(CatalogVersion.Part.SHOWTIMES, load);
+
+        catalogVersion.bumpAfterCommit(CatalogVersion.Part.SHOWTIMES);
+
+        assertSame(movies, catalogBodies.get(CatalogVersion.Part.MOVIES, load));
+        CatalogBodies.Body showtimes = catalogBodies.get(CatalogVersion.Part.SHOWTIMES, load);
+        assertEquals("[\"load 3\"]", new String(showtimes.json()));
+        assertNotEquals(movies.etag(false), showtimes.etag(false));
+    }
+
+    //inside a transaction the version only moves once it commits
+    @Test
+    void bumpAfterCommit_InTransaction_WaitsForCommit() {
+        CatalogVersion.Stamp before = catalogVersion.current(CatalogVersion.Part.MOVIES);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            catalogVersion.bumpAfterCommit(CatalogVersion.Part.MOVIES);
+            assertEquals(before, catalogVersion.current(CatalogVersion.Part.MOVIES));
+            TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.afterCommit());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(before.version() + 1, catalogVersion.current(CatalogVersion.Part.MOVIES).version());
+    }
+}
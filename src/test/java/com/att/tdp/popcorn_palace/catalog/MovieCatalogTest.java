@@ -0,0 +1,100 @@
+package com.att.tdp.popcorn_palace.catalog;
+
+import com.att.tdp.popcorn_palace.entity.Movie;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MovieCatalogTest {
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    private MovieCatalog movieCatalog;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(movieRepository.findAll()).thenReturn(List.of(
+                new Movie(1L, "Inception", "Sci-Fi", 148, 8.8, 2010),
+                new Movie(2L, "The Matrix", "Sci-Fi", 136, 8.7, 1999)));
+        movieCatalog = new MovieCatalog(movieRepository, new SimpleMeterRegistry());
+    }
+
+    //the catalog is read once, lookups by id and title are served from memory
+    @Test
+    void find_ByIdAndTitle_LoadsOnce() {
+        assertEquals("Inception", movieCatalog.findById(1L).orElseThrow().getTitle());
+        assertEquals(2L, movieCatalog.findByTitle("The Matrix").orElseThrow().getId());
+        assertTrue(movieCatalog.findByTitle("Unknown").isEmpty());
+        assertTrue(movieCatalog.findById(9L).isEmpty());
+        verify(movieRepository, times(1)).findAll();
+    }
+
+    //callers get copies, changing one does not change the catalog
+    @Test
+    void findById_ReturnsCopy() {
+        movieCatalog.findById(1L).orElseThrow().setDuration(10);
+
+        assertEquals(148, movieCatalog.findById(1L).orElseThrow().getDuration());
+    }
+
+    //committed writes are visible to the next lookup
+    @Test
+    void putAndRemove_SwapSnapshot() {
+        movieCatalog.findById(1L);
+
+        movieCatalog.putAfterCommit(new Movie(3L, "Up", "Animation", 96, 8.3, 2009));
+        movieCatalog.putAfterCommit(new Movie(1L, "Inception", "Sci-Fi", 150, 8.8, 2010));
+        movieCatalog.removeAfterCommit(2L);
+
+        assertEquals(3L, movieCatalog.findByTitle("Up").orElseThrow().getId());
+        assertEquals(150, movieCatalog.findByTitle("Inception").orElseThrow().getDuration());
+        assertTrue(movieCatalog.findByTitle("The Matrix").isEmpty());
+        verify(movieRepository, times(1)).findAll();
+    }
+
+    //writes before the first lookup are covered by the load itself
+    @Test
+    void put_BeforeLoad_DoesNotLoad() {
+        movieCatalog.putAfterCommit(new Movie(3L, "Up", "Animation", 96, 8.3, 2009));
+
+        verifyNoInteractions(movieRepository);
+    }
+
+    //search is served from the index built with the catalog and follows committed writes
+    @Test
+    void search_FollowsWrites() {
+        assertEquals("The Matrix", movieCatalog.search("matr", 10).get(0).getTitle());
+
+        movieCatalog.putAfterCommit(new Movie(2L, "The Matrix Reloaded", "Sci-Fi", 138, 7.2, 2003));
+        movieCatalog.removeAfterCommit(1L);
+
+        assertEquals("The Matrix Reloaded", movieCatalog.search("matrix rel", 10).get(0).getTitle());
+        assertTrue(movieCatalog.search("incep", 10).isEmpty());
+        verify(movieRepository, times(1)).findAll();
+    }
+
+    //a bulk chunk lands in the lookups and the search index at once
+    @Test
+    void putAll_SwapsSnapshotOnce() {
+        movieCatalog.findById(1L);
+
+        movieCatalog.putAllAfterCommit(List.of(
+                new Movie(3L, "Up", "Animation", 96, 8.3, 2009),
+                new Movie(2L, "The Matrix Reloaded", "Sci-Fi", 138, 7.2, 2003)));
+
+        assertEquals(3L, movieCatalog.findByTitle("Up").orElseThrow().getId());
+        assertTrue(movieCatalog.findByTitle("The Matrix").isEmpty());
+        assertEquals("The Matrix Reloaded", movieCatalog.search("matrix rel", 10).get(0).getTitle());
+        assertEquals(1L, movieCatalog.findByTitle("Inception").orElseThrow().getId());
+    }
+}
@@ -0,0 +1,79 @@
+package com.att.tdp.popcorn_palace.catalog;
+
+import com.att.tdp.popcorn_palace.entity.Movie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovieSearchIndexTest {
+
+    private MovieSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new MovieSearchIndex();
+        index.put(new Movie(1L, "The Matrix", "Sci-Fi", 136, 8.7, 1999));
+        index.put(new Movie(2L, "The Matrix Reloaded", "Sci-Fi", 138, 7.2, 2003));
+        index.put(new Movie(3L, "The Godfather", "Crime", 175, 9.2, 1972));
+        index.put(new Movie(4L, "Matilda", "Comedy", 98, 7.0, 1996));
+        index.put(new Movie(5L, "Star Wars", "Sci-Fi", 121, 8.6, 1977));
+    }
+
+    //every word of a title or genre is a prefix match, best rating first
+    @Test
+    void search_Prefix_RankedByRating() {
+        assertEquals(List.of("The Matrix", "The Matrix Reloaded", "Matilda"), titles(index.search("MAT", 10)));
+        assertEquals(List.of("The Godfather", "The Matrix", "The Matrix Reloaded"), titles(index.search("the", 10)));
+    }
+
+    //every query word has to match, the limit cuts the ranked list
+    @Test
+    void search_SeveralWords_MatchesAll() {
+        assertEquals(List.of("The Matrix", "Star Wars"), titles(index.search("sci", 2)));
+        assertEquals(List.of("Star Wars"), titles(index.search("sci-fi st", 10)));
+        assertEquals(List.of("The Matrix Reloaded"), titles(index.search("the re", 10)));
+        assertTrue(index.search("the comedy", 10).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    //a title that matches through two of its words is returned once
+    @Test
+    void search_TwoWordsMatchPrefix_ReturnedOnce() {
+        index.put(new Movie(6L, "Mad Max Mayhem", "Action", 120, 9.9, 2020));
+
+        assertEquals(List.of("Mad Max Mayhem", "The Matrix"), titles(index.search("ma", 2)));
+    }
+
+    //equal ratings are ordered by release year, newest first
+    @Test
+    void search_EqualRating_NewerFirst() {
+        index.put(new Movie(7L, "Stand By Me", "Drama", 89, 8.6, 1986));
+
+        assertEquals(List.of("Stand By Me", "Star Wars"), titles(index.search("st", 2)));
+    }
+
+    //an update moves the movie to its new words and rank, a removed movie is gone
+    @Test
+    void putAndRemove_UpdateIndex() {
+        index.put(new Movie(4L, "Matilda", "Family", 98, 9.5, 1996));
+        index.remove(3L);
+
+        assertEquals(List.of("Matilda", "The Matrix"), titles(index.search("mat", 2)));
+        assertTrue(index.search("comedy", 10).isEmpty());
+        assertTrue(index.search("godfather", 10).isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void tokens_SplitsOnNonLetters() {
+        assertEquals(Set.of("sci", "fi", "wall", "e", "2008"), MovieSearchIndex.tokens("Sci-Fi WALL·E (2008)"));
+    }
+
+    private static List<String> titles(List<Movie> movies) {
+        return movies.stream().map(Movie::getTitle).toList();
+    }
+}
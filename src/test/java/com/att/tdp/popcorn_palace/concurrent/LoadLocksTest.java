@@ -0,0 +1,86 @@
+package com.att.tdp.popcorn_palace.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadLocksTest {
+
+    private final LoadLocks loadLocks = new LoadLocks(4);
+    private final Map<Long, String> map = new ConcurrentHashMap<>();
+
+    //virtual threads missing the same key wait for one load
+    @Test
+    void computeIfAbsent_ConcurrentMisses_LoadOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> lookups = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                lookups.add(executor.submit(() -> loadLocks.computeIfAbsent(map, 1L, key -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    awaitQuietly(release);
+                    return "one";
+                })));
+            }
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> lookup : lookups) {
+                assertEquals("one", lookup.get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(1, loads.get());
+    }
+
+    //nothing is stored for a key the loader does not know, the next lookup loads again
+    @Test
+    void computeIfAbsent_LoaderReturnsNull_StoresNothing() {
+        assertNull(loadLocks.computeIfAbsent(map, 2L, key -> null));
+        assertFalse(map.containsKey(2L));
+        assertEquals("two", loadLocks.computeIfAbsent(map, 2L, key -> "two"));
+    }
+
+    //a remove during a load waits for it, so the loaded value does not outlive the remove
+    @Test
+    void remove_DuringLoad_RemovesLoadedValue() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> load = executor.submit(() -> loadLocks.computeIfAbsent(map, 3L, key -> {
+                loading.countDown();
+                awaitQuietly(release);
+                return "stale";
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<String> remove = executor.submit(() -> loadLocks.remove(map, 3L));
+            Thread.sleep(100);
+            assertFalse(remove.isDone());
+            release.countDown();
+            assertEquals("stale", load.get(5, TimeUnit.SECONDS));
+            assertEquals("stale", remove.get(5, TimeUnit.SECONDS));
+        }
+        assertFalse(map.containsKey(3L));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,8 +1,16 @@
 package com.att.tdp.popcorn_palace.controller;
 
+import com.att.tdp.popcorn_palace.admission.AdmissionControl;
+import com.att.tdp.popcorn_palace.dto.AdmissionStatusDTO;
 import com.att.tdp.popcorn_palace.dto.BookingResponseDTO;
+import com.att.tdp.popcorn_palace.dto.CursorPageDTO;
+import com.att.tdp.popcorn_palace.dto.GroupBookingRequestDTO;
+import com.att.tdp.popcorn_palace.dto.GroupBookingResponseDTO;
+import com.att.tdp.popcorn_palace.dto.SeatHoldRequestDTO;
+import com.att.tdp.popcorn_palace.dto.SeatHoldResponseDTO;
 import com.att.tdp.popcorn_palace.entity.Booking;
 import com.att.tdp.popcorn_palace.exception.*;
+import com.att.tdp.popcorn_palace.service.BookingIdempotency;
 import com.att.tdp.popcorn_palace.service.BookingService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +19,9 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.Mockito.*;
@@ -19,12 +30,17 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 class BookingControllerTest {
 
-    @InjectMocks
     private BookingController bookingController;
 
     @Mock
     private BookingService bookingService;
 
+    @Mock
+    private BookingIdempotency bookingIdempotency;
+
+    @Mock
+    private AdmissionControl admissionControl;
+
     private MockMvc mockMvc;
     private Booking booking;
     private UUID bookingId;
@@ -32,6 +48,7 @@ class BookingControllerTest {
     @BeforeEach//start before the tests
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        bookingController = new BookingController(bookingService, bookingIdempotency, admissionControl, Optional.empty());
         mockMvc = MockMvcBuilders.standaloneSetup(bookingController).build();
         bookingId = UUID.randomUUID();
         booking = new Booking(bookingId, 1L, 15, "84438967-f68f-4fa0-b620-0f08217e76af");
@@ -53,6 +70,66 @@ class BookingControllerTest {
                 """)).andExpect(status().isOk()).andExpect(jsonPath("$.bookingId").value(bookingId.toString()));
     }
 
+    //a request with an Idempotency-Key goes through the idempotency guard
+    @Test
+    void bookTicket_WithIdempotencyKey_UsesIdempotency() throws Exception {
+        when(bookingIdempotency.execute(eq("retry-1"), any(Booking.class), any())).thenReturn(new BookingResponseDTO(bookingId));
+
+        mockMvc.perform(post("/bookings")
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                {
+                    "showtimeId": 1,
+                    "seatNumber": 15,
+                    "userId": "84438967-f68f-4fa0-b620-0f08217e76af"
+                }
+                """)).andExpect(status().isOk()).andExpect(jsonPath("$.bookingId").value(bookingId.toString()));
+        verify(bookingService, never()).bookTicket(any(Booking.class));
+    }
+
+    //a busy showtime answers with a waiting room token instead of booking
+    @Test
+    void bookTicket_ShowtimeBusy_Returns202WithToken() throws Exception {
+        UUID token = UUID.randomUUID();
+        when(admissionControl.enter(eq(1L), any())).thenThrow(new AdmissionQueuedException(token, 1L, 3));
+
+        mockMvc.perform(post("/bookings")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                {
+                    "showtimeId": 1,
+                    "seatNumber": 15,
+                    "userId": "84438967-f68f-4fa0-b620-0f08217e76af"
+                }
+                """)).andExpect(status().isAccepted());
+        verify(bookingService, never()).bookTicket(any(Booking.class));
+    }
+
+    //polling a waiting room token
+    @Test
+    void getAdmissionStatus_Waiting_Returns200() throws Exception {
+        UUID token = UUID.randomUUID();
+        when(admissionControl.status(token)).thenReturn(Optional.of(new AdmissionStatusDTO(token, 1L, false, 3)));
+
+        mockMvc.perform(get("/bookings/admission/" + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.admitted").value(false))
+                .andExpect(jsonPath("$.position").value(3));
+    }
+
+    //booking history of a user
+    @Test
+    void getUserBookings_Successful_Returns200() throws Exception {
+        when(bookingService.getUserBookings(booking.getUserId(), null, 20))
+                .thenReturn(new CursorPageDTO<>(List.of(booking), bookingId.toString()));
+
+        mockMvc.perform(get("/bookings").param("userId", booking.getUserId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].bookingId").value(bookingId.toString()))
+                .andExpect(jsonPath("$.nextCursor").value(bookingId.toString()));
+    }
+
     //Invalid UUID test
     @Test
     void bookTicket_InvalidUUID_Returns400() throws Exception {
@@ -135,4 +212,59 @@ class BookingControllerTest {
         mockMvc.perform(delete("/bookings/invalid-uuid"))
                 .andExpect(status().isBadRequest());
     }
+
+    //Group Booking Successfully
+    @Test
+    void bookGroup_Successful_Returns200() throws Exception {
+        when(bookingService.bookGroup(any(GroupBookingRequestDTO.class))).thenReturn(new GroupBookingResponseDTO(List.of(bookingId)));
+
+        mockMvc.perform(post("/bookings/group")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                {
+                    "showtimeId": 1,
+                    "seatNumbers": [15, 16],
+                    "userId": "84438967-f68f-4fa0-b620-0f08217e76af"
+                }
+                """)).andExpect(status().isOk()).andExpect(jsonPath("$.bookingIds[0]").value(bookingId.toString()));
+    }
+
+    //Group Booking without seats
+    @Test
+    void bookGroup_NoSeats_Returns400() throws Exception {
+        mockMvc.perform(post("/bookings/group")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                {
+                    "showtimeId": 1,
+                    "seatNumbers": [],
+                    "userId": "84438967-f68f-4fa0-b620-0f08217e76af"
+                }
+                """)).andExpect(status().isBadRequest());
+    }
+
+    //Hold a Seat Successfully
+    @Test
+    void holdSeat_Successful_Returns200() throws Exception {
+        UUID holdId = UUID.randomUUID();
+        when(bookingService.holdSeat(any(SeatHoldRequestDTO.class))).thenReturn(new SeatHoldResponseDTO(holdId, Instant.now()));
+
+        mockMvc.perform(post("/bookings/holds")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                {
+                    "showtimeId": 1,
+                    "seatNumber": 15,
+                    "userId": "84438967-f68f-4fa0-b620-0f08217e76af"
+                }
+                """)).andExpect(status().isOk()).andExpect(jsonPath("$.holdId").value(holdId.toString()));
+    }
+
+    //Confirm an Expired Hold
+    @Test
+    void confirmHold_Expired_Returns404() throws Exception {
+        UUID holdId = UUID.randomUUID();
+        when(bookingService.confirmHold(holdId)).thenThrow(new ResourceNotFoundException("Seat hold not found or expired with ID: " + holdId));
+        mockMvc.perform(post("/bookings/holds/" + holdId + "/confirm")).andExpect(status().isNotFound());
+    }
 }
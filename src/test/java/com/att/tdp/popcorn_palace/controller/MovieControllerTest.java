@@ -1,17 +1,28 @@
 package com.att.tdp.popcorn_palace.controller;
 
+import com.att.tdp.popcorn_palace.catalog.CatalogBodies;
+import com.att.tdp.popcorn_palace.catalog.CatalogVersion;
+import com.att.tdp.popcorn_palace.dto.CursorPageDTO;
+import com.att.tdp.popcorn_palace.dto.MovieUpsertReportDTO;
+import com.att.tdp.popcorn_palace.dto.MovieUpsertRowDTO;
 import com.att.tdp.popcorn_palace.entity.Movie;
+import com.att.tdp.popcorn_palace.service.CatalogExportService;
 import com.att.tdp.popcorn_palace.service.MovieService;
 import com.att.tdp.popcorn_palace.exception.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.mockito.*;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayInputStream;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -24,6 +35,15 @@ class MovieControllerTest {
     @Mock
     private MovieService movieService;
 
+    @Mock
+    private CatalogExportService catalogExportService;
+
+    @Spy
+    private CatalogVersion catalogVersion = new CatalogVersion();
+
+    @Spy
+    private CatalogBodies catalogBodies = new CatalogBodies(catalogVersion, new ObjectMapper());
+
     private MockMvc mockMvc;
 
     private Movie movie;
@@ -59,6 +79,57 @@ class MovieControllerTest {
                 .andExpect(jsonPath("$.length()").value(1000)); // ✅ Correctly verifies 1000 movies
     }
 
+    //a poll with the current ETag gets 304 and does not load the catalog again
+    @Test
+    void getAllMovies_CurrentEtag_Returns304() throws Exception {
+        when(movieService.getAllMovies()).thenReturn(List.of(movie));
+        String etag = mockMvc.perform(get("/movies/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/movies/all").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(movieService, times(1)).getAllMovies();
+    }
+
+    //a movie write changes the ETag and the next poll gets the new body
+    @Test
+    void getAllMovies_AfterWrite_ReturnsNewBody() throws Exception {
+        when(movieService.getAllMovies()).thenReturn(List.of()).thenReturn(List.of(movie));
+        String etag = mockMvc.perform(get("/movies/all")).andReturn().getResponse().getHeader("ETag");
+
+        catalogVersion.bumpAfterCommit(CatalogVersion.Part.MOVIES);
+
+        mockMvc.perform(get("/movies/all").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value("Inception"));
+    }
+
+    //large bodies are served gzip'd to clients that accept it, with their own ETag
+    @Test
+    void getAllMovies_AcceptGzip_ReturnsCompressedBody() throws Exception {
+        List<Movie> movies = new ArrayList<>();
+        for (long i = 0; i < 100; i++) {
+            movies.add(new Movie(i, "Movie " + i, "Drama", 120, 7.5, 2000));
+        }
+        when(movieService.getAllMovies()).thenReturn(movies);
+
+        MvcResult result = mockMvc.perform(get("/movies/all").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn();
+        byte[] json = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray())).readAllBytes();
+        assertTrue(new String(json).startsWith("[{\"id\":0,"));
+        assertTrue(result.getResponse().getHeader("ETag").endsWith("-gzip\""));
+
+        mockMvc.perform(get("/movies/all").header("Accept-Encoding", "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$.length()").value(100));
+    }
+
     // Adding a Movie with Minimum Values
     @Test
     void addMovie_MinimumValues_Success() throws Exception {
@@ -138,4 +209,65 @@ class MovieControllerTest {
         mockMvc.perform(delete("/movies/Inception"))
                 .andExpect(status().isOk());
     }
+
+    //filters and cursor are passed through, the page carries the next cursor
+    @Test
+    void listMovies_WithFilters_ReturnsPage() throws Exception {
+        when(movieService.listMovies("Sci-Fi", 2010, 5L, 1)).thenReturn(new CursorPageDTO<>(List.of(movie), "1"));
+
+        mockMvc.perform(get("/movies").param("genre", "Sci-Fi").param("releaseYear", "2010").param("after", "5").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].title").value("Inception"))
+                .andExpect(jsonPath("$.nextCursor").value("1"));
+    }
+
+    //search results come back in rank order, limit defaults to 10
+    @Test
+    void searchMovies_Query_ReturnsMatches() throws Exception {
+        when(movieService.searchMovies("inc", 10)).thenReturn(List.of(movie));
+
+        mockMvc.perform(get("/movies/search").param("q", "inc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].title").value("Inception"));
+    }
+
+    //the bulk body is a json array, the report comes back as is
+    @Test
+    void upsertMovies_JsonArray_ReturnsReport() throws Exception {
+        when(movieService.upsertMovies(anyList())).thenReturn(new MovieUpsertReportDTO(1, 1, 0, 0, 0,
+                List.of(new MovieUpsertRowDTO(1, "Inception", 1L, MovieUpsertRowDTO.Outcome.CREATED, null))));
+
+        mockMvc.perform(post("/movies/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"title\":\"Inception\",\"genre\":\"Sci-Fi\",\"duration\":148,\"rating\":8.8,\"releaseYear\":2010}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rows[0].outcome").value("CREATED"));
+    }
+
+    //the export is streamed as ndjson unless the client asks for json only
+    @Test
+    void exportMovies_AcceptJson_StreamsJsonArray() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<java.io.OutputStream>getArgument(0).write("[]".getBytes());
+            return null;
+        }).when(catalogExportService).exportMovies(any(), eq(false));
+
+        MvcResult result = mockMvc.perform(get("/movies/export").accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string("[]"));
+    }
+
+    @Test
+    void exportMovies_NoAccept_StreamsNdjson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/movies/export")).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"));
+        verify(catalogExportService).exportMovies(any(), eq(true));
+    }
 }
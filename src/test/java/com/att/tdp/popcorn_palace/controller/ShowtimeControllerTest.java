@@ -1,7 +1,12 @@
 package com.att.tdp.popcorn_palace.controller;
 
+import com.att.tdp.popcorn_palace.dto.CursorPageDTO;
+import com.att.tdp.popcorn_palace.dto.ShowtimeImportReportDTO;
+import com.att.tdp.popcorn_palace.dto.ShowtimeImportRowDTO;
 import com.att.tdp.popcorn_palace.entity.Showtime;
 import com.att.tdp.popcorn_palace.exception.*;
+import com.att.tdp.popcorn_palace.inventory.SeatMap;
+import com.att.tdp.popcorn_palace.service.ShowtimeImportService;
 import com.att.tdp.popcorn_palace.service.ShowtimeService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,7 +15,9 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.Reader;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -24,6 +31,9 @@ class ShowtimeControllerTest {
     @Mock
     private ShowtimeService showtimeService;
 
+    @Mock
+    private ShowtimeImportService showtimeImportService;
+
     private MockMvc mockMvc;
     private Showtime showtime;
 
@@ -142,4 +152,65 @@ class ShowtimeControllerTest {
         mockMvc.perform(delete("/showtimes/invalid-id"))
                 .andExpect(status().isBadRequest());
     }
+
+    //Seat map carries an ETag
+    @Test
+    void getSeatMap_Returns200WithETag() throws Exception {
+        when(showtimeService.getSeatMap(1L)).thenReturn(new SeatMap(9L, 4L, new int[]{3, 7}));
+
+        mockMvc.perform(get("/showtimes/1/seats"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"9-4\""))
+                .andExpect(jsonPath("$.takenSeats[1]").value(7));
+    }
+
+    //Unchanged seat map is not sent again
+    @Test
+    void getSeatMap_MatchingETag_Returns304() throws Exception {
+        when(showtimeService.getSeatMap(1L)).thenReturn(new SeatMap(9L, 4L, new int[]{3, 7}));
+
+        mockMvc.perform(get("/showtimes/1/seats").header("If-None-Match", "\"9-4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    //csv schedules go to the csv importer and get a per row report
+    @Test
+    void importShowtimes_Csv_ReturnsReport() throws Exception {
+        when(showtimeImportService.importCsv(any(Reader.class))).thenReturn(new ShowtimeImportReportDTO(2, 1, 1, List.of(
+                new ShowtimeImportRowDTO(1, 5L, null),
+                new ShowtimeImportRowDTO(2, null, "Movie ID 9 does not exist."))));
+
+        mockMvc.perform(post("/showtimes/import")
+                        .contentType("text/csv")
+                        .content("2,Hall 1,2025-04-01T10:00:00,2025-04-01T12:00:00,20\n9,Hall 1,2025-04-01T13:00:00,2025-04-01T15:00:00,20\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rows[1].error").value("Movie ID 9 does not exist."));
+        verify(showtimeImportService, never()).importNdjson(any(Reader.class));
+    }
+
+    //ndjson schedules go to the ndjson importer
+    @Test
+    void importShowtimes_Ndjson_UsesNdjsonImporter() throws Exception {
+        when(showtimeImportService.importNdjson(any(Reader.class))).thenReturn(new ShowtimeImportReportDTO(0, 0, 0, List.of()));
+
+        mockMvc.perform(post("/showtimes/import")
+                        .contentType("application/x-ndjson")
+                        .content(""))
+                .andExpect(status().isOk());
+        verify(showtimeImportService).importNdjson(any(Reader.class));
+    }
+
+    //filters are parsed and passed through, the last page has no cursor
+    @Test
+    void listShowtimes_WithFilters_ReturnsPage() throws Exception {
+        when(showtimeService.listShowtimes("Main Theater", 2L, LocalDateTime.parse("2025-04-01T00:00:00"), null, null, 20))
+                .thenReturn(new CursorPageDTO<>(List.of(showtime), null));
+
+        mockMvc.perform(get("/showtimes").param("theater", "Main Theater").param("movieId", "2").param("from", "2025-04-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].theater").value("Main Theater"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
 }
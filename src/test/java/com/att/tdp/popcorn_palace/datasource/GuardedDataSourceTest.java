@@ -0,0 +1,68 @@
+package com.att.tdp.popcorn_palace.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class GuardedDataSourceTest {
+
+    @Mock
+    private DataSource pool;
+
+    private SimpleMeterRegistry meterRegistry;
+    private GuardedDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        meterRegistry = new SimpleMeterRegistry();
+        dataSource = new GuardedDataSource(pool, 1, Duration.ofMillis(50), meterRegistry);
+    }
+
+    //with every permit taken the next request gives up after the acquire timeout
+    @Test
+    void getConnection_PermitsTaken_ThrowsAfterTimeout() throws SQLException {
+        Connection held = dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+        assertEquals(1, meterRegistry.get("popcorn.datasource.guard.timeouts").counter().count());
+        verify(pool, times(1)).getConnection();
+        held.close();
+    }
+
+    //closing returns the connection to the pool and the permit to the guard, a second close returns nothing more
+    @Test
+    void close_Twice_ReleasesPermitOnce() throws SQLException {
+        Connection first = dataSource.getConnection();
+        Connection target = ((ConnectionProxy) first).getTargetConnection();
+        first.close();
+        first.close();
+
+        Connection second = dataSource.getConnection();
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+        verify(target, times(2)).close();
+        second.close();
+    }
+
+    //a pool that fails to hand out a connection does not keep the permit
+    @Test
+    void getConnection_PoolFails_ReleasesPermit() throws SQLException {
+        when(pool.getConnection()).thenThrow(new SQLException("connection refused")).thenAnswer(invocation -> mock(Connection.class));
+
+        assertThrows(SQLException.class, () -> dataSource.getConnection());
+        assertNotNull(dataSource.getConnection());
+    }
+}
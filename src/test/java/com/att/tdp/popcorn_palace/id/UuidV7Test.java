@@ -0,0 +1,88 @@
+package com.att.tdp.popcorn_palace.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidV7Test {
+
+    //ids in the order postgres compares uuid columns (unsigned bytes)
+    private static final Comparator<UUID> UNSIGNED = Comparator
+            .comparing((UUID uuid) -> uuid.getMostSignificantBits(), Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    @Test
+    void next_HasVersion7AndRfcVariant() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UuidV7.next();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertTrue(UuidV7.timestamp(uuid) >= before);
+        assertEquals(uuid, UUID.fromString(uuid.toString()));
+    }
+
+    //many ids in the same millisecond, and a clock that steps back, still come out in order
+    @Test
+    void generate_SameOrEarlierMillisecond_StaysMonotonic() {
+        AtomicLong millis = new AtomicLong(1_700_000_000_000L);
+        UuidV7 generator = new UuidV7(millis::get);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.generate());
+            if (i == 5_000) {
+                millis.addAndGet(-1_000);
+            }
+        }
+
+        List<UUID> sorted = new ArrayList<>(ids);
+        sorted.sort(UNSIGNED);
+        assertEquals(ids, sorted);
+        assertEquals(10_000, Set.copyOf(ids).size());
+    }
+
+    //ids generated on many threads are unique and increasing per thread
+    @Test
+    void next_ConcurrentThreads_UniqueAndOrderedPerThread() throws Exception {
+        Set<UUID> all = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<UUID>>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                results.add(executor.submit(() -> {
+                    List<UUID> ids = new ArrayList<>();
+                    for (int i = 0; i < 20_000; i++) {
+                        ids.add(UuidV7.next());
+                    }
+                    return ids;
+                }));
+            }
+            for (Future<List<UUID>> result : results) {
+                List<UUID> ids = result.get();
+                assertTrue(isSorted(ids));
+                all.addAll(ids);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(80_000, all.size());
+    }
+
+    private static boolean isSorted(List<UUID> ids) {
+        List<UUID> sorted = new ArrayList<>(ids);
+        Collections.sort(sorted, UNSIGNED);
+        return sorted.equals(ids);
+    }
+}
@@ -0,0 +1,32 @@
+package com.att.tdp.popcorn_palace.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidsTest {
+
+    @Test
+    void parse_CanonicalText_MatchesUuidFromString() {
+        for (int i = 0; i < 1_000; i++) {
+            UUID expected = i % 2 == 0 ? UUID.randomUUID() : UuidV7.next();
+            assertEquals(expected, Uuids.parse(expected.toString()));
+            assertEquals(expected, Uuids.parse(expected.toString().toUpperCase()));
+        }
+    }
+
+    @Test
+    void parse_NotAUuid_ReturnsNull() {
+        assertNull(Uuids.parse(null));
+        assertNull(Uuids.parse(""));
+        assertNull(Uuids.parse("invalid-uuid"));
+        //short groups are accepted by UUID.fromString but are not a uuid postgres would store
+        assertNull(Uuids.parse("1-1-1-1-1"));
+        assertNull(Uuids.parse("84438967-f68f-4fa0-b620-0f08217e76ag"));
+        assertNull(Uuids.parse("84438967f68f-4fa0-b620-0f08217e76af0"));
+        assertFalse(Uuids.isValid("84438967-f68f-4fa0-b620_0f08217e76af"));
+        assertTrue(Uuids.isValid("84438967-F68F-4fa0-b620-0f08217e76af"));
+    }
+}
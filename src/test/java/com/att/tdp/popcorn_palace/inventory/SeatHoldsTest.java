@@ -0,0 +1,110 @@
+package com.att.tdp.popcorn_palace.inventory;
+
+import com.att.tdp.popcorn_palace.repository.BookingRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatHoldsTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    private SeatInventory seatInventory;
+    private SimpleMeterRegistry meterRegistry;
+    private MutableClock clock;
+    private SeatHolds seatHolds;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        seatInventory = new SeatInventory(bookingRepository);
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock();
+        seatHolds = new SeatHolds(seatInventory, meterRegistry, clock, false);
+    }
+
+    @Test
+    void hold_ClaimsSeatUntilItExpires() {
+        assertTrue(seatHolds.hold(1L, 7, UUID.randomUUID().toString(), Duration.ofMinutes(5)).isPresent());
+        assertTrue(seatInventory.isTaken(1L, 7));
+        assertTrue(seatHolds.hold(1L, 7, UUID.randomUUID().toString(), Duration.ofMinutes(5)).isEmpty());
+        assertEquals(1.0, meterRegistry.get("popcorn.seat.holds.active").gauge().value());
+
+        clock.advance(Duration.ofMinutes(5).plusMillis(SeatHolds.TICK_MS));
+        seatHolds.tick();
+
+        assertFalse(seatInventory.isTaken(1L, 7));
+        assertEquals(0, seatHolds.activeHolds());
+        assertEquals(1, meterRegistry.get("popcorn.seat.holds.expiry.lag").timer().count());
+    }
+
+    //a seat whose hold ran out is free before the timer gets to it
+    @Test
+    void expireIfDue_DeadlinePassed_ReleasesSeat() {
+        seatHolds.hold(1L, 7, UUID.randomUUID().toString(), Duration.ofMinutes(5));
+        assertFalse(seatHolds.expireIfDue(1L, 7));
+
+        clock.advance(Duration.ofMinutes(5));
+        assertTrue(seatHolds.expireIfDue(1L, 7));
+        assertFalse(seatInventory.isTaken(1L, 7));
+    }
+
+    @Test
+    void take_LiveHold_KeepsSeatClaimed() {
+        SeatHold hold = seatHolds.hold(1L, 7, UUID.randomUUID().toString(), Duration.ofMinutes(5)).orElseThrow();
+
+        assertTrue(seatHolds.take(hold.holdId()).isPresent());
+        assertTrue(seatHolds.take(hold.holdId()).isEmpty());
+        assertTrue(seatInventory.isTaken(1L, 7));
+
+        //the cancelled timeout does not free the seat later
+        clock.advance(Duration.ofMinutes(10));
+        seatHolds.tick();
+        assertTrue(seatInventory.isTaken(1L, 7));
+    }
+
+    @Test
+    void release_FreesSeat() {
+        SeatHold hold = seatHolds.hold(1L, 7, UUID.randomUUID().toString(), Duration.ofMinutes(5)).orElseThrow();
+
+        assertTrue(seatHolds.release(hold.holdId()));
+        assertFalse(seatHolds.release(hold.holdId()));
+        assertFalse(seatInventory.isTaken(1L, 7));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2030-01-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
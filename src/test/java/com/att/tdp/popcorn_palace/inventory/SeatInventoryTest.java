@@ -0,0 +1,124 @@
+package com.att.tdp.popcorn_palace.inventory;
+
+import com.att.tdp.popcorn_palace.repository.BookingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SeatInventoryTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    private SeatInventory seatInventory;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        seatInventory = new SeatInventory(bookingRepository);
+    }
+
+    //seats of a showtime are loaded once from the bookings table
+    @Test
+    void claim_LoadsBookedSeatsOnFirstUse() {
+        when(bookingRepository.findSeatNumbersByShowtimeId(1L)).thenReturn(List.of(3, 700));
+
+        assertFalse(seatInventory.claim(1L, 3));
+        assertFalse(seatInventory.claim(1L, 700));
+        assertTrue(seatInventory.claim(1L, 4));
+        verify(bookingRepository, times(1)).findSeatNumbersByShowtimeId(1L);
+    }
+
+    @Test
+    void release_MakesSeatAvailableAgain() {
+        assertTrue(seatInventory.claim(1L, 64));
+        assertTrue(seatInventory.isTaken(1L, 64));
+        seatInventory.release(1L, 64);
+        assertFalse(seatInventory.isTaken(1L, 64));
+        assertTrue(seatInventory.claim(1L, 64));
+    }
+
+    @Test
+    void rebuild_LoadsUpcomingShowtimes() {
+        when(bookingRepository.findSeatsOfShowtimesStartingAfter(any(LocalDateTime.class)))
+                .thenReturn(List.of(new Object[]{5L, 12}, new Object[]{6L, 1}));
+        seatInventory.rebuild();
+
+        assertTrue(seatInventory.isTaken(5L, 12));
+        assertTrue(seatInventory.isTaken(6L, 1));
+        verify(bookingRepository, never()).findSeatNumbersByShowtimeId(any());
+    }
+
+    //only one of many concurrent requests for the same seat wins
+    @Test
+    void claim_ConcurrentRequestsForSameSeat_SingleWinner() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                if (seatInventory.claim(1L, 42)) {
+                    winners.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, winners.get());
+    }
+
+    //the snapshot is reused until a seat changes
+    @Test
+    void seatMap_ChangesVersionOnlyWhenSeatsChange() {
+        seatInventory.claim(1L, 600);
+        seatInventory.claim(1L, 2);
+        SeatMap first = seatInventory.seatMap(1L);
+
+        assertArrayEquals(new int[]{2, 600}, first.takenSeats());
+        assertSame(first, seatInventory.seatMap(1L));
+
+        seatInventory.claim(1L, 2);
+        assertSame(first, seatInventory.seatMap(1L));
+
+        seatInventory.release(1L, 600);
+        SeatMap second = seatInventory.seatMap(1L);
+        assertArrayEquals(new int[]{2}, second.takenSeats());
+        assertNotEquals(first.etag(), second.etag());
+    }
+
+    //bitmaps of showtimes that have ended are dropped and loaded again only if a request still comes in
+    @Test
+    void evictEnded_DropsEndedShowtimesOnly() {
+        LocalDateTime now = LocalDateTime.now();
+        seatInventory.claim(1L, 7);
+        seatInventory.claim(2L, 7);
+        when(bookingRepository.findShowtimeIdsEndedBefore(anyCollection(), eq(now))).thenReturn(List.of(1L));
+
+        assertEquals(1, seatInventory.evictEnded(now));
+        assertFalse(seatInventory.isLoaded(1L));
+        assertTrue(seatInventory.isLoaded(2L));
+        assertTrue(seatInventory.isTaken(2L, 7));
+
+        when(bookingRepository.findSeatNumbersByShowtimeId(1L)).thenReturn(List.of(7));
+        assertTrue(seatInventory.isTaken(1L, 7));
+    }
+}
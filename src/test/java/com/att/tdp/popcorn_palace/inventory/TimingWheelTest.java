@@ -0,0 +1,84 @@
+package com.att.tdp.popcorn_palace.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private final List<Long> fired = new ArrayList<>();
+
+    //a timeout never fires before its deadline and at most one tick after it
+    @Test
+    void advance_FiresWithinOneTickAfterDeadline() {
+        TimingWheel wheel = new TimingWheel(100, 0);
+        wheel.schedule(250, () -> fired.add(250L));
+
+        wheel.advance(249);
+        assertTrue(fired.isEmpty());
+        wheel.advance(299);
+        assertTrue(fired.isEmpty());
+        wheel.advance(300);
+        assertEquals(List.of(250L), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancel_RemovesTimeout() {
+        TimingWheel wheel = new TimingWheel(100, 0);
+        TimingWheel.Timeout timeout = wheel.schedule(500, () -> fired.add(500L));
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        wheel.advance(1_000);
+        assertTrue(fired.isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    //minutes long holds live on the higher levels and cascade down in order
+    @Test
+    void advance_CascadesFromHigherLevels() {
+        TimingWheel wheel = new TimingWheel(100, 0);
+        long fiveMinutes = 5 * 60 * 1000;
+        long twoHours = 2 * 60 * 60 * 1000;
+        wheel.schedule(twoHours, () -> fired.add(twoHours));
+        wheel.schedule(fiveMinutes + 50, () -> fired.add(fiveMinutes + 50));
+        wheel.schedule(fiveMinutes, () -> fired.add(fiveMinutes));
+
+        wheel.advance(fiveMinutes - 1);
+        assertTrue(fired.isEmpty());
+        wheel.advance(fiveMinutes + 100);
+        assertEquals(2, fired.size());
+        assertTrue(fired.containsAll(List.of(fiveMinutes, fiveMinutes + 50)));
+
+        wheel.advance(twoHours - 1);
+        assertEquals(2, fired.size());
+        wheel.advance(twoHours + 100);
+        assertEquals(twoHours, fired.get(2));
+    }
+
+    //deadlines beyond the span of all levels are parked and placed again later
+    @Test
+    void advance_DeadlineBeyondWheelSpan_FiresOnTime() {
+        TimingWheel wheel = new TimingWheel(100, 0);
+        long twoDays = 2L * 24 * 60 * 60 * 1000;
+        wheel.schedule(twoDays, () -> fired.add(twoDays));
+
+        wheel.advance(twoDays - 1);
+        assertTrue(fired.isEmpty());
+        wheel.advance(twoDays + 100);
+        assertEquals(List.of(twoDays), fired);
+    }
+
+    @Test
+    void schedule_PastDeadline_FiresOnNextTick() {
+        TimingWheel wheel = new TimingWheel(100, 1_000);
+        wheel.schedule(10, () -> fired.add(10L));
+
+        wheel.advance(1_100);
+        assertEquals(List.of(10L), fired);
+    }
+}
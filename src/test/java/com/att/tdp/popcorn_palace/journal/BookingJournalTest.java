@@ -0,0 +1,114 @@
+package com.att.tdp.popcorn_palace.journal;
+
+import com.att.tdp.popcorn_palace.entity.Booking;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingJournalTest {
+
+    @TempDir
+    Path directory;
+
+    //acknowledged records survive a restart
+    @Test
+    void open_ReplaysUndrainedRecords() throws IOException {
+        Path path = directory.resolve("booking.journal");
+        Booking first = booking(1);
+        Booking second = booking(2);
+        try (BookingJournal journal = BookingJournal.open(path, 4096)) {
+            assertTrue(journal.append(List.of(first, second)));
+        }
+
+        try (BookingJournal journal = BookingJournal.open(path, 4096)) {
+            List<BookingJournal.Entry> entries = journal.readDurable();
+            assertEquals(List.of(first, second), entries.stream().map(BookingJournal.Entry::booking).toList());
+        }
+    }
+
+    //drained records are not replayed, even after the journal started over
+    @Test
+    void markDrained_DrainedRecordsAreNotReplayed() throws IOException {
+        Path path = directory.resolve("booking.journal");
+        try (BookingJournal journal = BookingJournal.open(path, 4096)) {
+            journal.append(List.of(booking(1), booking(2)));
+            List<BookingJournal.Entry> entries = journal.readDurable();
+            journal.markDrained(entries.get(1).end());
+            assertEquals(0, journal.undrainedBytes());
+
+            journal.append(List.of(booking(3)));
+        }
+
+        try (BookingJournal journal = BookingJournal.open(path, 4096)) {
+            List<BookingJournal.Entry> entries = journal.readDurable();
+            assertEquals(1, entries.size());
+            assertEquals(3, entries.get(0).booking().getSeatNumber());
+        }
+    }
+
+    //a record torn by a crash ends the journal
+    @Test
+    void open_CorruptRecord_StopsReplayThere() throws IOException {
+        Path path = directory.resolve("booking.journal");
+        int secondRecord;
+        try (BookingJournal journal = BookingJournal.open(path, 4096)) {
+            journal.append(List.of(booking(1), booking(2)));
+            secondRecord = journal.readDurable().get(0).end();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(secondRecord + 20);
+            file.write(0x7F);
+        }
+
+        try (BookingJournal journal = BookingJournal.open(path, 4096)) {
+            assertEquals(1, journal.readDurable().size());
+        }
+    }
+
+    //records of a failed force are never acknowledged and never replayed, later appends are refused until reopened
+    @Test
+    void append_ForceFails_RecordsDiscarded() throws IOException {
+        Path path = directory.resolve("booking.journal");
+        AtomicBoolean failing = new AtomicBoolean(true);
+        try (BookingJournal journal = BookingJournal.open(path, 4096, (index, length) -> {
+            if (failing.get()) {
+                throw new UncheckedIOException(new IOException("disk error"));
+            }
+        })) {
+            assertThrows(CompletionException.class, () -> journal.append(List.of(booking(1), booking(2))));
+            failing.set(false);
+
+            assertFalse(journal.append(List.of(booking(3))));
+            assertTrue(journal.readDurable().isEmpty());
+            assertEquals(0, journal.undrainedBytes());
+        }
+
+        try (BookingJournal journal = BookingJournal.open(path, 4096)) {
+            assertTrue(journal.readDurable().isEmpty());
+            assertTrue(journal.append(List.of(booking(4))));
+            assertEquals(4, journal.readDurable().get(0).booking().getSeatNumber());
+        }
+    }
+
+    @Test
+    void append_JournalFull_ReturnsFalse() throws IOException {
+        try (BookingJournal journal = BookingJournal.open(directory.resolve("booking.journal"), BookingJournal.HEADER_SIZE + 100)) {
+            assertTrue(journal.append(List.of(booking(1))));
+            assertFalse(journal.append(List.of(booking(2), booking(3))));
+        }
+    }
+
+    private static Booking booking(int seatNumber) {
+        return new Booking(UUID.randomUUID(), 7L, seatNumber, UUID.randomUUID().toString());
+    }
+}
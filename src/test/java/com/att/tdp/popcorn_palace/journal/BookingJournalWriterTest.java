@@ -0,0 +1,152 @@
+package com.att.tdp.popcorn_palace.journal;
+
+import com.att.tdp.popcorn_palace.config.BookingJournalProperties;
+import com.att.tdp.popcorn_palace.entity.Booking;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingJournalWriterTest {
+
+    @TempDir
+    Path directory;
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private BookingJournalProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:journal;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate.getJdbcTemplate().execute("""
+            CREATE TABLE bookings (
+                booking_id UUID PRIMARY KEY,
+                showtime_id BIGINT NOT NULL,
+                seat_number INT NOT NULL,
+                user_id UUID NOT NULL,
+                CONSTRAINT uk_bookings_showtime_seat UNIQUE (showtime_id, seat_number))
+        """);
+        jdbcTemplate.getJdbcTemplate().execute("CREATE TABLE showtimes (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.getJdbcTemplate().execute("INSERT INTO showtimes VALUES (7)");
+        //no scheduled drain during the test, drains are triggered by hand
+        properties = new BookingJournalProperties(true, directory.resolve("booking.journal"), DataSize.ofKilobytes(64), Duration.ofHours(1), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.getJdbcTemplate().execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void drain_InsertsJournaledBookings() throws Exception {
+        BookingJournalWriter writer = new BookingJournalWriter(properties, jdbcTemplate, transactionManager, meterRegistry);
+        Booking booking = booking(1);
+        assertTrue(writer.write(List.of(booking, booking(2), booking(3))));
+        assertTrue(writer.findPending(booking.getBookingId()).isPresent());
+
+        writer.drain();
+
+        assertEquals(3, countBookings());
+        assertTrue(writer.findPending(booking.getBookingId()).isEmpty());
+        writer.shutdown();
+    }
+
+    //a drain called inside another transaction commits on its own, a rollback of the caller does not lose the bookings
+    @Test
+    void drain_CallerRollsBack_BookingsStayInserted() throws Exception {
+        BookingJournalWriter writer = new BookingJournalWriter(properties, jdbcTemplate, transactionManager, meterRegistry);
+        writer.write(List.of(booking(1), booking(2), booking(3)));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            writer.drain();
+            status.setRollbackOnly();
+        });
+
+        assertEquals(3, countBookings());
+        writer.shutdown();
+    }
+
+    //bookings acknowledged before a crash are inserted on startup, those already inserted are not duplicated
+    @Test
+    void startup_ReplaysAndReconcilesJournal() throws Exception {
+        BookingJournalWriter crashed = new BookingJournalWriter(properties, jdbcTemplate, transactionManager, meterRegistry);
+        Booking alreadyInserted = booking(1);
+        crashed.write(List.of(alreadyInserted, booking(2)));
+        jdbcTemplate.update("INSERT INTO bookings VALUES (:bookingId, :showtimeId, :seatNumber, :userId)", Map.of(
+                "bookingId", alreadyInserted.getBookingId(), "showtimeId", 7L, "seatNumber", 1, "userId", alreadyInserted.getUserId()));
+
+        BookingJournalWriter restarted = new BookingJournalWriter(properties, jdbcTemplate, transactionManager, meterRegistry);
+
+        assertEquals(2, countBookings());
+        restarted.shutdown();
+    }
+
+    //a seat taken outside of this instance only rejects that booking, it is counted and kept in the rejects file
+    @Test
+    void drain_SeatConflict_RejectsOnlyThatBooking() throws Exception {
+        BookingJournalWriter writer = new BookingJournalWriter(properties, jdbcTemplate, transactionManager, meterRegistry);
+        jdbcTemplate.update("INSERT INTO bookings VALUES (:bookingId, 7, 1, RANDOM_UUID())", Map.of("bookingId", UUID.randomUUID()));
+        writer.write(List.of(booking(1), booking(2)));
+
+        writer.drain();
+
+        assertEquals(2, countBookings());
+        assertEquals(1, meterRegistry.get("popcorn.booking.journal.rejected").tag("reason", "seat_taken").counter().count());
+        List<String> rejected = Files.readAllLines(directory.resolve("booking.journal.rejected"));
+        assertEquals(1, rejected.size());
+        assertTrue(rejected.get(0).contains(",7,1,"));
+        assertTrue(rejected.get(0).contains(",seat_taken,"));
+        writer.shutdown();
+    }
+
+    //a booking journaled for a showtime that was deleted before the drain is rejected instead of inserted without it
+    @Test
+    void drain_ShowtimeDeleted_RejectsItsBookings() throws Exception {
+        BookingJournalWriter writer = new BookingJournalWriter(properties, jdbcTemplate, transactionManager, meterRegistry);
+        Booking orphan = new Booking(UUID.randomUUID(), 8L, 1, UUID.randomUUID().toString());
+        writer.write(List.of(booking(1), orphan));
+
+        writer.drain();
+
+        assertEquals(1, countBookings());
+        assertTrue(writer.findPending(orphan.getBookingId()).isEmpty());
+        assertEquals(1, meterRegistry.get("popcorn.booking.journal.rejected").tag("reason", "showtime_deleted").counter().count());
+        assertTrue(Files.readString(directory.resolve("booking.journal.rejected")).startsWith(orphan.getBookingId().toString()));
+        writer.shutdown();
+    }
+
+    //a journal of 2GB or more cannot be mapped with int offsets and is refused when the settings are bound
+    @Test
+    void properties_SizeTooLarge_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new BookingJournalProperties(true, directory.resolve("booking.journal"),
+                DataSize.ofGigabytes(2), Duration.ofHours(1), 2));
+    }
+
+    private int countBookings() {
+        return jdbcTemplate.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM bookings", Integer.class);
+    }
+
+    private static Booking booking(int seatNumber) {
+        return new Booking(UUID.randomUUID(), 7L, seatNumber, UUID.randomUUID().toString());
+    }
+}
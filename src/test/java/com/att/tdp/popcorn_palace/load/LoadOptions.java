@@ -0,0 +1,100 @@
+package com.att.tdp.popcorn_palace.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Settings of one load run, parsed from key=value arguments
+record LoadOptions(
+        //requests started per second, whether or not earlier ones finished
+        int rate,
+        Duration warmup,
+        Duration duration,
+        //relative weight of each scenario group
+        Map<String, Integer> mix,
+        int movies,
+        int showtimes,
+        //seats of the hot showtime every booking goes to, once they are taken bookings get 409
+        int hotSeats,
+        //requests still running when a new one is due, above this it is counted as dropped
+        int maxInFlight,
+        //platform, virtual or both (platform,virtual), each mode is a fresh application run with the same load
+        List<String> threads,
+        //tomcat worker threads of the platform mode
+        int platformThreads,
+        Path report) {
+
+    static LoadOptions parse(String... args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected key=value but got '" + arg + "'");
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        LoadOptions options = new LoadOptions(
+                Integer.parseInt(values.getOrDefault("rate", "500")),
+                duration(values.getOrDefault("warmup", "10s")),
+                duration(values.getOrDefault("duration", "30s")),
+                mix(values.getOrDefault("mix", "browse:50,showtimes:30,booking:20")),
+                Integer.parseInt(values.getOrDefault("movies", "1000")),
+                Integer.parseInt(values.getOrDefault("showtimes", "500")),
+                Integer.parseInt(values.getOrDefault("hotSeats", "200")),
+                Integer.parseInt(values.getOrDefault("maxInFlight", "10000")),
+                threads(values.getOrDefault("threads", "platform")),
+                Integer.parseInt(values.getOrDefault("platformThreads", "200")),
+                Path.of(values.getOrDefault("report", "target/load-report.json")));
+        values.keySet().removeAll(List.of("rate", "warmup", "duration", "mix", "movies",
+                "showtimes", "hotSeats", "maxInFlight", "threads", "platformThreads", "report"));
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options " + values.keySet());
+        }
+        return options;
+    }
+
+    //report file of one mode, suffixed when several modes share the run
+    Path report(String mode) {
+        if (threads.size() == 1) {
+            return report;
+        }
+        String name = report.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return report.resolveSibling(dot < 0 ? name + "-" + mode : name.substring(0, dot) + "-" + mode + name.substring(dot));
+    }
+
+    private static List<String> threads(String text) {
+        List<String> modes = List.of(text.split(","));
+        for (String mode : modes) {
+            if (!mode.equals("platform") && !mode.equals("virtual")) {
+                throw new IllegalArgumentException("Expected threads platform, virtual or platform,virtual but got '" + text + "'");
+            }
+        }
+        return modes;
+    }
+
+    //30s, 2m or 500ms
+    private static Duration duration(String text) {
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+        }
+        long amount = Long.parseLong(text.substring(0, text.length() - 1));
+        return switch (text.charAt(text.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            default -> throw new IllegalArgumentException("Expected a duration like 30s, 2m or 500ms but got '" + text + "'");
+        };
+    }
+
+    //browse:50,showtimes:30,booking:20
+    private static Map<String, Integer> mix(String text) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : text.split(",")) {
+            String[] weight = part.split(":");
+            mix.put(weight[0].trim(), Integer.parseInt(weight[1].trim()));
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,114 @@
+package com.att.tdp.popcorn_palace.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+//Summary of a measured run: throughput, latency percentiles and outcomes per request type and in total.
+//The json file also carries every histogram in HdrHistogram's compressed form, so runs of two builds
+//can be compared or plotted later without running them again.
+final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LoadOptions options;
+    private final String threads;
+    private final double seconds;
+    private final List<Row> rows = new ArrayList<>();
+
+    LoadReport(LoadOptions options, String threads, long elapsedNanos, List<ScenarioStats> stats) {
+        this.options = options;
+        this.threads = threads;
+        this.seconds = elapsedNanos / 1e9;
+        Histogram total = null;
+        Map<String, Long> totalOutcomes = new TreeMap<>();
+        for (ScenarioStats scenario : stats) {
+            Histogram histogram = scenario.histogram();
+            Map<String, Long> outcomes = scenario.outcomes();
+            rows.add(new Row(scenario.name(), histogram, outcomes));
+            if (total == null) {
+                total = new Histogram(histogram.getHighestTrackableValue(), histogram.getNumberOfSignificantValueDigits());
+            }
+            total.add(histogram);
+            outcomes.forEach((outcome, count) -> totalOutcomes.merge(outcome, count, Long::sum));
+        }
+        if (total != null) {
+            rows.add(new Row("total", total, totalOutcomes));
+        }
+    }
+
+    private record Row(String name, Histogram histogram, Map<String, Long> outcomes) {
+    }
+
+    void print(PrintStream out) {
+        out.printf("%n%-22s %9s %9s %9s %9s %9s %9s %9s  %s%n", "request", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "outcomes");
+        for (Row row : rows) {
+            Histogram histogram = row.histogram();
+            out.printf("%-22s %9d %9.1f", row.name(), histogram.getTotalCount(), histogram.getTotalCount() / seconds);
+            for (double percentile : PERCENTILES) {
+                out.printf(" %9.2f", histogram.getValueAtPercentile(percentile) / 1000.0);
+            }
+            out.printf(" %9.2f  %s%n", histogram.getMaxValue() / 1000.0, row.outcomes());
+        }
+    }
+
+    void write(ObjectMapper objectMapper, Path path) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("threads", threads);
+        report.put("rate", options.rate());
+        report.put("durationSeconds", seconds);
+        report.put("mix", options.mix());
+        report.put("hotSeats", options.hotSeats());
+        List<Map<String, Object>> requests = new ArrayList<>();
+        for (Row row : rows) {
+            Histogram histogram = row.histogram();
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("name", row.name());
+            request.put("count", histogram.getTotalCount());
+            request.put("throughput", histogram.getTotalCount() / seconds);
+            Map<String, Double> latency = new LinkedHashMap<>();
+            latency.put("mean", histogram.getMean() / 1000.0);
+            for (double percentile : PERCENTILES) {
+                latency.put("p" + (percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile)),
+                        histogram.getValueAtPercentile(percentile) / 1000.0);
+            }
+            latency.put("max", histogram.getMaxValue() / 1000.0);
+            request.put("latencyMillis", latency);
+            request.put("outcomes", row.outcomes());
+            request.put("histogram", encode(histogram));
+            requests.add(request);
+        }
+        report.put("requests", requests);
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), report);
+    }
+
+    //the totals of runs of the same load side by side, one line per thread mode
+    static void compare(Map<String, LoadReport> reports, PrintStream out) {
+        out.printf("%n%-10s %9s %9s %9s %9s %9s %9s  %s%n", "threads", "count", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "outcomes");
+        reports.forEach((mode, report) -> {
+            Row total = report.rows.get(report.rows.size() - 1);
+            Histogram histogram = total.histogram();
+            out.printf("%-10s %9d %9.1f %9.2f %9.2f %9.2f %9.2f  %s%n", mode, histogram.getTotalCount(), histogram.getTotalCount() / report.seconds,
+                    histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0, histogram.getMaxValue() / 1000.0, total.outcomes());
+        });
+    }
+
+    //microsecond values, read back with Histogram.decodeFromCompressedByteBuffer
+    private static String encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length));
+    }
+}
@@ -0,0 +1,154 @@
+package com.att.tdp.popcorn_palace.load;
+
+import com.att.tdp.popcorn_palace.PopcornPalaceApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+//End to end load run: boots the application on a random port with H2 in memory, seeds a catalog through the API
+//and sends the scenario mix over real HTTP at a fixed arrival rate (open model).
+//Every request is due at its slot of the schedule and runs on its own virtual thread, a slow server gets more
+//requests in flight instead of fewer requests.
+//run: mvn -Pload test-compile exec:exec -Dload.args="rate=500 duration=30s"
+//platform against virtual threads: -Dload.args="rate=500 threads=platform,virtual platformThreads=50"
+public final class LoadRunner {
+
+    private LoadRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        Map<String, LoadReport> reports = new LinkedHashMap<>();
+        for (String mode : options.threads()) {
+            reports.put(mode, run(options, mode));
+        }
+        if (reports.size() > 1) {
+            LoadReport.compare(reports, System.out);
+        }
+    }
+
+    //one application run in the given thread mode, the virtual mode also guards the connection pool
+    private static LoadReport run(LoadOptions options, String mode) throws Exception {
+        boolean virtual = mode.equals("virtual");
+        System.out.printf("Starting the application with %s threads%n", mode);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(PopcornPalaceApplication.class)
+                .run(
+                        "--server.port=0",
+                        //a database per mode, the one of an earlier mode lives on in this JVM
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + mode + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--popcorn-palace.datasource.guard.enabled=" + virtual,
+                        "--server.tomcat.threads.max=" + options.platformThreads());
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(clients)
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            ObjectMapper objectMapper = new ObjectMapper();
+            LoadScenarios scenarios = LoadScenarios.seed(client, URI.create("http://localhost:" + port), options, objectMapper);
+
+            Map<LoadScenarios.Scenario, ScenarioStats> stats = new LinkedHashMap<>();
+            scenarios.all().forEach(scenario -> stats.put(scenario, new ScenarioStats(scenario.name())));
+            LoadScenarios.Scenario[] schedule = weighted(scenarios.all(), options.mix());
+
+            System.out.printf("Warming up for %s at %d requests/s%n", options.warmup(), options.rate());
+            drive(client, clients, scenarios, schedule, stats, options, options.warmup());
+            stats.values().forEach(ScenarioStats::reset);
+            System.out.printf("Measuring for %s at %d requests/s%n", options.duration(), options.rate());
+            long elapsed = drive(client, clients, scenarios, schedule, stats, options, options.duration());
+
+            LoadReport report = new LoadReport(options, mode, elapsed, new ArrayList<>(stats.values()));
+            report.print(System.out);
+            report.write(objectMapper, options.report(mode));
+            System.out.println("Report written to " + options.report(mode).toAbsolutePath());
+            return report;
+        } finally {
+            context.close();
+        }
+    }
+
+    //sends requests on schedule for the given time, then waits for the ones still running. Returns the nanos it took
+    private static long drive(HttpClient client, ExecutorService clients, LoadScenarios scenarios, LoadScenarios.Scenario[] schedule,
+                              Map<LoadScenarios.Scenario, ScenarioStats> stats, LoadOptions options, Duration duration)
+            throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        AtomicInteger inFlight = new AtomicInteger();
+        for (long n = 0; ; n++) {
+            long due = start + n * interval;
+            if (due >= end) {
+                break;
+            }
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            LoadScenarios.Scenario scenario = schedule[ThreadLocalRandom.current().nextInt(schedule.length)];
+            ScenarioStats scenarioStats = stats.get(scenario);
+            if (inFlight.incrementAndGet() > options.maxInFlight()) {
+                inFlight.decrementAndGet();
+                scenarioStats.drop();
+                continue;
+            }
+            clients.execute(() -> {
+                try {
+                    HttpResponse<byte[]> response = client.send(scenario.request().get(), HttpResponse.BodyHandlers.ofByteArray());
+                    scenarioStats.record(due, System.nanoTime(), Integer.toString(response.statusCode()));
+                    scenarios.seen(scenario, response);
+                } catch (HttpTimeoutException e) {
+                    scenarioStats.record(due, System.nanoTime(), "timeout");
+                } catch (Exception e) {
+                    scenarioStats.record(due, System.nanoTime(), e.getClass().getSimpleName());
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+        //the stragglers count, they were due inside the window
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return System.nanoTime() - start;
+    }
+
+    //one entry per weight point of its group, the requests of a group share its weight evenly
+    private static LoadScenarios.Scenario[] weighted(List<LoadScenarios.Scenario> scenarios, Map<String, Integer> mix) {
+        List<LoadScenarios.Scenario> schedule = new ArrayList<>();
+        for (Map.Entry<String, Integer> group : mix.entrySet()) {
+            List<LoadScenarios.Scenario> members = scenarios.stream().filter(scenario -> scenario.group().equals(group.getKey())).toList();
+            if (members.isEmpty()) {
+                throw new IllegalArgumentException("Unknown scenario group '" + group.getKey() + "', expected browse, showtimes or booking");
+            }
+            for (int i = 0; i < group.getValue() * members.size(); i++) {
+                schedule.add(members.get(i % members.size()));
+            }
+        }
+        if (schedule.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no weight");
+        }
+        return schedule.toArray(LoadScenarios.Scenario[]::new);
+    }
+}
@@ -0,0 +1,152 @@
+package com.att.tdp.popcorn_palace.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+//The requests of a run, grouped the way the mix weights them:
+//browse (movie pages, type-ahead search, polling the full catalog with its ETag),
+//showtimes (lookups by id, schedule pages of a theater) and booking (random seats of one hot showtime).
+//The catalog they run against is created through the API before the run.
+final class LoadScenarios {
+
+    private static final String[] WORDS = {"star", "night", "dark", "love", "city", "last", "story", "house", "road",
+            "dream", "time", "world", "ghost", "river", "moon", "fire", "storm", "secret", "heart", "shadow"};
+    private static final String[] GENRES = {"Action", "Comedy", "Drama", "Horror", "Sci-Fi", "Romance"};
+    private static final int THEATERS = 25;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    //one request type of the mix
+    record Scenario(String group, String name, Supplier<HttpRequest> request) {
+    }
+
+    private final URI base;
+    private final int movieCount;
+    private final int hotSeats;
+    private final List<Scenario> scenarios;
+    private final List<Long> showtimeIds = new ArrayList<>();
+    private long hotShowtimeId;
+    //the catalog ETag the polling clients last saw
+    private volatile String catalogEtag;
+
+    private LoadScenarios(URI base, LoadOptions options) {
+        this.base = base;
+        this.movieCount = options.movies();
+        this.hotSeats = options.hotSeats();
+        this.scenarios = List.of(
+                new Scenario("browse", "GET /movies", this::moviePage),
+                new Scenario("browse", "GET /movies/search", this::movieSearch),
+                new Scenario("browse", "GET /movies/all", this::catalogPoll),
+                new Scenario("showtimes", "GET /showtimes/{id}", this::showtimeById),
+                new Scenario("showtimes", "GET /showtimes", this::theaterSchedule),
+                new Scenario("booking", "POST /bookings", this::hotBooking));
+    }
+
+    //creates the movies and the schedule through the API
+    static LoadScenarios seed(HttpClient client, URI base, LoadOptions options, ObjectMapper objectMapper)
+            throws IOException, InterruptedException {
+        LoadScenarios scenarios = new LoadScenarios(base, options);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        List<Map<String, Object>> movies = new ArrayList<>(options.movies());
+        for (int i = 1; i <= options.movies(); i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            movies.add(Map.of("title", Character.toUpperCase(title.charAt(0)) + title.substring(1),
+                    "genre", GENRES[random.nextInt(GENRES.length)], "duration", 90,
+                    "rating", 1 + random.nextInt(90) / 10.0, "releaseYear", 1960 + random.nextInt(65)));
+        }
+        JsonNode upserted = objectMapper.readTree(send(client, HttpRequest.newBuilder(base.resolve("/movies/bulk"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(movies)))));
+        List<Long> movieIds = new ArrayList<>();
+        upserted.get("rows").forEach(row -> movieIds.add(row.get("movieId").asLong()));
+
+        //back to back 100 minute slots per theater, starting tomorrow
+        StringBuilder csv = new StringBuilder("movieId,theater,startTime,endTime,price\n");
+        LocalDateTime first = LocalDateTime.now().plusDays(1).withHour(10).withMinute(0).withSecond(0).withNano(0);
+        for (int i = 0; i < options.showtimes(); i++) {
+            LocalDateTime start = first.plusMinutes(120L * (i / THEATERS));
+            csv.append(movieIds.get(random.nextInt(movieIds.size()))).append(",Hall ").append(i % THEATERS).append(',')
+                    .append(start).append(',').append(start.plusMinutes(95)).append(",20\n");
+        }
+        JsonNode imported = objectMapper.readTree(send(client, HttpRequest.newBuilder(base.resolve("/showtimes/import"))
+                .header("Content-Type", "text/csv")
+                .POST(HttpRequest.BodyPublishers.ofString(csv.toString()))));
+        imported.get("rows").forEach(row -> {
+            if (!row.get("showtimeId").isNull()) {
+                scenarios.showtimeIds.add(row.get("showtimeId").asLong());
+            }
+        });
+        if (scenarios.showtimeIds.isEmpty()) {
+            throw new IllegalStateException("The schedule import did not create any showtime: " + imported);
+        }
+        scenarios.hotShowtimeId = scenarios.showtimeIds.get(0);
+        return scenarios;
+    }
+
+    List<Scenario> all() {
+        return scenarios;
+    }
+
+    //remembers the catalog ETag, so the next polls are conditional
+    void seen(Scenario scenario, HttpResponse<?> response) {
+        if (scenario.name().equals("GET /movies/all") && response.statusCode() == 200) {
+            response.headers().firstValue("ETag").ifPresent(etag -> catalogEtag = etag);
+        }
+    }
+
+    private HttpRequest moviePage() {
+        return get("/movies?limit=20&after=" + ThreadLocalRandom.current().nextInt(movieCount));
+    }
+
+    private HttpRequest movieSearch() {
+        String word = WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+        return get("/movies/search?q=" + word.substring(0, 1 + ThreadLocalRandom.current().nextInt(word.length())));
+    }
+
+    private HttpRequest catalogPoll() {
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve("/movies/all")).timeout(TIMEOUT)
+                .header("Accept-Encoding", "gzip");
+        String etag = catalogEtag;
+        return (etag != null ? request.header("If-None-Match", etag) : request).GET().build();
+    }
+
+    private HttpRequest showtimeById() {
+        return get("/showtimes/" + showtimeIds.get(ThreadLocalRandom.current().nextInt(showtimeIds.size())));
+    }
+
+    private HttpRequest theaterSchedule() {
+        return get("/showtimes?limit=20&theater=Hall%20" + ThreadLocalRandom.current().nextInt(THEATERS));
+    }
+
+    private HttpRequest hotBooking() {
+        String body = "{\"showtimeId\":" + hotShowtimeId + ",\"seatNumber\":" + (1 + ThreadLocalRandom.current().nextInt(hotSeats))
+                + ",\"userId\":\"" + UUID.randomUUID() + "\"}";
+        return HttpRequest.newBuilder(base.resolve("/bookings")).timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(base.resolve(path)).timeout(TIMEOUT).GET().build();
+    }
+
+    private static byte[] send(HttpClient client, HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request.timeout(Duration.ofMinutes(5)).build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(request.build().uri() + " answered " + response.statusCode() + ": " + new String(response.body()));
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,59 @@
+package com.att.tdp.popcorn_palace.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//Latencies and outcomes of one request type.
+//Latency runs from the moment the request was due, not from when it was sent, so a stalled server
+//shows up in the percentiles instead of only slowing down the load (no coordinated omission).
+final class ScenarioStats {
+
+    //microseconds, up to a minute at 3 significant digits
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toMicros(1);
+
+    private final String name;
+    private final Recorder recorder = new Recorder(HIGHEST_LATENCY, 3);
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    ScenarioStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    //an http status code, or what went wrong on the client side
+    void record(long dueNanos, long doneNanos, String outcome) {
+        recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(doneNanos - dueNanos), HIGHEST_LATENCY));
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    //a request that was never sent
+    void drop() {
+        outcomes.computeIfAbsent("dropped", key -> new LongAdder()).increment();
+    }
+
+    //forget everything recorded so far, the end of the warmup
+    void reset() {
+        recorder.reset();
+        outcomes.clear();
+    }
+
+    //everything recorded since the last reset, read it once at the end of the run
+    Histogram histogram() {
+        return recorder.getIntervalHistogram();
+    }
+
+    Map<String, Long> outcomes() {
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+        return counts;
+    }
+}
@@ -0,0 +1,104 @@
+package com.att.tdp.popcorn_palace.schedule;
+
+import com.att.tdp.popcorn_palace.config.CatalogProperties;
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ShowtimeCacheTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    @Mock
+    private ShowtimeRepository showtimeRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ShowtimeCache showtimeCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(new Showtime(1L, 2L, 20.0, "Hall 1", NOON, NOON.plusHours(2))));
+        showtimeCache = new ShowtimeCache(showtimeRepository,
+                new CatalogProperties(50, 500, CatalogProperties.OverlapCheck.INDEX, 100, Duration.ofMinutes(10)), meterRegistry);
+    }
+
+    //the second lookup is a hit, and each caller gets its own copy
+    @Test
+    void get_Twice_LoadsOnce() {
+        Showtime first = showtimeCache.get(1L).orElseThrow();
+        first.setStartTime(NOON.minusDays(1));
+
+        assertEquals(NOON, showtimeCache.get(1L).orElseThrow().getStartTime());
+        verify(showtimeRepository, times(1)).findById(1L);
+        assertEquals(0.5, meterRegistry.get("popcorn.showtimes.cache.hit.ratio").gauge().value());
+        assertEquals(1, meterRegistry.get("popcorn.showtimes.cache.load").timer().count());
+    }
+
+    //unknown ids are looked up again every time
+    @Test
+    void get_Unknown_NotCached() {
+        assertTrue(showtimeCache.get(9L).isEmpty());
+        assertTrue(showtimeCache.get(9L).isEmpty());
+        verify(showtimeRepository, times(2)).findById(9L);
+    }
+
+    //an evicted showtime is read again
+    @Test
+    void evictAfterCommit_OutsideTransaction_EvictsRightAway() {
+        showtimeCache.get(1L);
+        showtimeCache.evictAfterCommit(1L);
+        showtimeCache.get(1L);
+
+        verify(showtimeRepository, times(2)).findById(1L);
+    }
+
+    //concurrent misses of the same id share one load
+    @Test
+    void get_ConcurrentMisses_CoalesceIntoOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(showtimeRepository.findById(5L)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(new Showtime(5L, 2L, 20.0, "Hall 1", NOON, NOON.plusHours(2)));
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<Showtime>>> lookups = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                lookups.add(executor.submit(() -> showtimeCache.get(5L)));
+            }
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            //give the other lookups time to reach the cache while the load is running
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<Optional<Showtime>> lookup : lookups) {
+                assertEquals(5L, lookup.get(5, TimeUnit.SECONDS).orElseThrow().getId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(showtimeRepository, times(1)).findById(5L);
+    }
+}
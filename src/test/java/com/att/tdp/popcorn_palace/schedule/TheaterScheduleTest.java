@@ -0,0 +1,129 @@
+package com.att.tdp.popcorn_palace.schedule;
+
+import com.att.tdp.popcorn_palace.config.CatalogProperties;
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TheaterScheduleTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    @Mock
+    private ShowtimeRepository showtimeRepository;
+
+    @Mock
+    private OverlapConstraint overlapConstraint;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TheaterSchedule theaterSchedule;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        List<Object[]> slots = new ArrayList<>();
+        slots.add(new Object[]{1L, NOON, NOON.plusHours(2)});
+        slots.add(new Object[]{2L, NOON.plusHours(5), NOON.plusHours(8)});
+        when(showtimeRepository.findSlotsByTheater("Hall 1")).thenReturn(slots);
+        theaterSchedule = schedule(CatalogProperties.OverlapCheck.INDEX);
+    }
+
+    //new showtimes may not even touch an existing one
+    @Test
+    void overlapsAny_MatchesDatabaseQuerySemantics() {
+        assertTrue(theaterSchedule.overlapsAny("Hall 1", NOON.plusHours(1), NOON.plusHours(3)));
+        assertTrue(theaterSchedule.overlapsAny("Hall 1", NOON.plusHours(2), NOON.plusHours(4)));
+        assertTrue(theaterSchedule.overlapsAny("Hall 1", NOON.minusHours(1), NOON.plusHours(10)));
+        //a long showtime that started well before the window
+        assertTrue(theaterSchedule.overlapsAny("Hall 1", NOON.plusHours(7), NOON.plusHours(7).plusMinutes(30)));
+        assertFalse(theaterSchedule.overlapsAny("Hall 1", NOON.plusHours(2).plusMinutes(1), NOON.plusHours(4)));
+        assertFalse(theaterSchedule.overlapsAny("Hall 2", NOON, NOON.plusHours(2)));
+        verify(showtimeRepository, times(1)).findSlotsByTheater("Hall 1");
+        verify(showtimeRepository, never()).existsByTheaterAndOverlappingTimeRange(anyString(), any(), any());
+    }
+
+    //updates ignore the showtime itself and allow touching end points
+    @Test
+    void overlapsOther_ExcludesSelf() {
+        assertFalse(theaterSchedule.overlapsOther("Hall 1", NOON.minusMinutes(5), NOON.plusHours(2).plusMinutes(5), 1L));
+        assertFalse(theaterSchedule.overlapsOther("Hall 1", NOON.plusHours(2), NOON.plusHours(5), 3L));
+        assertTrue(theaterSchedule.overlapsOther("Hall 1", NOON.plusHours(1), NOON.plusHours(6), 1L));
+    }
+
+    //committed adds, moves and deletes are seen by the next check
+    @Test
+    void putAndRemove_KeepScheduleInSync() {
+        theaterSchedule.overlapsAny("Hall 1", NOON, NOON);
+
+        theaterSchedule.putAfterCommit(new Showtime(3L, 1L, 20.0, "Hall 1", NOON.plusHours(10), NOON.plusHours(12)));
+        assertTrue(theaterSchedule.overlapsAny("Hall 1", NOON.plusHours(11), NOON.plusHours(13)));
+
+        //moved to another theater
+        theaterSchedule.putAfterCommit(new Showtime(3L, 1L, 20.0, "Hall 2", NOON.plusHours(10), NOON.plusHours(12)));
+        assertFalse(theaterSchedule.overlapsAny("Hall 1", NOON.plusHours(11), NOON.plusHours(13)));
+
+        theaterSchedule.removeAfterCommit(2L);
+        assertFalse(theaterSchedule.overlapsAny("Hall 1", NOON.plusHours(6), NOON.plusHours(7)));
+    }
+
+    //in verify mode the database decides and a mismatch is counted
+    @Test
+    void verify_Mismatch_TrustsDatabase() {
+        TheaterSchedule verifying = schedule(CatalogProperties.OverlapCheck.VERIFY);
+        when(showtimeRepository.existsByTheaterAndOverlappingTimeRange("Hall 1", NOON.plusHours(3), NOON.plusHours(4))).thenReturn(true);
+
+        assertTrue(verifying.overlapsAny("Hall 1", NOON.plusHours(3), NOON.plusHours(4)));
+        assertEquals(1.0, meterRegistry.get("popcorn.showtimes.overlap.mismatch").counter().count());
+    }
+
+    //with the exclusion constraint in place nothing is checked before the write
+    @Test
+    void constraint_Enforced_SkipsCheck() {
+        TheaterSchedule constrained = schedule(CatalogProperties.OverlapCheck.CONSTRAINT);
+        when(overlapConstraint.isEnforced()).thenReturn(true);
+
+        assertFalse(constrained.overlapsAny("Hall 1", NOON, NOON.plusHours(1)));
+        verifyNoInteractions(showtimeRepository);
+    }
+
+    //the buffer of an update is not in the constraint, a move to 3 minutes after a neighbour is still rejected
+    @Test
+    void constraint_Enforced_UpdateKeepsBuffer() {
+        TheaterSchedule constrained = schedule(CatalogProperties.OverlapCheck.CONSTRAINT);
+        when(overlapConstraint.isEnforced()).thenReturn(true);
+        LocalDateTime start = NOON.plusHours(2).plusMinutes(3);
+
+        assertTrue(constrained.overlapsOther("Hall 1", start.minusMinutes(5), start.plusHours(2).plusMinutes(5), 3L));
+        verify(showtimeRepository, never()).existsByTheaterAndOverlappingTimeRangeExcludingSelf(anyString(), any(), any(), any());
+    }
+
+    //without the constraint (h2) the in-memory schedule is the check
+    @Test
+    void constraint_Missing_FallsBackToSchedule() {
+        TheaterSchedule constrained = schedule(CatalogProperties.OverlapCheck.CONSTRAINT);
+        when(overlapConstraint.isEnforced()).thenReturn(false);
+
+        assertTrue(constrained.overlapsAny("Hall 1", NOON, NOON.plusHours(1)));
+        assertFalse(constrained.overlapsOther("Hall 1", NOON, NOON.plusHours(1), 1L));
+        verify(showtimeRepository, never()).existsByTheaterAndOverlappingTimeRange(anyString(), any(), any());
+    }
+
+    private TheaterSchedule schedule(CatalogProperties.OverlapCheck overlapCheck) {
+        return new TheaterSchedule(showtimeRepository, new CatalogProperties(50, 500, overlapCheck, 100, Duration.ofMinutes(10)), overlapConstraint, meterRegistry);
+    }
+}
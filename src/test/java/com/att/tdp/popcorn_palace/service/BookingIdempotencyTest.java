@@ -0,0 +1,184 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.config.IdempotencyProperties;
+import com.att.tdp.popcorn_palace.dto.BookingResponseDTO;
+import com.att.tdp.popcorn_palace.entity.Booking;
+import com.att.tdp.popcorn_palace.entity.IdempotencyRecord;
+import com.att.tdp.popcorn_palace.exception.*;
+import com.att.tdp.popcorn_palace.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BookingIdempotencyTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private BookingIdempotency bookingIdempotency;
+    private Booking booking;
+
+    @BeforeEach//start before the tests
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(idempotencyRecordRepository.findById(any())).thenReturn(Optional.empty());
+        when(idempotencyRecordRepository.save(any(IdempotencyRecord.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        bookingIdempotency = new BookingIdempotency(idempotencyRecordRepository,
+                new IdempotencyProperties(Duration.ofHours(24), 1000, Duration.ofSeconds(5), Duration.ofMinutes(2)));
+        booking = new Booking(null, 1L, 15, "84438967-f68f-4fa0-b620-0f08217e76af");
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingIdempotency.shutdown();
+    }
+
+    //a retry with the same key gets the first booking id without booking again
+    @Test
+    void execute_SameKeyTwice_BooksOnce() {
+        UUID bookingId = UUID.randomUUID();
+        AtomicInteger calls = new AtomicInteger();
+
+        BookingResponseDTO first = bookingIdempotency.execute("key-1", booking, () -> {
+            calls.incrementAndGet();
+            return new BookingResponseDTO(bookingId);
+        });
+        BookingResponseDTO second = bookingIdempotency.execute("key-1", booking, () -> {
+            calls.incrementAndGet();
+            return new BookingResponseDTO(UUID.randomUUID());
+        });
+
+        assertEquals(bookingId, first.bookingId());
+        assertEquals(bookingId, second.bookingId());
+        assertEquals(1, calls.get());
+    }
+
+    //a client error is replayed as the same error
+    @Test
+    void execute_FirstRequestConflicted_ReplaysConflict() {
+        assertThrows(DataConflictException.class, () -> bookingIdempotency.execute("key-2", booking, () -> {
+            throw new DataConflictException("Seat number 15 is already booked for showtime ID 1");
+        }));
+
+        DataConflictException replayed = assertThrows(DataConflictException.class,
+                () -> bookingIdempotency.execute("key-2", booking, () -> new BookingResponseDTO(UUID.randomUUID())));
+        assertEquals("Seat number 15 is already booked for showtime ID 1", replayed.getMessage());
+    }
+
+    //the same key with a different body is rejected
+    @Test
+    void execute_DifferentRequestSameKey_ThrowsInvalidInputException() {
+        bookingIdempotency.execute("key-3", booking, () -> new BookingResponseDTO(UUID.randomUUID()));
+        Booking other = new Booking(null, 1L, 16, booking.getUserId());
+
+        assertThrows(InvalidInputException.class,
+                () -> bookingIdempotency.execute("key-3", other, () -> new BookingResponseDTO(UUID.randomUUID())));
+    }
+
+    //an unexpected failure is not remembered, the retry books again
+    @Test
+    void execute_UnexpectedFailure_RetryRunsAgain() {
+        UUID bookingId = UUID.randomUUID();
+        assertThrows(IllegalStateException.class, () -> bookingIdempotency.execute("key-4", booking, () -> {
+            throw new IllegalStateException("database down");
+        }));
+        verify(idempotencyRecordRepository).deleteById("key-4");
+
+        assertEquals(bookingId, bookingIdempotency.execute("key-4", booking, () -> new BookingResponseDTO(bookingId)).bookingId());
+    }
+
+    //a full booking lane is not final, the retry with the same key gets booked
+    @Test
+    void execute_TooManyRequests_RetryRunsAgain() {
+        UUID bookingId = UUID.randomUUID();
+        assertThrows(TooManyRequestsException.class, () -> bookingIdempotency.execute("key-8", booking, () -> {
+            throw new TooManyRequestsException("Too many bookings are waiting for showtime ID 1, try again later.");
+        }));
+        verify(idempotencyRecordRepository).deleteById("key-8");
+        verify(idempotencyRecordRepository, never()).save(any(IdempotencyRecord.class));
+
+        assertEquals(bookingId, bookingIdempotency.execute("key-8", booking, () -> new BookingResponseDTO(bookingId)).bookingId());
+    }
+
+    //a key reserved by another instance and still running answers with a conflict
+    @Test
+    void execute_KeyInProgressElsewhere_ThrowsDataConflictException() {
+        when(idempotencyRecordRepository.findById("key-5")).thenReturn(Optional.of(new IdempotencyRecord("key-5",
+                "1:15:" + booking.getUserId(), IdempotencyRecord.IN_PROGRESS, null, null, LocalDateTime.now())));
+
+        assertThrows(DataConflictException.class,
+                () -> bookingIdempotency.execute("key-5", booking, () -> new BookingResponseDTO(UUID.randomUUID())));
+        verify(idempotencyRecordRepository, never()).deleteInProgressCreatedBefore(any(), any());
+    }
+
+    //a key left in progress by an instance that died is taken over once its lease ran out
+    @Test
+    void execute_InProgressLeaseExpired_RetryRunsAgain() {
+        UUID bookingId = UUID.randomUUID();
+        when(idempotencyRecordRepository.findById("key-9")).thenReturn(Optional.of(new IdempotencyRecord("key-9",
+                "1:15:" + booking.getUserId(), IdempotencyRecord.IN_PROGRESS, null, null, LocalDateTime.now().minusMinutes(5))));
+        when(idempotencyRecordRepository.deleteInProgressCreatedBefore(eq("key-9"), any())).thenReturn(1);
+
+        assertEquals(bookingId, bookingIdempotency.execute("key-9", booking, () -> new BookingResponseDTO(bookingId)).bookingId());
+        verify(idempotencyRecordRepository).saveAndFlush(any(IdempotencyRecord.class));
+    }
+
+    //duplicates sent at the same time wait for the first request instead of booking again
+    @Test
+    void execute_ConcurrentDuplicates_BookOnce() throws Exception {
+        UUID bookingId = UUID.randomUUID();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<BookingResponseDTO> first = executor.submit(() -> bookingIdempotency.execute("key-6", booking, () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                await(finish);
+                return new BookingResponseDTO(bookingId);
+            }));
+            started.await();
+            Future<BookingResponseDTO> duplicate = executor.submit(() -> bookingIdempotency.execute("key-6", booking, () -> {
+                calls.incrementAndGet();
+                return new BookingResponseDTO(UUID.randomUUID());
+            }));
+            finish.countDown();
+
+            assertEquals(bookingId, first.get(5, TimeUnit.SECONDS).bookingId());
+            assertEquals(bookingId, duplicate.get(5, TimeUnit.SECONDS).bookingId());
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //keys longer than the column are rejected
+    @Test
+    void execute_KeyTooLong_ThrowsInvalidInputException() {
+        assertThrows(InvalidInputException.class,
+                () -> bookingIdempotency.execute("k".repeat(256), booking, () -> new BookingResponseDTO(UUID.randomUUID())));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.config.BookingLanesProperties;
+import com.att.tdp.popcorn_palace.dto.BookingResponseDTO;
+import com.att.tdp.popcorn_palace.entity.Booking;
+import com.att.tdp.popcorn_palace.exception.DataConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BookingLanesTest {
+
+    @Mock
+    private BookingService bookingService;
+
+    private BookingLanes bookingLanes;
+
+    @BeforeEach//start before the tests
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        bookingLanes = new BookingLanes(bookingService, new BookingLanesProperties(true, 2, 50, 100), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingLanes.shutdown();
+    }
+
+    //the caller gets the outcome of its own booking from the lane batch
+    @Test
+    void bookTicket_BatchOutcome_ReturnedToCaller() {
+        UUID bookingId = UUID.randomUUID();
+        when(bookingService.bookTicketBatch(anyList())).thenAnswer(invocation -> {
+            List<Booking> batch = invocation.getArgument(0);
+            return batch.stream().map(booking -> booking.getSeatNumber() == 7
+                    ? new BookingService.BookingOutcome(null, new DataConflictException("Seat number 7 is already booked for showtime ID 1"))
+                    : new BookingService.BookingOutcome(new BookingResponseDTO(bookingId), null)).toList();
+        });
+
+        assertEquals(bookingId, bookingLanes.bookTicket(booking(1L, 5)).bookingId());
+        assertThrows(DataConflictException.class, () -> bookingLanes.bookTicket(booking(1L, 7)));
+    }
+
+    //a failed batch is booked again one request at a time
+    @Test
+    void bookTicket_BatchFails_FallsBackToSingleBookings() {
+        UUID bookingId = UUID.randomUUID();
+        when(bookingService.bookTicketBatch(anyList())).thenThrow(new DataIntegrityViolationException("uk_bookings_showtime_seat"));
+        when(bookingService.bookTicket(any(Booking.class))).thenReturn(new BookingResponseDTO(bookingId));
+
+        assertEquals(bookingId, bookingLanes.bookTicket(booking(1L, 5)).bookingId());
+        verify(bookingService).bookTicket(any(Booking.class));
+    }
+
+    //concurrent bookings of one showtime are handled by one lane, never two batches at the same time
+    @Test
+    void bookTicket_ConcurrentRequests_OneShowtimeNeverRunsInParallel() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        when(bookingService.bookTicketBatch(anyList())).thenAnswer(invocation -> {
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            Thread.sleep(2);
+            running.decrementAndGet();
+            List<Booking> batch = invocation.getArgument(0);
+            return batch.stream().map(booking -> new BookingService.BookingOutcome(new BookingResponseDTO(UUID.randomUUID()), null)).toList();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<BookingResponseDTO>> results = new ArrayList<>();
+            for (int seat = 1; seat <= 200; seat++) {
+                int seatNumber = seat;
+                results.add(executor.submit(() -> bookingLanes.bookTicket(booking(3L, seatNumber))));
+            }
+            for (Future<BookingResponseDTO> result : results) {
+                assertNotNull(result.get().bookingId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, overlaps.get());
+    }
+
+    private static Booking booking(Long showtimeId, int seatNumber) {
+        return new Booking(null, showtimeId, seatNumber, UUID.randomUUID().toString());
+    }
+}
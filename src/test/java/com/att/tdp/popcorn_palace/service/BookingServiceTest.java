@@ -1,15 +1,31 @@
 package com.att.tdp.popcorn_palace.service;
 
+import com.att.tdp.popcorn_palace.config.BookingProperties;
+import com.att.tdp.popcorn_palace.config.CatalogProperties;
 import com.att.tdp.popcorn_palace.entity.Booking;
 import com.att.tdp.popcorn_palace.entity.Showtime;
 import com.att.tdp.popcorn_palace.dto.BookingResponseDTO;
+import com.att.tdp.popcorn_palace.dto.CursorPageDTO;
+import com.att.tdp.popcorn_palace.dto.GroupBookingRequestDTO;
+import com.att.tdp.popcorn_palace.dto.GroupBookingResponseDTO;
+import com.att.tdp.popcorn_palace.dto.SeatHoldRequestDTO;
+import com.att.tdp.popcorn_palace.dto.SeatHoldResponseDTO;
 import com.att.tdp.popcorn_palace.exception.*;
+import com.att.tdp.popcorn_palace.inventory.SeatHolds;
+import com.att.tdp.popcorn_palace.inventory.SeatInventory;
+import com.att.tdp.popcorn_palace.journal.BookingJournalWriter;
 import com.att.tdp.popcorn_palace.repository.BookingRepository;
 import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.schedule.ShowtimeCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -18,7 +34,6 @@ import static org.mockito.Mockito.*;
 
 class BookingServiceTest {
 
-    @InjectMocks
     private BookingService bookingService;
 
     @Mock
@@ -27,12 +42,17 @@ class BookingServiceTest {
     @Mock
     private ShowtimeRepository showtimeRepository;
 
+    private SimpleMeterRegistry meterRegistry;
     private Booking booking;
     private Showtime showtime;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        SeatInventory seatInventory = new SeatInventory(bookingRepository);
+        meterRegistry = new SimpleMeterRegistry();
+        bookingService = new BookingService(bookingRepository, showtimeCache(), seatInventory,
+                new SeatHolds(seatInventory, meterRegistry), new BookingProperties(Duration.ofMinutes(5)), Optional.empty(), meterRegistry);
 
         showtime = new Showtime();
         showtime.setId(1L);
@@ -48,8 +68,7 @@ class BookingServiceTest {
     @Test
     void bookTicket_SuccessfulBooking_ReturnsBookingResponseDTO() {
         when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
-        when(bookingRepository.existsByShowtimeIdAndSeatNumber(1L, 10)).thenReturn(false);
-        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenReturn(booking);
         BookingResponseDTO response = bookingService.bookTicket(booking);
         UUID bookingId = response.bookingId();
         assertNotNull(response);
@@ -84,8 +103,245 @@ class BookingServiceTest {
     @Test
     void bookTicket_SeatAlreadyBooked_ThrowsDataConflictException() {
         when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
-        when(bookingRepository.existsByShowtimeIdAndSeatNumber(1L, 10)).thenReturn(true);
+        when(bookingRepository.findSeatNumbersByShowtimeId(1L)).thenReturn(List.of(10));
         DataConflictException exception = assertThrows(DataConflictException.class, () -> bookingService.bookTicket(booking));
         assertEquals("Seat number 10 is already booked for showtime ID 1", exception.getMessage());
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
+        assertEquals(1, meterRegistry.get("popcorn.booking.seat.conflicts").tag("source", "memory").counter().count());
+    }
+
+    //the seat unique key is a taken seat, any other integrity violation is not
+    @Test
+    void bookTicket_DatabaseViolation_ConflictOnlyForSeatKey() {
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint \"uk_bookings_showtime_seat\""))
+                .thenThrow(new DataIntegrityViolationException("insert or update on table \"bookings\" violates foreign key constraint"));
+
+        assertThrows(DataConflictException.class, () -> bookingService.bookTicket(booking));
+        assertThrows(DataIntegrityViolationException.class, () -> bookingService.bookTicket(new Booking(null, 1L, 11, booking.getUserId())));
+        assertEquals(1, meterRegistry.get("popcorn.booking.seat.conflicts").tag("source", "database").counter().count());
+    }
+
+    //every booking call is timed once, tagged with its outcome
+    @Test
+    void bookTicket_BookedThenConflict_TimedByOutcome() {
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenReturn(booking);
+        bookingService.bookTicket(booking);
+        assertThrows(DataConflictException.class, () -> bookingService.bookTicket(new Booking(null, 1L, 10, UUID.randomUUID().toString())));
+        assertThrows(InvalidInputException.class, () -> bookingService.bookTicket(new Booking(null, 1L, 11, "invalid-uuid")));
+
+        for (String outcome : List.of("booked", "conflict", "invalid")) {
+            assertEquals(1, meterRegistry.get("popcorn.booking.requests").tag("operation", "single").tag("outcome", outcome).timer().count());
+        }
+    }
+
+    //a lane batch saves every bookable seat together and reports the others one by one
+    @Test
+    void bookTicketBatch_MixedRequests_SavesBookableSeatsTogether() {
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+        Booking sameSeat = new Booking(null, 1L, 10, UUID.randomUUID().toString());
+        Booking otherSeat = new Booking(null, 1L, 11, UUID.randomUUID().toString());
+        Booking badUser = new Booking(null, 1L, 12, "invalid-uuid");
+
+        List<BookingService.BookingOutcome> outcomes = bookingService.bookTicketBatch(List.of(booking, sameSeat, otherSeat, badUser));
+
+        assertNull(outcomes.get(0).error());
+        assertInstanceOf(DataConflictException.class, outcomes.get(1).error());
+        assertNull(outcomes.get(2).error());
+        assertInstanceOf(InvalidInputException.class, outcomes.get(3).error());
+        verify(bookingRepository).saveAllAndFlush(List.of(booking, otherSeat));
+        verify(showtimeRepository, times(1)).findById(1L);
+        assertEquals(2, meterRegistry.get("popcorn.booking.requests").tags("operation", "lane", "outcome", "booked").timer().count());
+        assertEquals(1, meterRegistry.get("popcorn.booking.requests").tags("operation", "lane", "outcome", "conflict").timer().count());
+        assertEquals(1, meterRegistry.get("popcorn.booking.requests").tags("operation", "lane", "outcome", "invalid").timer().count());
+    }
+
+    //a full page comes with the cursor of its last booking
+    @Test
+    void getUserBookings_MoreThanOnePage_ReturnsCursor() {
+        String userId = booking.getUserId();
+        Booking newest = new Booking(UUID.randomUUID(), 1L, 3, userId);
+        Booking older = new Booking(UUID.randomUUID(), 1L, 2, userId);
+        Booking oldest = new Booking(UUID.randomUUID(), 1L, 1, userId);
+        when(bookingRepository.findByUserIdOrderByBookingIdDesc(userId, Limit.of(3))).thenReturn(List.of(newest, older, oldest));
+
+        CursorPageDTO<Booking> page = bookingService.getUserBookings(userId, null, 2);
+
+        assertEquals(List.of(newest, older), page.items());
+        assertEquals(older.getBookingId().toString(), page.nextCursor());
+    }
+
+    //the last page has no cursor
+    @Test
+    void getUserBookings_AfterCursor_SeeksPastIt() {
+        String userId = booking.getUserId();
+        UUID after = UUID.randomUUID();
+        Booking oldest = new Booking(UUID.randomUUID(), 1L, 1, userId);
+        when(bookingRepository.findByUserIdAndBookingIdLessThanOrderByBookingIdDesc(userId, after, Limit.of(3))).thenReturn(List.of(oldest));
+
+        CursorPageDTO<Booking> page = bookingService.getUserBookings(userId, after, 2);
+
+        assertEquals(List.of(oldest), page.items());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void getUserBookings_LimitTooLarge_ThrowsInvalidInputException() {
+        assertThrows(InvalidInputException.class, () -> bookingService.getUserBookings(booking.getUserId(), null, 101));
+        assertThrows(InvalidInputException.class, () -> bookingService.getUserBookings("invalid-uuid", null, 20));
+    }
+
+    //second request for the same seat is rejected in memory
+    @Test
+    void bookTicket_SameSeatTwice_SecondThrowsDataConflictException() {
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenReturn(booking);
+        bookingService.bookTicket(booking);
+
+        Booking duplicate = new Booking(null, 1L, 10, UUID.randomUUID().toString());
+        assertThrows(DataConflictException.class, () -> bookingService.bookTicket(duplicate));
+        verify(bookingRepository, times(1)).saveAndFlush(any(Booking.class));
+    }
+
+    //cancelled seat can be booked again
+    @Test
+    void cancelBooking_ReleasesSeat() {
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenReturn(booking);
+        bookingService.bookTicket(booking);
+
+        UUID bookingId = UUID.randomUUID();
+        when(bookingRepository.findById(bookingId)).thenReturn(Optional.of(booking));
+        when(bookingRepository.deleteByBookingId(bookingId)).thenReturn(1);
+        bookingService.cancelBooking(bookingId);
+
+        assertDoesNotThrow(() -> bookingService.bookTicket(new Booking(null, 1L, 10, UUID.randomUUID().toString())));
+    }
+
+    //group booking stores all seats in one batch
+    @Test
+    void bookGroup_AllSeatsFree_ReturnsAllBookingIds() {
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+        when(bookingRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+            List<Booking> bookings = invocation.getArgument(0);
+            bookings.forEach(b -> b.setBookingId(UUID.randomUUID()));
+            return bookings;
+        });
+
+        GroupBookingResponseDTO response = bookingService.bookGroup(
+                new GroupBookingRequestDTO(1L, booking.getUserId(), List.of(1, 2, 3, 4)));
+
+        assertEquals(4, response.bookingIds().size());
+        verify(bookingRepository, times(1)).saveAllAndFlush(anyList());
+    }
+
+    //one taken seat fails the whole group and claims nothing
+    @Test
+    void bookGroup_OneSeatTaken_ThrowsDataConflictExceptionAndBooksNothing() {
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+        when(bookingRepository.findSeatNumbersByShowtimeId(1L)).thenReturn(List.of(3));
+
+        DataConflictException exception = assertThrows(DataConflictException.class, () -> bookingService.bookGroup(
+                new GroupBookingRequestDTO(1L, booking.getUserId(), List.of(1, 2, 3))));
+        assertEquals("Seat numbers [3] are already booked for showtime ID 1", exception.getMessage());
+        verify(bookingRepository, never()).saveAllAndFlush(anyList());
+
+        //seats 1 and 2 were not kept
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenReturn(booking);
+        assertDoesNotThrow(() -> bookingService.bookTicket(new Booking(null, 1L, 1, booking.getUserId())));
+    }
+
+    //a seat held past its deadline does not fail the group before the hold timer fires
+    @Test
+    void bookGroup_SeatHoldDue_ClaimsAgainAndBooks() {
+        SeatInventory seatInventory = new SeatInventory(bookingRepository);
+        SeatHolds seatHolds = mock(SeatHolds.class);
+        BookingService groupService = new BookingService(bookingRepository, showtimeCache(), seatInventory, seatHolds,
+                new BookingProperties(Duration.ofMinutes(5)), Optional.empty(), meterRegistry);
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+        when(bookingRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+            List<Booking> bookings = invocation.getArgument(0);
+            bookings.forEach(b -> b.setBookingId(UUID.randomUUID()));
+            return bookings;
+        });
+        //seat 2 is held and the hold is due
+        seatInventory.claim(1L, 2);
+        when(seatHolds.expireIfDue(1L, 2)).thenAnswer(invocation -> {
+            seatInventory.release(1L, 2);
+            return true;
+        });
+
+        GroupBookingResponseDTO response = groupService.bookGroup(new GroupBookingRequestDTO(1L, booking.getUserId(), List.of(1, 2, 3)));
+
+        assertEquals(3, response.bookingIds().size());
+        verify(seatHolds).expireIfDue(1L, 2);
+    }
+
+    @Test
+    void bookGroup_DuplicateSeats_ThrowsInvalidInputException() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> bookingService.bookGroup(
+                new GroupBookingRequestDTO(1L, booking.getUserId(), List.of(5, 5))));
+        assertEquals("Seat numbers in a group booking must be unique.", exception.getMessage());
+    }
+
+    //held seat cannot be booked by someone else
+    @Test
+    void holdSeat_SeatHeld_BookTicketThrowsDataConflictException() {
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+        SeatHoldResponseDTO hold = bookingService.holdSeat(new SeatHoldRequestDTO(1L, 10, booking.getUserId()));
+
+        assertNotNull(hold.holdId());
+        assertThrows(DataConflictException.class, () -> bookingService.bookTicket(booking));
+    }
+
+    //confirmed hold is stored as a booking
+    @Test
+    void confirmHold_LiveHold_SavesBooking() {
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenReturn(booking);
+        SeatHoldResponseDTO hold = bookingService.holdSeat(new SeatHoldRequestDTO(1L, 10, booking.getUserId()));
+
+        bookingService.confirmHold(hold.holdId());
+
+        verify(bookingRepository).saveAndFlush(argThat(b -> b.getSeatNumber() == 10 && b.getShowtimeId() == 1L));
+        assertThrows(ResourceNotFoundException.class, () -> bookingService.confirmHold(hold.holdId()));
+    }
+
+    //released hold frees the seat for a normal booking
+    @Test
+    void releaseHold_SeatBecomesBookable() {
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+        when(bookingRepository.saveAndFlush(any(Booking.class))).thenReturn(booking);
+        SeatHoldResponseDTO hold = bookingService.holdSeat(new SeatHoldRequestDTO(1L, 10, booking.getUserId()));
+
+        bookingService.releaseHold(hold.holdId());
+
+        assertDoesNotThrow(() -> bookingService.bookTicket(booking));
+        assertThrows(ResourceNotFoundException.class, () -> bookingService.releaseHold(hold.holdId()));
+    }
+
+    //in journal mode the booking is acknowledged without touching the bookings table
+    @Test
+    void bookTicket_JournalMode_WritesToJournal() {
+        BookingJournalWriter journalWriter = mock(BookingJournalWriter.class);
+        when(journalWriter.write(anyList())).thenReturn(true);
+        SeatInventory seatInventory = new SeatInventory(bookingRepository);
+        BookingService journaled = new BookingService(bookingRepository, showtimeCache(), seatInventory,
+                new SeatHolds(seatInventory, new SimpleMeterRegistry()), new BookingProperties(Duration.ofMinutes(5)), Optional.of(journalWriter),
+                new SimpleMeterRegistry());
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+
+        BookingResponseDTO response = journaled.bookTicket(booking);
+
+        assertNotNull(response.bookingId());
+        verify(journalWriter).write(List.of(booking));
+        verify(bookingRepository, never()).saveAndFlush(any(Booking.class));
+    }
+
+    private ShowtimeCache showtimeCache() {
+        return new ShowtimeCache(showtimeRepository,
+                new CatalogProperties(50, 500, CatalogProperties.OverlapCheck.INDEX, 100, Duration.ofMinutes(10)), new SimpleMeterRegistry());
     }
 }
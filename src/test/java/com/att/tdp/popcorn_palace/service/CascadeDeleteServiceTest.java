@@ -0,0 +1,124 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.catalog.MovieCatalog;
+import com.att.tdp.popcorn_palace.config.CatalogProperties;
+import com.att.tdp.popcorn_palace.inventory.SeatInventory;
+import com.att.tdp.popcorn_palace.journal.BookingJournalWriter;
+import com.att.tdp.popcorn_palace.repository.BookingRepository;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.schedule.ShowtimeCache;
+import com.att.tdp.popcorn_palace.schedule.TheaterSchedule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CascadeDeleteServiceTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private ShowtimeRepository showtimeRepository;
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private MovieCatalog movieCatalog;
+
+    @Mock
+    private SeatInventory seatInventory;
+
+    @Mock
+    private TheaterSchedule theaterSchedule;
+
+    @Mock
+    private ShowtimeCache showtimeCache;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CascadeDeleteService cascadeDeleteService;
+
+    @BeforeEach//start before the tests
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        cascadeDeleteService = new CascadeDeleteService(bookingRepository, showtimeRepository, movieRepository, movieCatalog, seatInventory,
+                theaterSchedule, showtimeCache, Optional.empty(),
+                new CatalogProperties(2, 500, CatalogProperties.OverlapCheck.INDEX, 100, Duration.ofMinutes(10)), transactionManager);
+    }
+
+    //showtimes and bookings go in one statement each per chunk, one transaction per chunk
+    @Test
+    void deleteShowtimes_MoreThanOneChunk_DeletesChunkByChunk() {
+        cascadeDeleteService.deleteShowtimes(List.of(1L, 2L, 3L));
+
+        InOrder inOrder = inOrder(bookingRepository, showtimeRepository);
+        inOrder.verify(showtimeRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        inOrder.verify(bookingRepository).deleteAllOfShowtimes(List.of(1L, 2L));
+        inOrder.verify(showtimeRepository).deleteAllByIdInBatch(List.of(3L));
+        inOrder.verify(bookingRepository).deleteAllOfShowtimes(List.of(3L));
+        verify(transactionManager, times(2)).commit(any());
+        verify(seatInventory).forgetAfterCommit(1L);
+        verify(seatInventory).forgetAfterCommit(3L);
+        verify(theaterSchedule).removeAfterCommit(2L);
+        verify(showtimeCache).evictAfterCommit(3L);
+    }
+
+    //the movie row goes once no showtime of it is left
+    @Test
+    void deleteMovie_WithShowtimes_DeletesShowtimesThenMovie() {
+        when(showtimeRepository.findIdsByMovieId(9L, Limit.of(2)))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(3L));
+
+        cascadeDeleteService.deleteMovie(9L);
+
+        verify(bookingRepository).deleteAllOfShowtimes(List.of(1L, 2L));
+        verify(bookingRepository).deleteAllOfShowtimes(List.of(3L));
+        verify(movieRepository).deleteAllByIdInBatch(List.of(9L));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    //a movie without showtimes is a single delete
+    @Test
+    void deleteMovie_NoShowtimes_DeletesMovieOnly() {
+        when(showtimeRepository.findIdsByMovieId(9L, Limit.of(2))).thenReturn(List.of());
+
+        cascadeDeleteService.deleteMovie(9L);
+
+        verify(bookingRepository, never()).deleteAllOfShowtimes(any());
+        verify(movieRepository).deleteAllByIdInBatch(List.of(9L));
+    }
+
+    //the journal is drained before every chunk, not only once before the first
+    @Test
+    void deleteShowtimes_JournalMode_DrainsBeforeEachChunk() {
+        BookingJournalWriter journalWriter = mock(BookingJournalWriter.class);
+        CascadeDeleteService journaled = new CascadeDeleteService(bookingRepository, showtimeRepository, movieRepository, movieCatalog,
+                seatInventory, theaterSchedule, showtimeCache, Optional.of(journalWriter),
+                new CatalogProperties(2, 500, CatalogProperties.OverlapCheck.INDEX, 100, Duration.ofMinutes(10)), transactionManager);
+
+        journaled.deleteShowtimes(List.of(1L, 2L, 3L));
+
+        InOrder inOrder = inOrder(journalWriter, showtimeRepository);
+        inOrder.verify(journalWriter).drain();
+        inOrder.verify(showtimeRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        inOrder.verify(journalWriter).drain();
+        inOrder.verify(showtimeRepository).deleteAllByIdInBatch(List.of(3L));
+    }
+}
@@ -0,0 +1,101 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.entity.Movie;
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class CatalogExportServiceTest {
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private ShowtimeRepository showtimeRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CatalogExportService catalogExportService;
+    private Movie inception;
+    private Movie matrix;
+
+    @BeforeEach//start before the tests
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        catalogExportService = new CatalogExportService(movieRepository, showtimeRepository, entityManager,
+                new ObjectMapper().findAndRegisterModules(), transactionManager);
+        inception = new Movie(1L, "Inception", "Sci-Fi", 148, 8.8, 2010);
+        matrix = new Movie(2L, "The Matrix", "Sci-Fi", 136, 8.7, 1999);
+    }
+
+    //one object per line, every row is detached once written and the cursor is closed
+    @Test
+    void exportMovies_Ndjson_OneObjectPerLine() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(movieRepository.streamAll()).thenReturn(Stream.of(inception, matrix).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        catalogExportService.exportMovies(out, true);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,\"title\":\"Inception\""));
+        assertTrue(lines[1].startsWith("{\"id\":2,"));
+        verify(entityManager).detach(inception);
+        verify(entityManager).detach(matrix);
+        assertTrue(closed.get());
+    }
+
+    //the json form is one array, read in a read-only transaction
+    @Test
+    void exportShowtimes_Json_WritesArray() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 12, 0);
+        when(showtimeRepository.streamAll()).thenReturn(Stream.of(new Showtime(7L, 1L, 20.0, "Hall 1", start, start.plusHours(3))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        catalogExportService.exportShowtimes(out, false);
+
+        String json = out.toString(StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("[{\"id\":7,"));
+        assertTrue(json.endsWith("}]"));
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertTrue(definition.getValue().isReadOnly());
+    }
+
+    //an empty table is an empty array, not an empty body
+    @Test
+    void exportMovies_EmptyJson_WritesEmptyArray() throws Exception {
+        when(movieRepository.streamAll()).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        catalogExportService.exportMovies(out, false);
+
+        assertEquals("[]", out.toString(StandardCharsets.UTF_8));
+    }
+}
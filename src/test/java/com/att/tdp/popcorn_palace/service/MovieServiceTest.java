@@ -1,13 +1,24 @@
 package com.att.tdp.popcorn_palace.service;
 
+import com.att.tdp.popcorn_palace.catalog.CatalogVersion;
+import com.att.tdp.popcorn_palace.catalog.MovieCatalog;
+import com.att.tdp.popcorn_palace.config.CatalogProperties;
+import com.att.tdp.popcorn_palace.dto.MovieUpsertReportDTO;
+import com.att.tdp.popcorn_palace.dto.MovieUpsertRowDTO;
 import com.att.tdp.popcorn_palace.entity.Movie;
 import com.att.tdp.popcorn_palace.exception.*;
 import com.att.tdp.popcorn_palace.repository.MovieRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import jakarta.validation.Validation;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -21,6 +32,15 @@ class MovieServiceTest {
     @Mock
     private MovieRepository movieRepository;
 
+    @Mock
+    private MovieCatalog movieCatalog;
+
+    @Mock
+    private CascadeDeleteService cascadeDeleteService;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
     private Movie movie;
 
     @BeforeEach
@@ -38,7 +58,7 @@ class MovieServiceTest {
     //Successful Movie Creation
     @Test
     void addMovie_SuccessfulCreation_ReturnsMovie() {
-        when(movieRepository.findByTitle(movie.getTitle())).thenReturn(Optional.empty());
+        when(movieCatalog.findByTitle(movie.getTitle())).thenReturn(Optional.empty());
         when(movieRepository.save(any(Movie.class))).thenReturn(movie);
         Movie result = movieService.addMovie(movie);
         assertNotNull(result);
@@ -48,7 +68,7 @@ class MovieServiceTest {
     //Adding a Movie That Already Exists
     @Test
     void addMovie_AlreadyExists_ThrowsDataConflictException() {
-        when(movieRepository.findByTitle(movie.getTitle())).thenReturn(Optional.of(movie));
+        when(movieCatalog.findByTitle(movie.getTitle())).thenReturn(Optional.of(movie));
         DataConflictException exception = assertThrows(DataConflictException.class, () -> movieService.addMovie(movie));
         assertEquals("Movie with title 'Inception' already exists.", exception.getMessage());
     }
@@ -61,7 +81,7 @@ class MovieServiceTest {
         updatedMovie.setDuration(120);
         updatedMovie.setRating(9.0);
         updatedMovie.setReleaseYear(2024);
-        when(movieRepository.findByTitle(movie.getTitle())).thenReturn(Optional.of(movie));
+        when(movieCatalog.findByTitle(movie.getTitle())).thenReturn(Optional.of(movie));
         when(movieRepository.save(any(Movie.class))).thenReturn(updatedMovie);
         Movie result = movieService.updateMovie(movie.getTitle(), updatedMovie);
         assertNotNull(result);
@@ -74,7 +94,7 @@ class MovieServiceTest {
     //Updating a Non-Existing Movie
     @Test
     void updateMovie_NonExistingMovie_ThrowsResourceNotFoundException() {
-        when(movieRepository.findByTitle(movie.getTitle())).thenReturn(Optional.empty());
+        when(movieCatalog.findByTitle(movie.getTitle())).thenReturn(Optional.empty());
         ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () -> movieService.updateMovie(movie.getTitle(), movie));
         assertEquals("Movie not found with title: Inception", exception.getMessage());
     }
@@ -82,15 +102,15 @@ class MovieServiceTest {
     //Successfully Deleting an Existing Movie
     @Test
     void deleteMovie_ExistingMovie_DeletesSuccessfully() {
-        when(movieRepository.findByTitle(movie.getTitle())).thenReturn(Optional.of(movie));
+        when(movieCatalog.findByTitle(movie.getTitle())).thenReturn(Optional.of(movie));
         assertDoesNotThrow(() -> movieService.deleteMovie(movie.getTitle()));
-        verify(movieRepository, times(1)).delete(movie);
+        verify(cascadeDeleteService, times(1)).deleteMovie(movie.getId());
     }
 
     //Deleting a Non-Existing Movie
     @Test
     void deleteMovie_NonExistingMovie_ThrowsResourceNotFoundException() {
-        when(movieRepository.findByTitle(movie.getTitle())).thenReturn(Optional.empty());
+        when(movieCatalog.findByTitle(movie.getTitle())).thenReturn(Optional.empty());
         ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () -> movieService.deleteMovie(movie.getTitle()));
         assertEquals("Movie not found with title: Inception", exception.getMessage());
     }
@@ -114,4 +134,101 @@ class MovieServiceTest {
 
         assertTrue(result.isEmpty());
     }
+
+    //page size is bounded
+    @Test
+    void listMovies_LimitTooLarge_ThrowsInvalidInputException() {
+        assertThrows(InvalidInputException.class, () -> movieService.listMovies(null, null, null, 101));
+        verifyNoInteractions(movieRepository);
+    }
+
+    //two requests adding the same title at once, the unique index rejects the second one
+    @Test
+    void addMovie_TitleAddedConcurrently_ThrowsDataConflictException() {
+        when(movieCatalog.findByTitle(movie.getTitle())).thenReturn(Optional.empty());
+        when(movieRepository.save(any(Movie.class))).thenReturn(movie);
+        doThrow(new DataIntegrityViolationException("uk_movies_title")).when(movieRepository).flush();
+
+        assertThrows(DataConflictException.class, () -> movieService.addMovie(movie));
+        verify(movieCatalog, never()).putAfterCommit(any());
+    }
+
+    //only the title key means the title is taken, another violation is rethrown as it is
+    @Test
+    void addMovie_OtherIntegrityViolation_Rethrows() {
+        when(movieCatalog.findByTitle(movie.getTitle())).thenReturn(Optional.empty());
+        when(movieRepository.save(any(Movie.class))).thenReturn(movie);
+        doThrow(new DataIntegrityViolationException("NULL not allowed for column \"GENRE\"")).when(movieRepository).flush();
+
+        assertThrows(DataIntegrityViolationException.class, () -> movieService.addMovie(movie));
+        verify(movieCatalog, never()).putAfterCommit(any());
+    }
+
+    //search needs a query and a bounded result size
+    @Test
+    void searchMovies_BlankQueryOrLimitTooLarge_ThrowsInvalidInputException() {
+        assertThrows(InvalidInputException.class, () -> movieService.searchMovies(" ", 10));
+        assertThrows(InvalidInputException.class, () -> movieService.searchMovies("inc", 51));
+        verifyNoInteractions(movieCatalog);
+    }
+
+    //one lookup per chunk, new titles are inserted, changed ones updated, identical ones left alone
+    @Test
+    void upsertMovies_MixedRows_ReportsOutcomePerRow() {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        MovieService bulkService = new MovieService(movieRepository, movieCatalog, cascadeDeleteService, catalogVersion,
+                new CatalogProperties(50, 500, CatalogProperties.OverlapCheck.INDEX, 100, Duration.ofMinutes(10)),
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionTemplate);
+        Movie matrix = new Movie(2L, "The Matrix", "Sci-Fi", 136, 8.5, 1999);
+        when(movieRepository.findByTitleIn(anyCollection())).thenReturn(List.of(movie, matrix));
+        when(movieRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Movie> movies = invocation.getArgument(0);
+            movies.forEach(inserted -> inserted.setId(3L));
+            return movies;
+        });
+
+        MovieUpsertReportDTO report = bulkService.upsertMovies(Arrays.asList(
+                new Movie(null, "Inception", "Sci-Fi", 148, 8.8, 2010),
+                new Movie(null, "The Matrix", "Sci-Fi", 136, 8.7, 1999),
+                new Movie(null, "Up", "Animation", 96, 8.3, 2009),
+                new Movie(null, "Broken", "Drama", 96, 11, 2009),
+                new Movie(null, "Up", "Animation", 96, 8.0, 2009),
+                null));
+
+        assertEquals(6, report.received());
+        assertEquals(List.of(MovieUpsertRowDTO.Outcome.UNCHANGED, MovieUpsertRowDTO.Outcome.UPDATED, MovieUpsertRowDTO.Outcome.CREATED,
+                        MovieUpsertRowDTO.Outcome.REJECTED, MovieUpsertRowDTO.Outcome.REJECTED, MovieUpsertRowDTO.Outcome.REJECTED),
+                report.rows().stream().map(MovieUpsertRowDTO::outcome).toList());
+        assertEquals(List.of(1L, 2L, 3L), report.rows().stream().limit(3).map(MovieUpsertRowDTO::movieId).toList());
+        assertEquals("Rating cannot exceed 10.", report.rows().get(3).error());
+        assertEquals("Title already appears in row 3.", report.rows().get(4).error());
+        assertEquals(8.7, matrix.getRating());
+        verify(movieRepository, times(1)).findByTitleIn(anyCollection());
+        verify(movieCatalog).putAllAfterCommit(argThat(changed -> changed.stream().map(Movie::getId).toList().equals(List.of(2L, 3L))));
+        verify(catalogVersion).bumpAfterCommit(CatalogVersion.Part.MOVIES);
+    }
+
+    //a chunk that cannot be written is rejected as a whole
+    @Test
+    void upsertMovies_TitleAddedConcurrently_RowsOfChunkRejected() {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        MovieService bulkService = new MovieService(movieRepository, movieCatalog, cascadeDeleteService, catalogVersion,
+                new CatalogProperties(50, 500, CatalogProperties.OverlapCheck.INDEX, 100, Duration.ofMinutes(10)),
+                Validation.buildDefaultValidatorFactory().getValidator(), transactionTemplate);
+        doThrow(new DataIntegrityViolationException("uk_movies_title")).when(movieRepository).flush();
+
+        MovieUpsertReportDTO report = bulkService.upsertMovies(List.of(new Movie(null, "Up", "Animation", 96, 8.3, 2009)));
+
+        assertEquals(1, report.rejected());
+        assertNull(report.rows().get(0).movieId());
+        assertEquals("Movie could not be saved, a title of this chunk was added meanwhile.", report.rows().get(0).error());
+    }
 }
@@ -0,0 +1,178 @@
+package com.att.tdp.popcorn_palace.service;
+
+import com.att.tdp.popcorn_palace.catalog.CatalogVersion;
+import com.att.tdp.popcorn_palace.config.CatalogProperties;
+import com.att.tdp.popcorn_palace.dto.ShowtimeImportReportDTO;
+import com.att.tdp.popcorn_palace.entity.Showtime;
+import com.att.tdp.popcorn_palace.exception.InvalidInputException;
+import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.schedule.TheaterSchedule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.StringReader;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class ShowtimeImportServiceTest {
+
+    @Mock
+    private ShowtimeRepository showtimeRepository;
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private TheaterSchedule theaterSchedule;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ShowtimeImportService showtimeImportService;
+    private final AtomicLong ids = new AtomicLong(100);
+
+    @BeforeEach//start before the tests
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        when(movieRepository.findDurations()).thenReturn(List.<Object[]>of(new Object[]{2L, 120}));
+        when(showtimeRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Showtime> showtimes = new ArrayList<>(invocation.getArgument(0));
+            showtimes.forEach(showtime -> showtime.setId(ids.incrementAndGet()));
+            return showtimes;
+        });
+        showtimeImportService = new ShowtimeImportService(showtimeRepository, movieRepository, theaterSchedule, new CatalogVersion(),
+                new ObjectMapper().findAndRegisterModules(), new CatalogProperties(50, 2, CatalogProperties.OverlapCheck.INDEX, 100, Duration.ofMinutes(10)),
+                transactionManager, meterRegistry);
+    }
+
+    //valid rows are inserted chunk by chunk, one transaction per chunk
+    @Test
+    void importCsv_ValidRows_InsertsInChunks() throws Exception {
+        ShowtimeImportReportDTO report = showtimeImportService.importCsv(new StringReader("""
+                movieId,theater,startTime,endTime,price
+                2,Hall 1,2025-04-01T10:00:00,2025-04-01T12:00:00,20
+                2,Hall 1,2025-04-01T12:30:00,2025-04-01T14:30:00,20
+                2,"Hall, 2",2025-04-01T10:00:00,2025-04-01T12:05:00,15.5
+                """));
+
+        assertEquals(3, report.received());
+        assertEquals(3, report.imported());
+        assertEquals(0, report.rejected());
+        report.rows().forEach(row -> assertNotNull(row.showtimeId()));
+        verify(showtimeRepository, times(2)).saveAll(anyList());
+        verify(transactionManager, times(2)).commit(any());
+        verify(theaterSchedule, times(3)).putAfterCommit(any(Showtime.class));
+    }
+
+    //each rejected row says why, the rest of the schedule still goes in
+    @Test
+    void importCsv_InvalidRows_ReportedPerRow() throws Exception {
+        ShowtimeImportReportDTO report = showtimeImportService.importCsv(new StringReader("""
+                2,Hall 1,2025-04-01T10:00:00,2025-04-01T12:00:00,20
+                9,Hall 1,2025-04-01T13:00:00,2025-04-01T15:00:00,20
+                2,Hall 1,2025-04-01T13:00:00,2025-04-01T14:00:00,20
+                2,Hall 1,2025-04-01T13:00:00,2025-04-01T15:00:00,200
+                2,Hall 1,not a time,2025-04-01T15:00:00,20
+                2,Hall 1
+                """));
+
+        assertEquals(6, report.received());
+        assertEquals(1, report.imported());
+        assertEquals("Movie ID 9 does not exist.", report.rows().get(1).error());
+        assertEquals("Showtime duration cannot be shorter than the movie duration.", report.rows().get(2).error());
+        assertEquals("Price must be between 1.0 and 100.0.", report.rows().get(3).error());
+        assertTrue(report.rows().get(4).error().startsWith("Malformed row"));
+        assertTrue(report.rows().get(5).error().startsWith("Malformed row"));
+    }
+
+    //a body over the row limit is refused while it is read, before anything is looked up
+    @Test
+    void importCsv_TooManyRows_ThrowsInvalidInputException() {
+        String body = "2,Hall 1,2025-04-01T10:00:00,2025-04-01T12:00:00,20\n".repeat(ShowtimeImportService.MAX_IMPORT_ROWS + 1);
+
+        assertThrows(InvalidInputException.class, () -> showtimeImportService.importCsv(new StringReader(body)));
+        verifyNoInteractions(movieRepository, showtimeRepository);
+    }
+
+    //rows of the same theater are swept against each other, the earlier start wins
+    @Test
+    void importCsv_OverlappingRowsInBatch_RejectsTheLaterOne() throws Exception {
+        ShowtimeImportReportDTO report = showtimeImportService.importCsv(new StringReader("""
+                2,Hall 1,2025-04-01T11:00:00,2025-04-01T13:00:00,20
+                2,Hall 1,2025-04-01T10:00:00,2025-04-01T12:00:00,20
+                2,Hall 2,2025-04-01T11:00:00,2025-04-01T13:00:00,20
+                2,Hall 1,2025-04-01T12:00:00,2025-04-01T14:00:00,20
+                """));
+
+        assertEquals(2, report.imported());
+        assertEquals("Showtime conflicts with row 2 in the same theater.", report.rows().get(0).error());
+        assertNotNull(report.rows().get(1).showtimeId());
+        assertNotNull(report.rows().get(2).showtimeId());
+        assertEquals("Showtime conflicts with row 2 in the same theater.", report.rows().get(3).error());
+        assertEquals(2, meterRegistry.get("popcorn.showtimes.overlap.rejected").tags("operation", "import", "check", "batch").counter().count());
+        assertEquals(2, meterRegistry.get("popcorn.showtimes.import.rows").tag("outcome", "rejected").counter().count());
+    }
+
+    //rows are checked against the stored showtimes of the same window
+    @Test
+    void importNdjson_OverlapsStoredShowtime_Rejected() throws Exception {
+        when(showtimeRepository.findSlotsOfTheatersBetween(anyCollection(), any(), any())).thenReturn(List.<Object[]>of(
+                new Object[]{"Hall 1", 7L, LocalDateTime.parse("2025-04-01T09:00:00"), LocalDateTime.parse("2025-04-01T11:00:00")}));
+
+        ShowtimeImportReportDTO report = showtimeImportService.importNdjson(new StringReader("""
+                {"movieId":2,"theater":"Hall 1","startTime":"2025-04-01T10:00:00","endTime":"2025-04-01T12:00:00","price":20}
+                {"movieId":2,"theater":"Hall 1","startTime":"2025-04-01T12:00:00","endTime":"2025-04-01T14:00:00","price":20}
+                {"movieId":2,"theater":
+                """));
+
+        assertEquals(3, report.received());
+        assertEquals(1, report.imported());
+        assertEquals("Showtime conflicts with an existing showtime in the same theater.", report.rows().get(0).error());
+        assertNotNull(report.rows().get(1).showtimeId());
+        assertTrue(report.rows().get(2).error().startsWith("Malformed row"));
+    }
+
+    //a chunk that cannot be saved is reported, the chunks before it stay imported
+    @Test
+    void importCsv_ChunkFails_RowsOfThatChunkRejected() throws Exception {
+        when(showtimeRepository.saveAll(anyList()))
+                .thenAnswer(invocation -> {
+                    List<Showtime> showtimes = new ArrayList<>(invocation.getArgument(0));
+                    showtimes.forEach(showtime -> showtime.setId(ids.incrementAndGet()));
+                    return showtimes;
+                })
+                .thenThrow(new IllegalStateException("connection lost"));
+
+        ShowtimeImportReportDTO report = showtimeImportService.importCsv(new StringReader("""
+                2,Hall 1,2025-04-01T10:00:00,2025-04-01T12:00:00,20
+                2,Hall 1,2025-04-01T13:00:00,2025-04-01T15:00:00,20
+                2,Hall 1,2025-04-01T16:00:00,2025-04-01T18:00:00,20
+                """));
+
+        assertEquals(2, report.imported());
+        assertEquals("Showtime could not be saved.", report.rows().get(2).error());
+        assertNull(report.rows().get(2).showtimeId());
+    }
+
+    @Test
+    void splitCsv_QuotedField_KeepsCommasAndQuotes() {
+        assertEquals(List.of("1", "Hall \"A\", upstairs", "x"), ShowtimeImportService.splitCsv("1,\"Hall \"\"A\"\", upstairs\",x"));
+    }
+}
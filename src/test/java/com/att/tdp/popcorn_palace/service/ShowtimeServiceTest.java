@@ -1,15 +1,24 @@
 package com.att.tdp.popcorn_palace.service;
 
+import com.att.tdp.popcorn_palace.catalog.CatalogVersion;
+import com.att.tdp.popcorn_palace.catalog.MovieCatalog;
 import com.att.tdp.popcorn_palace.entity.Movie;
 import com.att.tdp.popcorn_palace.entity.Showtime;
 import com.att.tdp.popcorn_palace.exception.*;
-import com.att.tdp.popcorn_palace.repository.MovieRepository;
+import com.att.tdp.popcorn_palace.inventory.SeatInventory;
+import com.att.tdp.popcorn_palace.inventory.SeatMap;
 import com.att.tdp.popcorn_palace.repository.ShowtimeRepository;
+import com.att.tdp.popcorn_palace.schedule.ShowtimeCache;
+import com.att.tdp.popcorn_palace.schedule.TheaterSchedule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,7 +33,25 @@ class ShowtimeServiceTest {
     private ShowtimeRepository showtimeRepository;
 
     @Mock
-    private MovieRepository movieRepository;
+    private MovieCatalog movieCatalog;
+
+    @Mock
+    private SeatInventory seatInventory;
+
+    @Mock
+    private CascadeDeleteService cascadeDeleteService;
+
+    @Mock
+    private TheaterSchedule theaterSchedule;
+
+    @Mock
+    private ShowtimeCache showtimeCache;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     private Showtime showtime;
     private Movie movie;
@@ -47,9 +74,8 @@ class ShowtimeServiceTest {
     //Successfully Create a Showtime
     @Test
     void addShowtime_SuccessfulCreation_ReturnsShowtime() {
-        when(movieRepository.findById(2L)).thenReturn(Optional.of(movie));
-        when(showtimeRepository.existsByTheaterAndOverlappingTimeRange(anyString(), any(), any()))
-                .thenReturn(false);
+        when(movieCatalog.findById(2L)).thenReturn(Optional.of(movie));
+        when(theaterSchedule.overlapsAny(anyString(), any(), any())).thenReturn(false);
         when(showtimeRepository.save(any(Showtime.class))).thenReturn(showtime);
 
         Showtime result = showtimeService.addShowtime(showtime);
@@ -63,7 +89,7 @@ class ShowtimeServiceTest {
     void addShowtime_Exactly10MinutesOver_Success() {
         showtime.setEndTime(showtime.getStartTime().plusMinutes(movie.getDuration() + 10));
 
-        when(movieRepository.findById(2L)).thenReturn(Optional.of(movie));
+        when(movieCatalog.findById(2L)).thenReturn(Optional.of(movie));
         when(showtimeRepository.save(any(Showtime.class))).thenReturn(showtime);
 
         Showtime result = showtimeService.addShowtime(showtime);
@@ -76,7 +102,7 @@ class ShowtimeServiceTest {
     void addShowtime_TooLongDuration_ThrowsInvalidInputException() {
         showtime.setEndTime(showtime.getStartTime().plusMinutes(movie.getDuration() + 11));
 
-        when(movieRepository.findById(2L)).thenReturn(Optional.of(movie));
+        when(movieCatalog.findById(2L)).thenReturn(Optional.of(movie));
 
         InvalidInputException exception = assertThrows(
                 InvalidInputException.class,
@@ -91,7 +117,7 @@ class ShowtimeServiceTest {
     void addShowtime_ShorterThanMovieDuration_ThrowsInvalidInputException() {
         showtime.setEndTime(showtime.getStartTime().plusMinutes(movie.getDuration() - 5));
 
-        when(movieRepository.findById(2L)).thenReturn(Optional.of(movie));
+        when(movieCatalog.findById(2L)).thenReturn(Optional.of(movie));
 
         InvalidInputException exception = assertThrows(
                 InvalidInputException.class,
@@ -101,6 +127,32 @@ class ShowtimeServiceTest {
         assertEquals("Showtime duration cannot be shorter than the movie duration.", exception.getMessage());
     }
 
+    //Showtime overlapping another one in the same theater
+    @Test
+    void addShowtime_OverlappingShowtime_ThrowsDataConflictException() {
+        when(movieCatalog.findById(2L)).thenReturn(Optional.of(movie));
+        when(theaterSchedule.overlapsAny(showtime.getTheater(), showtime.getStartTime(), showtime.getEndTime())).thenReturn(true);
+
+        assertThrows(DataConflictException.class, () -> showtimeService.addShowtime(showtime));
+        verify(showtimeRepository, never()).save(any(Showtime.class));
+        assertEquals(1, meterRegistry.get("popcorn.showtimes.overlap.rejected").tags("operation", "add", "check", "schedule").counter().count());
+    }
+
+    //an overlap caught by the exclusion constraint is a conflict, not a server error
+    @Test
+    void addShowtime_ExclusionConstraintViolated_ThrowsDataConflictException() {
+        when(movieCatalog.findById(2L)).thenReturn(Optional.of(movie));
+        when(showtimeRepository.save(any(Showtime.class))).thenReturn(showtime);
+        doThrow(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("conflicting key value violates exclusion constraint \"showtimes_no_overlap\"", "23P01")))
+                .when(showtimeRepository).flush();
+
+        DataConflictException exception = assertThrows(DataConflictException.class, () -> showtimeService.addShowtime(showtime));
+        assertEquals("Showtime conflicts with an existing showtime in the same theater.", exception.getMessage());
+        verify(theaterSchedule, never()).putAfterCommit(any());
+        assertEquals(1, meterRegistry.get("popcorn.showtimes.overlap.rejected").tags("operation", "add", "check", "constraint").counter().count());
+    }
+
     //Successfully Update a Showtime
     @Test
     void updateShowtime_ExistingShowtime_UpdatesSuccessfully() {
@@ -113,7 +165,7 @@ class ShowtimeServiceTest {
         updatedShowtime.setPrice(30.0);
 
         when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
-        when(movieRepository.findById(2L)).thenReturn(Optional.of(movie));
+        when(movieCatalog.findById(2L)).thenReturn(Optional.of(movie));
         when(showtimeRepository.save(any(Showtime.class))).thenReturn(updatedShowtime);
 
         Showtime result = showtimeService.updateShowtime(1L, updatedShowtime);
@@ -121,6 +173,7 @@ class ShowtimeServiceTest {
         assertNotNull(result);
         assertEquals("Updated Theater", result.getTheater());
         assertEquals(30.0, result.getPrice());
+        verify(showtimeCache).evictAfterCommit(1L);
     }
 
     //Update Non-Existing Showtime
@@ -145,7 +198,7 @@ class ShowtimeServiceTest {
         when(showtimeRepository.existsById(1L)).thenReturn(true);
 
         assertDoesNotThrow(() -> showtimeService.deleteShowtime(1L));
-        verify(showtimeRepository, times(1)).deleteById(1L);
+        verify(cascadeDeleteService, times(1)).deleteShowtimes(List.of(1L));
     }
 
     //Delete Non-Existing Showtime
@@ -164,7 +217,7 @@ class ShowtimeServiceTest {
     //Successfully Get a Showtime by ID
     @Test
     void getShowtimeById_Success_ReturnsShowtime() {
-        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+        when(showtimeCache.get(1L)).thenReturn(Optional.of(showtime));
 
         Showtime result = showtimeService.getShowtimeById(1L);
 
@@ -175,11 +228,45 @@ class ShowtimeServiceTest {
     //Get Non-Existing Showtime by ID
     @Test
     void getShowtimeById_NonExistingShowtime_ThrowsResourceNotFoundException() {
-        when(showtimeRepository.findById(1L)).thenReturn(Optional.empty());
+        when(showtimeCache.get(1L)).thenReturn(Optional.empty());
         ResourceNotFoundException exception = assertThrows(
                 ResourceNotFoundException.class,
                 () -> showtimeService.getShowtimeById(1L)
         );
         assertEquals("Showtime not found with ID: 1", exception.getMessage());
     }
+
+    //seat map of a loaded showtime is served without a query
+    @Test
+    void getSeatMap_LoadedShowtime_DoesNotQueryDatabase() {
+        SeatMap seatMap = new SeatMap(1L, 3L, new int[]{4, 5});
+        when(seatInventory.isLoaded(1L)).thenReturn(true);
+        when(seatInventory.seatMap(1L)).thenReturn(seatMap);
+
+        assertSame(seatMap, showtimeService.getSeatMap(1L));
+        verifyNoInteractions(showtimeRepository);
+    }
+
+    @Test
+    void getSeatMap_NonExistingShowtime_ThrowsResourceNotFoundException() {
+        when(showtimeRepository.existsById(1L)).thenReturn(false);
+
+        ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () -> showtimeService.getSeatMap(1L));
+        assertEquals("Showtime not found with ID: 1", exception.getMessage());
+    }
+
+    //page size is bounded
+    @Test
+    void listShowtimes_LimitTooLarge_ThrowsInvalidInputException() {
+        assertThrows(InvalidInputException.class, () -> showtimeService.listShowtimes(null, null, null, null, null, 0));
+        verifyNoInteractions(showtimeRepository);
+    }
+
+    //a cursor that was not handed out is rejected
+    @Test
+    void listShowtimes_InvalidCursor_ThrowsInvalidInputException() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class,
+                () -> showtimeService.listShowtimes(null, null, null, null, "bm90LWEtY3Vyc29y", 20));
+        assertEquals("Invalid cursor.", exception.getMessage());
+    }
 }